@@ -0,0 +1,49 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.benchmarks;
+
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * The {@link java.util.LinkedList} based {@link org.jledit.collection.RollingStack} of jledit 0.2.1.
+ * It is kept as the baseline of {@link RollingStackBenchmark}.
+ *
+ * @param <I>
+ */
+public class LinkedListRollingStack<I> {
+
+    private final int capacity;
+    private final Deque<I> list = new LinkedList<I>();
+
+    public LinkedListRollingStack(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void push(I item) {
+        if (list.size() >= capacity) {
+            list.removeFirst();
+        }
+        list.addLast(item);
+    }
+
+    public synchronized I pop() {
+        if (list.isEmpty()) {
+            return null;
+        } else {
+            return list.removeLast();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.benchmarks;
+
+import org.jledit.StringEditor;
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening files of each corpus, which includes detecting the charset, decoding and splitting the lines.
+ * The files are generated once per trial and deleted afterwards. Opening takes about 10 times the size of the file
+ * in heap, for larger files raise the heap with {@code -jvmArgsAppend}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LoadBenchmark {
+
+    @Param({"64"})
+    private int sizeInMb;
+
+    @Param({"SHORT_LINES", "MINIFIED_JSON", "CRLF", "LOG", "UTF_8", "WINDOWS_1252", "WINDOWS_1251", "SHIFT_JIS"})
+    private Corpus corpus;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = CorpusGenerator.generate(corpus, sizeInMb * 1024L * 1024L, 1);
+    }
+
+    @TearDown
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        StringEditor editor = new StringEditor();
+        editor.open(file.getAbsolutePath());
+        return editor.lines();
+    }
+}
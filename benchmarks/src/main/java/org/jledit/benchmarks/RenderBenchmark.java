@@ -0,0 +1,177 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.benchmarks;
+
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.jledit.simple.SimpleConsoleEditor;
+import org.jledit.terminal.HeadlessTerminal;
+import org.jledit.terminal.VirtualScreen;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of {@link SimpleConsoleEditor} on a {@link HeadlessTerminal}, a keystroke per operation.
+ * The output is interpreted by a {@link VirtualScreen}, which counts the bytes and escape sequences the editor emits.
+ * They are reported as the secondary results bytes, escapeSequences and keystrokes of each iteration, so the output
+ * per keystroke is bytes / keystrokes.
+ * Pasting is measured the way a terminal delivers it, as a burst of typed characters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final String DOWN = "\033[B";
+    private static final String UP = "\033[A";
+    private static final String FIND = "\006";
+    private static final String FIND_NEXT = "\016";
+    private static final String GO_TO = "\007";
+    private static final String NEW_LINE = "\r";
+
+    public enum Scenario {
+        SCROLLING, TYPING, PASTE, SEARCH_HIGHLIGHT
+    }
+
+    @Param({"SCROLLING", "TYPING", "PASTE", "SEARCH_HIGHLIGHT"})
+    private Scenario scenario;
+
+    @Param({"80"})
+    private int width;
+
+    @Param({"24"})
+    private int height;
+
+    private HeadlessTerminal terminal;
+    private VirtualScreen screen;
+    private SimpleConsoleEditor editor;
+    private byte[][] keystrokes;
+    private int next;
+
+    /**
+     * The output of the editor during an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Output {
+        public long bytes;
+        public long escapeSequences;
+        public long keystrokes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            escapeSequences = 0;
+            keystrokes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        terminal = new HeadlessTerminal(width, height);
+        screen = new VirtualScreen(width, height);
+        editor = new SimpleConsoleEditor(terminal, null, new PrintStream(screen, false, "UTF-8"));
+        //Lines of 20 to 120 characters, the line endings are normalized when the file is loaded.
+        File file = CorpusGenerator.generate(Corpus.CRLF, 1024 * 1024, 1);
+        try {
+            editor.open(file.getAbsolutePath());
+        } finally {
+            file.delete();
+        }
+        editor.activate();
+
+        List<String> keys = new ArrayList<String>();
+        switch (scenario) {
+            case SCROLLING:
+                for (int i = 0; i < 500; i++) {
+                    keys.add(DOWN);
+                }
+                for (int i = 0; i < 500; i++) {
+                    keys.add(UP);
+                }
+                break;
+            case TYPING:
+                execute(GO_TO + "5000" + NEW_LINE);
+                addTyped(keys, "The quick brown fox jumps over the lazy dog, again and again.\r");
+                break;
+            case PASTE:
+                execute(GO_TO + "5000" + NEW_LINE);
+                StringBuilder block = new StringBuilder();
+                for (int i = 0; i < 20; i++) {
+                    block.append("    if (line ").append(i).append(" < lines.size()) { editor.put(lines.get(").append(i).append(")); }\r");
+                }
+                addTyped(keys, block.toString());
+                break;
+            case SEARCH_HIGHLIGHT:
+                execute(FIND + "the" + NEW_LINE);
+                for (int i = 0; i < 500; i++) {
+                    keys.add(FIND_NEXT);
+                }
+                keys.add(GO_TO + "1" + NEW_LINE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+        keystrokes = new byte[keys.size()][];
+        for (int i = 0; i < keystrokes.length; i++) {
+            keystrokes[i] = keys.get(i).getBytes("UTF-8");
+        }
+    }
+
+    private static void addTyped(List<String> keys, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            keys.add(text.substring(i, i + 1));
+        }
+    }
+
+    private void execute(String keys) throws Exception {
+        terminal.type(keys);
+        editor.processOperation();
+    }
+
+    @Benchmark
+    public int keystroke(Output output) throws Exception {
+        long bytes = screen.getBytesWritten();
+        long escapeSequences = screen.getEscapeSequences();
+        terminal.type(keystrokes[next]);
+        next = (next + 1) % keystrokes.length;
+        editor.processOperation();
+        output.bytes += screen.getBytesWritten() - bytes;
+        output.escapeSequences += screen.getEscapeSequences() - escapeSequences;
+        output.keystrokes++;
+        return screen.getCursorRow();
+    }
+}
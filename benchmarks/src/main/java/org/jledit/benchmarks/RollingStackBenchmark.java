@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.benchmarks;
+
+import org.jledit.Coordinates;
+import org.jledit.collection.CoordinatesStack;
+import org.jledit.collection.RollingStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the stacks used for the undo history and the saved cursor positions.
+ * Each operation is a push followed by a pop on a full stack, which is what saveCursorPosition/restoreCursorPosition do
+ * on every redraw. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollingStackBenchmark {
+
+    private static final int CAPACITY = 100;
+
+    private LinkedListRollingStack<Coordinates> linkedListStack;
+    private RollingStack<Coordinates> ringBufferStack;
+    private CoordinatesStack coordinatesStack;
+    private Coordinates coordinates;
+    private int line;
+
+    @Setup
+    public void setUp() {
+        linkedListStack = new LinkedListRollingStack<Coordinates>(CAPACITY);
+        ringBufferStack = new RollingStack<Coordinates>(CAPACITY);
+        coordinatesStack = new CoordinatesStack(CAPACITY);
+        coordinates = new Coordinates(10, 20);
+        for (int i = 0; i < CAPACITY; i++) {
+            linkedListStack.push(coordinates);
+            ringBufferStack.push(coordinates);
+            coordinatesStack.push(10, 20);
+        }
+    }
+
+    @Benchmark
+    public Coordinates linkedList() {
+        linkedListStack.push(coordinates);
+        return linkedListStack.pop();
+    }
+
+    @Benchmark
+    public Coordinates ringBuffer() {
+        ringBufferStack.push(coordinates);
+        return ringBufferStack.pop();
+    }
+
+    @Benchmark
+    public long packedCoordinates() {
+        coordinatesStack.push(++line, 20);
+        return coordinatesStack.pop();
+    }
+
+    /**
+     * The way the cursor position used to be saved: a new {@link Coordinates} per push.
+     */
+    @Benchmark
+    public Coordinates linkedListWithAllocation() {
+        linkedListStack.push(new Coordinates(++line, 20));
+        return linkedListStack.pop();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.benchmarks;
+
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.jledit.utils.Closeables;
+import org.jledit.utils.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a file in place through an OutputStreamWriter with the atomic save through a temporary file.
+ * Each operation saves the whole content once, so the throughput in MB/s is the size divided by the score.
+ * The content is generated from a corpus and saved in the charset of the corpus, e.g. {@code -p corpus=SHIFT_JIS} to
+ * measure a multi byte encoder.
+ * The default size is 1 GB, which needs a heap of about 5 GB for the content and the encoder buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class SaveBenchmark {
+
+    @Param({"1024"})
+    private int sizeInMb;
+
+    @Param({"LOG"})
+    private Corpus corpus;
+
+    private String content;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        File generated = CorpusGenerator.generate(corpus, sizeInMb * 1024L * 1024L, 1);
+        try {
+            content = read(generated);
+        } finally {
+            generated.delete();
+        }
+        file = File.createTempFile("jledit-save-benchmark", ".txt");
+    }
+
+    /**
+     * Reads the generated file into a {@link StringBuilder} of the file size, which holds all the characters of the
+     * corpus charsets, so that the reading doesn't need more memory than the content itself.
+     *
+     * @param generated
+     * @return
+     * @throws IOException
+     */
+    private String read(File generated) throws IOException {
+        StringBuilder builder = new StringBuilder((int) generated.length());
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(generated), corpus.getCharset());
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                builder.append(buffer, 0, read);
+            }
+        } finally {
+            Closeables.closeQuitely(reader);
+        }
+        return builder.toString();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void inPlace() throws IOException {
+        Files.writeToFile(file, content, corpus.getCharset());
+    }
+
+    @Benchmark
+    public void atomic() throws IOException {
+        Files.writeToFileAtomically(file, content, corpus.getCharset());
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.benchmarks;
+
+import org.jledit.StringEditor;
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of {@link StringEditor} on files of different sizes, with very many short lines, lines of
+ * 20 to 120 characters with CRLF line endings, log lines and a few huge lines of minified JSON.
+ * Each edit is made at a random position, as jumping around the file is the worst case for the line tree. Each edit is
+ * followed by its inverse in the same invocation, so that edits don't pile up and e.g. deleting never runs out of
+ * content; the reported time is the time of both.
+ * The largest size needs a heap of about 10 GB for {@link #getContent()}, for a quick run use
+ * {@code -p sizeInKb=1,1024}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx12g"})
+public class StringEditorBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    @Param({"1", "1024", "1048576"})
+    private int sizeInKb;
+
+    @Param({"SHORT_LINES", "CRLF", "LOG", "MINIFIED_JSON"})
+    private Corpus corpus;
+
+    private StringEditor editor;
+    private final int[] lines = new int[POSITIONS];
+    private final int[] columns = new int[POSITIONS];
+    private int position;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = CorpusGenerator.generate(corpus, sizeInKb * 1024L, 1);
+        try {
+            editor = new StringEditor();
+            editor.open(file.getAbsolutePath());
+        } finally {
+            file.delete();
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < POSITIONS; i++) {
+            lines[i] = 1 + random.nextInt(editor.lines());
+            columns[i] = 1 + random.nextInt(editor.getContent(lines[i]).length() + 1);
+        }
+    }
+
+    private void moveToNextPosition() {
+        int index = position++ & (POSITIONS - 1);
+        editor.move(lines[index], columns[index]);
+    }
+
+    @Benchmark
+    public int move() {
+        moveToNextPosition();
+        return editor.getColumn();
+    }
+
+    @Benchmark
+    public int put() {
+        moveToNextPosition();
+        editor.put("x");
+        int column = editor.getColumn();
+        editor.backspace();
+        return column;
+    }
+
+    @Benchmark
+    public String delete() {
+        moveToNextPosition();
+        int lineCount = editor.lines();
+        String deleted = editor.delete();
+        //At the end of the content nothing is deleted.
+        if (!"\n".equals(deleted) || editor.lines() < lineCount) {
+            editor.put(deleted);
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    public String backspace() {
+        moveToNextPosition();
+        int line = editor.getLine();
+        int column = editor.getColumn();
+        if (column == 1 && line > 1) {
+            line--;
+            column = editor.getContent(line).length() + 2;
+        }
+        String deleted = editor.backspace();
+        if (!deleted.isEmpty()) {
+            editor.move(line, column - 1);
+            editor.put(deleted);
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    public int newLine() {
+        moveToNextPosition();
+        int line = editor.getLine();
+        int column = editor.getColumn();
+        editor.newLine();
+        int newLine = editor.getLine();
+        editor.move(line, column);
+        editor.delete();
+        return newLine;
+    }
+
+    @Benchmark
+    public int findNext() {
+        moveToNextPosition();
+        editor.findNext(CorpusGenerator.NEEDLE);
+        return editor.getLine();
+    }
+
+    @Benchmark
+    public String getContent() {
+        return editor.getContent();
+    }
+}
@@ -20,26 +20,41 @@ import jline.WindowsTerminal;
 import jline.console.KeyMap;
 import jline.console.Operation;
 import org.fusesource.jansi.Ansi;
-import org.jledit.collection.RollingStack;
+import org.jledit.collection.CoordinatesStack;
 import org.jledit.command.Command;
 import org.jledit.command.CommandFactory;
+import org.jledit.command.CommandNotFoundException;
+import org.jledit.command.undo.SnapshotCommand;
 import org.jledit.command.undo.UndoContext;
 import org.jledit.command.undo.UndoContextAware;
 import org.jledit.command.undo.UndoableCommand;
 import org.jledit.jline.InputStreamReader;
 import org.jledit.jline.NonBlockingInputStream;
+import org.jledit.metrics.CommandMetrics;
+import org.jledit.metrics.EditorMetrics;
+import org.jledit.metrics.LatencyHistogram;
+import org.jledit.metrics.TracedOperation;
+import org.jledit.metrics.Tracing;
+import org.jledit.search.AhoCorasick;
+import org.jledit.search.MatchSet;
+import org.jledit.session.SessionRecorder;
 import org.jledit.terminal.JlEditTerminalFactory;
 import org.jledit.theme.DefaultTheme;
+import org.jledit.theme.HighLightPalette;
 import org.jledit.theme.Theme;
 import org.jledit.utils.Closeables;
 import org.jledit.utils.JlEditConsole;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
-import java.util.Stack;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import static org.fusesource.jansi.Ansi.Erase;
 import static org.fusesource.jansi.Ansi.ansi;
@@ -55,8 +70,15 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     public static final int DEFAULT_ESCAPE_TIMEOUT = 100;
     public static final int READ_EXPIRED = -2;
 
+    private static final byte[] ERASE_LINE_FORWARD = {ESCAPE, '[', '0', 'K'};
+
     private final UndoContext undoContext = new UndoContext();
-    private final RollingStack<Coordinates> cursorPositions = new RollingStack<Coordinates>();
+    private final CoordinatesStack cursorPositions = new CoordinatesStack();
+    //Holds the escape sequence written by cursor(), the longest one is ESC[-2147483648;-2147483648H.
+    private final byte[] escapeBuffer = new byte[26];
+    //Reused by readOperation(), which runs for every key.
+    private final StringBuilder operationKeys = new StringBuilder();
+    private final StringBuilder pushBackKeys = new StringBuilder();
 
     //The line inside the scrolling frame.
     //Minimum value = 1 and maximum value = terminal height - getHeaderSize() - getFooterSize().
@@ -73,6 +95,11 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
     private String file;
     private String displayAs = "<no file>";
+    //Guards the screen against updates from background threads, while a command is executed.
+    private final Object screenLock = new Object();
+    private volatile SaveStatus saveStatus;
+    //The number of background saves that have not completed yet, guarded by the screen lock.
+    private int pendingSaves;
 
     private String title = EDITOR_NAME;
     private int headerSize = 1;
@@ -81,8 +108,23 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     private boolean isOpenEnabled = true;
 
     private String highLight;
+    private final List<String> highLights = new ArrayList<String>();
+    //Matches the search highlight (pattern 0) and all the highlight patterns in a single pass.
+    private AhoCorasick highLighter;
+    private String[] highLightStyles;
 
     private Editor<String> delegate = new StringEditor();
+    private SessionRecorder recorder;
+    private EditorMetrics metrics = new EditorMetrics();
+    private Closeable registration;
+    //Accumulated by the redraw, flush and input methods, a command records the difference over its execution.
+    private long redrawNanos;
+    private long flushNanos;
+    private long inputNanos;
+    //When the oldest key that is not displayed yet was received and the thread that read it.
+    private long pendingInputTime;
+    private Thread inputThread;
+    private boolean latencyOverlayEnabled;
     private Theme theme = new DefaultTheme();
 
     private final JlEditConsole console;
@@ -107,7 +149,10 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             this.in.shutdown();
         }
 
-        final InputStream wrapped = terminal.wrapInIfNeeded(System.in);
+        InputStream wrapped = terminal.wrapInIfNeeded(System.in);
+        if (recorder != null) {
+            wrapped = recorder.wrap(wrapped);
+        }
         this.in = new NonBlockingInputStream(wrapped, nonBlockingEnabled);
         this.reader = new InputStreamReader(this.in);
     }
@@ -117,18 +162,11 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
      * This methods actually creates the {@link Reader}.
      */
     public void start() {
-        running = true;
         try {
-            init();
-            show();
-            while (running) {
-                EditorOperation operation = readOperation();
-                if (operation != null) {
-                    Command cmd = create(operation);
-                    onCommand(cmd);
-                } else {
-                    break;
-                }
+            activate();
+            offerRecovery();
+            while (running && processOperation()) {
+                //noop
             }
         } catch (Exception e) {
             //noop.
@@ -136,14 +174,52 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     }
 
     /**
-     * Stops the editor.
+     * Initializes the input and shows the editor screen, without reading the user input.
+     * This allows driving the editor from the calling thread with {@link #processOperation()}, e.g. in a headless
+     * terminal.
+     *
+     * @throws Exception
+     */
+    public void activate() throws Exception {
+        running = true;
+        init();
+        show();
+    }
+
+    /**
+     * Reads the next operation from the user input and executes it.
+     *
+     * @return False if the user input has ended or is not bound to an operation.
+     * @throws IOException
+     * @throws CommandNotFoundException
+     */
+    public boolean processOperation() throws IOException, CommandNotFoundException {
+        EditorOperation operation = readOperation();
+        if (operation == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        onCommand(create(operation));
+        metrics.getInputLatency().record(System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Stops the editor, after the background saves complete.
      * The methods clears the editor screen and also closes in/out and {@link Reader}.
      */
     public void stop() {
+        try {
+            awaitSaves();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         hide();
         running = false;
         Closeables.closeQuitely(reader);
         Closeables.closeQuitely(in);
+        Closeables.closeQuitely(registration);
+        registration = null;
     }
 
     /**
@@ -164,10 +240,10 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         console.out().print("\33[" + 1 + ";" + terminal.getHeight() + ";r");
         //Erase screen doesn't behave well on windows.
         for (int l = 1; l <= terminal.getHeight(); l++) {
-            console.out().print(ansi().cursor(l, 1));
-            console.out().print(ansi().eraseLine(Erase.FORWARD));
+            cursor(l, 1);
+            eraseLine();
         }
-        console.out().print(ansi().cursor(1, 1));
+        cursor(1, 1);
         flush();
         try {
             terminal.restore();
@@ -184,7 +260,26 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
      */
     @Override
     public int read() throws IOException {
-        return reader.read();
+        long start = System.nanoTime();
+        try {
+            int c = reader.read();
+            if (c != -1 && pendingInputTime == 0) {
+                pendingInputTime = in.getReceiveTime();
+                inputThread = Thread.currentThread();
+            }
+            return c;
+        } finally {
+            inputNanos += System.nanoTime() - start;
+        }
+    }
+
+    private int peek(long timeout) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return in.peek(timeout);
+        } finally {
+            inputNanos += System.nanoTime() - start;
+        }
     }
 
     /**
@@ -217,10 +312,10 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             style.fg(getTheme().getPromptForeground());
         }
         for (int i = 1; i <= getFooterSize(); i++) {
-            console.out().print(ansi().cursor(terminal.getHeight() - getFooterSize() + i, 1));
+            cursor(terminal.getHeight() - getFooterSize() + i, 1);
             console.out().print(style.eraseLine(Ansi.Erase.FORWARD));
         }
-        console.out().print(ansi().cursor(terminal.getHeight(), 1));
+        cursor(terminal.getHeight(), 1);
         console.out().print(style.a(message).bold().eraseLine(Ansi.Erase.FORWARD));
         restoreCursorPosition();
         flush();
@@ -288,11 +383,11 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             style.fg(getTheme().getPromptForeground());
         }
         for (int i = 1; i <= getFooterSize(); i++) {
-            console.out().print(ansi().cursor(terminal.getHeight() - getFooterSize() + i, 1));
+            cursor(terminal.getHeight() - getFooterSize() + i, 1);
             console.out().print(style.eraseLine(Ansi.Erase.FORWARD));
         }
-        console.out().print(ansi().cursor(terminal.getHeight(), 1));
-        console.out().print(ansi().cursor(terminal.getHeight(), 1));
+        cursor(terminal.getHeight(), 1);
+        cursor(terminal.getHeight(), 1);
         console.out().print(style.a(message).bold().eraseLine(Ansi.Erase.FORWARD));
         flush();
         try {
@@ -307,10 +402,18 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
 
     protected EditorOperation readOperation() throws IOException {
-        StringBuilder sb = new StringBuilder();
-        Stack<Character> pushBackChar = new Stack<Character>();
+        StringBuilder sb = operationKeys;
+        StringBuilder pushBackChar = pushBackKeys;
+        sb.setLength(0);
+        pushBackChar.setLength(0);
         while (true) {
-            int c = pushBackChar.isEmpty() ? reader.read() : pushBackChar.pop();
+            int c;
+            if (pushBackChar.length() == 0) {
+                c = read();
+            } else {
+                c = pushBackChar.charAt(pushBackChar.length() - 1);
+                pushBackChar.setLength(pushBackChar.length() - 1);
+            }
             if (c == -1) {
                 return null;
             }
@@ -325,9 +428,9 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
             if (o instanceof KeyMap) {
                 if (c == ESCAPE
-                        && pushBackChar.isEmpty()
+                        && pushBackChar.length() == 0
                         && in.isNonBlockingEnabled()
-                        && in.peek(escapeTimeout) == READ_EXPIRED) {
+                        && peek(escapeTimeout) == READ_EXPIRED) {
                     o = ((KeyMap) o).getAnotherKey();
                     if (o == null || o instanceof KeyMap) {
                         continue;
@@ -347,7 +450,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                     if (o == null) {
                         continue;
                     } else {
-                        pushBackChar.push((char) c);
+                        pushBackChar.append((char) c);
                     }
                 }
             }
@@ -361,19 +464,52 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     }
 
     public void onCommand(Command command) {
-        try {
-            if (UndoContextAware.class.isAssignableFrom(command.getClass())) {
-                ((UndoContextAware) command).setUndoContext(undoContext);
-            } else if (UndoableCommand.class.isAssignableFrom(command.getClass())) {
-                undoContext.undoPush((UndoableCommand) command);
-            }
-            command.execute();
-            if (running) {
-                redrawCoords();
-                flush();
+        synchronized (screenLock) {
+            Object trace = Tracing.begin(TracedOperation.COMMAND);
+            long generation = trace != null ? getGeneration() : 0;
+            long start = System.nanoTime();
+            long redrawStart = redrawNanos;
+            long flushStart = flushNanos;
+            long inputStart = inputNanos;
+            try {
+                if (UndoContextAware.class.isAssignableFrom(command.getClass())) {
+                    ((UndoContextAware) command).setUndoContext(undoContext);
+                }
+                boolean undoable = UndoableCommand.class.isAssignableFrom(command.getClass());
+                //A completed save is only reported until the next change.
+                if (undoable && saveStatus != SaveStatus.SAVING && saveStatus != SaveStatus.JOURNAL_FAILED) {
+                    saveStatus = null;
+                }
+                EditorSnapshot before = undoable && undoContext.isSnapshotEnabled() ? snapshot() : null;
+                command.execute();
+                //Pushed after the execution, so that the size of the undo data is known.
+                if (before != null) {
+                    undoContext.undoPush(new SnapshotCommand(this, command.getClass().asSubclass(UndoableCommand.class), before, snapshot()));
+                } else if (undoable) {
+                    undoContext.undoPush((UndoableCommand) command);
+                }
+                //A failed journal is reported until a save or open starts a new one.
+                if (undoable && saveStatus != SaveStatus.SAVING && (saveStatus == SaveStatus.JOURNAL_FAILED) != isJournalFailed()) {
+                    updateSaveStatus(saveStatus == SaveStatus.JOURNAL_FAILED ? null : SaveStatus.JOURNAL_FAILED);
+                }
+                if (running) {
+                    long redrawCoordsStart = System.nanoTime();
+                    redrawCoords();
+                    redrawNanos += System.nanoTime() - redrawCoordsStart;
+                    flush();
+                }
+            } catch (Exception ex) {
+                metrics.getCommand(command.getClass()).recordError(ex);
+            } finally {
+                long redraw = redrawNanos - redrawStart;
+                long flush = flushNanos - flushStart;
+                long execution = System.nanoTime() - start - redraw - flush - (inputNanos - inputStart);
+                CommandMetrics commandMetrics = metrics.getCommand(command.getClass());
+                commandMetrics.record(execution, redraw, flush);
+                if (trace != null) {
+                    Tracing.end(trace, commandMetrics.getName(), getGeneration() - generation, 0);
+                }
             }
-        } catch (Exception ex) {
-            //noop.
         }
     }
 
@@ -382,85 +518,97 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
      * Repaints the whole screen.
      */
     void repaintScreen() {
-        int repaintLine = 1;
-        console.out().print(ansi().eraseScreen(Erase.ALL));
-        console.out().print(ansi().cursor(1, 1));
-        console.out().print("\33[" + (getHeaderSize() + 1) + ";" + (terminal.getHeight() - getFooterSize()) + ";r");
-        redrawHeader();
-        redrawFooter();
-        LinkedList<String> linesToDisplay = new LinkedList<String>();
-        int l = 1;
-        while (linesToDisplay.size() < terminal.getHeight() - getFooterSize()) {
-            String currentLine = getContent(l++);
-            linesToDisplay.addAll(toDisplayLines(currentLine));
-        }
+        Object trace = Tracing.begin(TracedOperation.RENDER);
+        long start = System.nanoTime();
+        try {
+            int repaintLine = 1;
+            console.out().print(ansi().eraseScreen(Erase.ALL));
+            cursor(1, 1);
+            console.out().print("\33[" + (getHeaderSize() + 1) + ";" + (terminal.getHeight() - getFooterSize()) + ";r");
+            redrawHeader();
+            redrawFooter();
+            LinkedList<String> linesToDisplay = new LinkedList<String>();
+            int l = 1;
+            while (linesToDisplay.size() < terminal.getHeight() - getFooterSize()) {
+                String currentLine = getContent(l++);
+                linesToDisplay.addAll(toDisplayLines(currentLine));
+            }
 
-        for (int i = 0; i < terminal.getHeight() - getHeaderSize() - getFooterSize(); i++) {
-            console.out().print(ansi().cursor(repaintLine + getHeaderSize(), 1));
-            displayText(linesToDisplay.get(i));
-            repaintLine++;
+            for (int i = 0; i < terminal.getHeight() - getHeaderSize() - getFooterSize(); i++) {
+                cursor(repaintLine + getHeaderSize(), 1);
+                displayText(linesToDisplay.get(i));
+                repaintLine++;
+            }
+            cursor(2, 1);
+        } finally {
+            redrawNanos += System.nanoTime() - start;
+            if (trace != null) {
+                Tracing.end(trace, "screen", terminal.getHeight() - getHeaderSize() - getFooterSize(), 0);
+            }
         }
-        console.out().print(ansi().cursor(2, 1));
     }
 
     /**
      * Redraws the rest of the multi line.
      */
     void redrawRestOfLine() {
-        //The number of lines to reach the end of the frame.
-        int maxLinesToRepaint = terminal.getHeight() - getFooterSize() - frameLine;
-        LinkedList<String> toRepaintLines = new LinkedList<String>();
-        String currentLine = getContent(getLine());
-        toRepaintLines.addAll(toDisplayLines(currentLine));
-        //Remove already shown lines
-        int remainingLines = (getColumn() - 1) / terminal.getWidth();
-        for (int r = 0; r < remainingLines; r++) {
-            toRepaintLines.removeFirst();
-        }
-
-        saveCursorPosition();
-        for (int l = 0; l < Math.min(maxLinesToRepaint, toRepaintLines.size()); l++) {
-            console.out().print(ansi().cursor(frameLine + getHeaderSize() + l, 1));
-            console.out().print(ansi().eraseLine(Erase.FORWARD));
-            displayText(toRepaintLines.get(l));
+        Object trace = Tracing.begin(TracedOperation.RENDER);
+        long start = System.nanoTime();
+        try {
+            //The number of lines to reach the end of the frame.
+            int maxLinesToRepaint = terminal.getHeight() - getFooterSize() - frameLine;
+            String currentLine = getContent(getLine());
+            //Skip already shown lines
+            int offset = (getColumn() - 1) / terminal.getWidth() * terminal.getWidth();
+
+            saveCursorPosition();
+            for (int l = 0; l < maxLinesToRepaint && offset < Math.max(1, currentLine.length()); l++) {
+                cursor(frameLine + getHeaderSize() + l, 1);
+                eraseLine();
+                displayText(toDisplayLine(currentLine, offset));
+                offset += terminal.getWidth();
+            }
+            restoreCursorPosition();
+        } finally {
+            redrawNanos += System.nanoTime() - start;
+            if (trace != null) {
+                Tracing.end(trace, "rest of line", terminal.getHeight() - getFooterSize() - frameLine, 0);
+            }
         }
-        restoreCursorPosition();
     }
 
     /**
      * Redraws content from the current line to the end of the frame.
      */
     void redrawRestOfScreen() {
-        int linesToRepaint = terminal.getHeight() - getFooterSize() - frameLine;
-        LinkedList<String> toRepaintLines = new LinkedList<String>();
-        String currentLine = getContent(getLine());
-        toRepaintLines.addAll(toDisplayLines(currentLine));
-        //Remove already shown lines
-        int remainingLines = Math.max(0, getColumn() - 1) / terminal.getWidth();
-        for (int r = 0; r < remainingLines; r++) {
-            toRepaintLines.removeFirst();
-        }
-
-        boolean eof = false;
-        for (int l = 1; toRepaintLines.size() < linesToRepaint && !eof; l++) {
-            try {
-                toRepaintLines.addAll(toDisplayLines(getContent(getLine() + l)));
-            } catch (Exception e) {
-                eof = true;
+        Object trace = Tracing.begin(TracedOperation.RENDER);
+        long start = System.nanoTime();
+        try {
+            int linesToRepaint = terminal.getHeight() - getFooterSize() - frameLine;
+            int line = getLine();
+            String content = getContent(line);
+            //Skip already shown lines
+            int offset = Math.max(0, getColumn() - 1) / terminal.getWidth() * terminal.getWidth();
+
+            saveCursorPosition();
+            for (int l = 0; l < linesToRepaint; l++) {
+                //Every line takes at least one display line, even if it is empty.
+                while (offset > 0 && offset >= content.length()) {
+                    content = getContent(++line);
+                    offset = 0;
+                }
+                cursor(frameLine + getHeaderSize() + l, 1);
+                eraseLine();
+                displayText(toDisplayLine(content, offset));
+                offset += terminal.getWidth();
             }
-        }
-
-        saveCursorPosition();
-        for (int l = 0; l < linesToRepaint; l++) {
-            console.out().print(ansi().cursor(frameLine + getHeaderSize() + l, 1));
-            console.out().print(ansi().eraseLine(Erase.FORWARD));
-            if (toRepaintLines.size() > l) {
-                displayText(toRepaintLines.get(l));
-            } else {
-                displayText("");
+            restoreCursorPosition();
+        } finally {
+            redrawNanos += System.nanoTime() - start;
+            if (trace != null) {
+                Tracing.end(trace, "rest of screen", terminal.getHeight() - getFooterSize() - frameLine, 0);
             }
         }
-        restoreCursorPosition();
     }
 
     public void redrawText() {
@@ -513,27 +661,24 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     }
 
     public void moveUp(int offset) {
-        LinkedList<String> toDisplayLines = new LinkedList<String>();
-        for (int i = 0; i < offset; i++) {
-            toDisplayLines.clear();
+        for (int i = 0; i < offset && getLine() > 1; i++) {
             String currentLine = getContent(getLine());
-            toDisplayLines.addAll(toDisplayLines(currentLine));
-            //Remove already shown lines
-            int remainingLines = toDisplayLines.size() - getColumn() / terminal.getWidth();
-            for (int r = 0; r < remainingLines; r++) {
-                toDisplayLines.removeLast();
-            }
+            //Keep the lines before the cursor
+            int shownLines = Math.min(getColumn() / terminal.getWidth(), toDisplayLineCount(currentLine));
             delegate.move(getLine() - 1, getColumn());
-            currentLine = getContent(getLine());
-            toDisplayLines.addAll(toDisplayLines(currentLine));
-            for (int l = toDisplayLines.size() - 1; l >= 0; l--) {
+            String previousLine = getContent(getLine());
+            for (int l = shownLines + toDisplayLineCount(previousLine) - 1; l >= 0; l--) {
                 frameLine--;
                 if (frameLine <= 0) {
                     frameLine = 1;
                     scrollDown(1);
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
-                    displayText(toDisplayLines.get(l));
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
+                    cursor(frameLine + getHeaderSize(), 1);
+                    if (l < shownLines) {
+                        displayText(toDisplayLine(currentLine, l * terminal.getWidth()));
+                    } else {
+                        displayText(toDisplayLine(previousLine, (l - shownLines) * terminal.getWidth()));
+                    }
+                    cursor(frameLine + getHeaderSize(), getColumn());
                 }
 
                 int actualColumn = getColumn();
@@ -541,33 +686,31 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                     actualColumn -= terminal.getWidth();
                 }
                 frameColumn = actualColumn;
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+                cursor(frameLine + getHeaderSize(), frameColumn);
             }
         }
     }
 
     public void moveDown(int offset) {
-        LinkedList<String> toDisplayLines = new LinkedList<String>();
         for (int i = 0; i < offset; i++) {
-            toDisplayLines.clear();
-            String currentLine = getContent(getLine());
-            toDisplayLines.addAll(toDisplayLines(currentLine));
-            //Remove already shown lines
-            int remainingLines = getColumn() / terminal.getWidth() + 1;
-            for (int r = 0; r < remainingLines; r++) {
-                toDisplayLines.removeFirst();
-            }
+            String previousLine = getContent(getLine());
+            int displayLines = toDisplayLineCount(previousLine);
+            //Skip already shown lines
+            int shownLines = Math.min(getColumn() / terminal.getWidth() + 1, displayLines);
             delegate.move(getLine() + 1, getColumn());
-            currentLine = getContent(getLine());
-            toDisplayLines.add(toDisplayLines(currentLine).getFirst());
-            for (int l = 0; l < toDisplayLines.size(); l++) {
+            String currentLine = getContent(getLine());
+            for (int l = shownLines; l <= displayLines; l++) {
                 frameLine++;
                 if (frameLine >= terminal.getHeight() - getFooterSize()) {
                     frameLine = terminal.getHeight() - getHeaderSize() - getFooterSize();
                     scrollUp(1);
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
-                    displayText(toDisplayLines.get(l));
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
+                    cursor(frameLine + getHeaderSize(), 1);
+                    if (l < displayLines) {
+                        displayText(toDisplayLine(previousLine, l * terminal.getWidth()));
+                    } else {
+                        displayText(toDisplayLine(currentLine, 0));
+                    }
+                    cursor(frameLine + getHeaderSize(), getColumn());
                 }
 
                 int actualColumn = getColumn();
@@ -575,7 +718,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                     actualColumn -= terminal.getWidth();
                 }
                 frameColumn = actualColumn;
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+                cursor(frameLine + getHeaderSize(), frameColumn);
             }
         }
     }
@@ -629,7 +772,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                 delegate.move(getLine(), getColumn() - 1);
             }
         }
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
     public void moveRight(int offset) {
@@ -654,9 +797,9 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                 if (frameLine >= terminal.getHeight() - getFooterSize()) {
                     frameLine = terminal.getHeight() - getHeaderSize() - getFooterSize();
                     scrollUp(1);
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
+                    cursor(frameLine + getHeaderSize(), 1);
                     displayText(toDisplayLines.get(0));
-                    console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
+                    cursor(frameLine + getHeaderSize(), getColumn());
                 }
                 delegate.move(getLine(), getColumn() + 1);
             } else {
@@ -664,7 +807,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                 delegate.move(getLine(), getColumn() + 1);
             }
         }
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
     /**
@@ -685,12 +828,12 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             if (frameLine >= terminal.getHeight() - getFooterSize()) {
                 frameLine = terminal.getHeight() - getHeaderSize() - getFooterSize();
                 scrollUp(1);
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
+                cursor(frameLine + getHeaderSize(), 1);
                 displayText(toDisplayLines.get(l));
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
+                cursor(frameLine + getHeaderSize(), getColumn());
             }
         }
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
     /**
@@ -710,12 +853,12 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             if (frameLine <= 0) {
                 frameLine = 1;
                 scrollDown(1);
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
+                cursor(frameLine + getHeaderSize(), 1);
                 displayText(toDisplayLines.get(l));
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
+                cursor(frameLine + getHeaderSize(), getColumn());
             }
         }
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
 
@@ -761,8 +904,8 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             frameColumn += str.length();
             if (frameColumn > terminal.getWidth()) {
                 int current = (startingFromColumn - 1) / terminal.getWidth();
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
-                console.out().print(ansi().eraseLine(Erase.FORWARD));
+                cursor(frameLine + getHeaderSize(), 1);
+                eraseLine();
                 displayText(toDisplayLines.get(current));
                 frameLine += frameColumn / terminal.getWidth();
                 frameColumn -= str.length();
@@ -783,13 +926,52 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                 frameColumn -= terminal.getWidth();
             }
 
-            console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+            cursor(frameLine + getHeaderSize(), frameColumn);
+        }
+    }
+
+    @Override
+    public String getRange(int fromLine, int fromColumn, int toLine, int toColumn) {
+        return delegate.getRange(fromLine, fromColumn, toLine, toColumn);
+    }
+
+    @Override
+    public String deleteRange(int fromLine, int fromColumn, int toLine, int toColumn) {
+        return replaceRange(fromLine, fromColumn, toLine, toColumn, "");
+    }
+
+    /**
+     * Replaces the text between two positions with a single redraw of the affected part of the screen.
+     *
+     * @param fromLine
+     * @param fromColumn
+     * @param toLine
+     * @param toColumn
+     * @param str
+     * @return The replaced text.
+     */
+    @Override
+    public String replaceRange(int fromLine, int fromColumn, int toLine, int toColumn, String str) {
+        if (toLine < fromLine || (toLine == fromLine && toColumn < fromColumn)) {
+            return replaceRange(toLine, toColumn, fromLine, fromColumn, str);
         }
+        move(fromLine, fromColumn);
+        int startLine = getLine();
+        int startColumn = getColumn();
+        String replaced = delegate.replaceRange(fromLine, fromColumn, toLine, toColumn, str);
+        int targetLine = getLine();
+        int targetColumn = getColumn();
+        //Redraw from the start of the range and then move the cursor to its target.
+        delegate.move(startLine, startColumn);
+        redrawRestOfScreen();
+        move(targetLine, targetColumn);
+        cursor(frameLine + getHeaderSize(), frameColumn);
+        return replaced;
     }
 
     @Override
     public String delete() {
-        console.out().print(ansi().eraseLine(Erase.FORWARD));
+        eraseLine();
         String r = delegate.delete();
         if (r.equals(NEW_LINE) || r.equals(CARRIEGE_RETURN)) {
             redrawRestOfScreen();
@@ -824,14 +1006,17 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
                 scrollDown(1);
             }
             //Redraw previous line
-            console.out().print(ansi().cursor(frameLine + getHeaderSize(), 1));
-            console.out().print(ansi().eraseLine(Erase.FORWARD));
+            cursor(frameLine + getHeaderSize(), 1);
+            eraseLine();
             displayText(toDisplayLines.get(multiLineNumber - 1));
             //Redraw current line
-            console.out().print(ansi().cursor(frameLine + 2, 1));
-            console.out().print(ansi().eraseLine(Erase.FORWARD));
-            displayText(toDisplayLines.get(multiLineNumber));
-            console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+            cursor(frameLine + 2, 1);
+            eraseLine();
+            //A line that fills the width exactly has no display line after the cursor.
+            if (multiLineNumber < toDisplayLines.size()) {
+                displayText(toDisplayLines.get(multiLineNumber));
+            }
+            cursor(frameLine + getHeaderSize(), frameColumn);
 
             redrawRestOfScreen();
         } else {
@@ -840,15 +1025,15 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
             frameColumn--;
             //If we have a a simple line.
             if (currentLine.length() < terminal.getWidth()) {
-                console.out().print(ansi().cursor(frameLine + getHeaderSize(), getColumn()));
-                console.out().print(ansi().eraseLine(Erase.FORWARD));
+                cursor(frameLine + getHeaderSize(), getColumn());
+                eraseLine();
                 String modifiedLine = getContent(getLine());
                 displayText(modifiedLine.substring(getColumn() - 1));
                 //Line is multi line and we will need to swift chars.
             } else {
                 redrawRestOfScreen();
             }
-            console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+            cursor(frameLine + getHeaderSize(), frameColumn);
         }
         return b;
     }
@@ -856,7 +1041,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
     @Override
     public void newLine() {
         delegate.newLine();
-        console.out().print(ansi().eraseLine(Erase.FORWARD));
+        eraseLine();
         frameColumn = 1;
         frameLine++;
         if (frameLine > terminal.getHeight() - getHeaderSize() - getFooterSize()) {
@@ -865,7 +1050,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
         }
         redrawRestOfScreen();
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
     @Override
@@ -878,7 +1063,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         }
         delegate.mergeLine();
         redrawRestOfScreen();
-        console.out().print(ansi().cursor(frameLine + getHeaderSize(), frameColumn));
+        cursor(frameLine + getHeaderSize(), frameColumn);
     }
 
     /**
@@ -926,6 +1111,83 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         redrawText();
     }
 
+    /**
+     * Finds all appearances of the String and highlights them.
+     *
+     * @param str
+     * @return The number of matches.
+     */
+    @Override
+    public int findAll(String str) {
+        highLight(str);
+        return delegate.findAll(str);
+    }
+
+    @Override
+    public MatchSet getMatches() {
+        return delegate.getMatches();
+    }
+
+    /**
+     * Replaces all appearances of the String and repaints the screen once.
+     *
+     * @param str
+     * @param replacement
+     * @return
+     */
+    @Override
+    public LinePatch replaceAll(String str, String replacement) {
+        int startLine = getLine();
+        int startColumn = getColumn();
+        moveToStartOfLine();
+        LinePatch undo = delegate.replaceAll(str, replacement);
+        move(startLine, startColumn);
+        redrawText();
+        return undo;
+    }
+
+    @Override
+    public LinePatch applyPatch(LinePatch patch) {
+        int startLine = getLine();
+        int startColumn = getColumn();
+        moveToStartOfLine();
+        LinePatch undo = delegate.applyPatch(patch);
+        move(startLine, startColumn);
+        redrawText();
+        return undo;
+    }
+
+    @Override
+    public EditorSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * Restores a snapshot and repaints the screen from the first line that changed.
+     * Nothing is repainted if the content of the snapshot is the same, e.g. if only the cursor differs.
+     *
+     * @param snapshot
+     */
+    @Override
+    public void restore(EditorSnapshot snapshot) {
+        int firstChanged = delegate.snapshot().firstDifference(snapshot);
+        if (firstChanged < 0) {
+            int line = getLine();
+            int column = getColumn();
+            delegate.restore(snapshot);
+            delegate.move(line, column);
+            move(snapshot.getLine(), snapshot.getColumn());
+            return;
+        }
+        move(Math.min(firstChanged, lines()), 1);
+        int startLine = getLine();
+        delegate.restore(snapshot);
+        delegate.move(startLine, 1);
+        redrawRestOfScreen();
+        move(snapshot.getLine(), snapshot.getColumn());
+        cursor(frameLine + getHeaderSize(), frameColumn);
+    }
+
     protected void scrollUp(int rows) {
         //Windows Terminals don't support scrolling.
         if (WindowsTerminal.class.isAssignableFrom(terminal.getClass())) {
@@ -950,12 +1212,61 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
      * @param text
      */
     protected void displayText(String text) {
-        if (highLight != null && !highLight.isEmpty() && text.contains(highLight)) {
-            String highLightedText = text.replaceAll(highLight, ansi().bold().bg(theme.getHighLightBackground()).fg(theme.getHighLightForeground()).a(highLight).boldOff().reset().toString());
-            console.out().print(highLightedText);
-        } else {
+        AhoCorasick automaton = getHighLighter();
+        int[] matches = automaton != null ? automaton.find(text) : null;
+        if (matches == null || matches.length == 0) {
             console.out().print(text);
+        } else {
+            String reset = ansi().boldOff().reset().toString();
+            int position = 0;
+            for (int m = 0; m < matches.length; m += 3) {
+                int start = matches[m];
+                int end = start + matches[m + 1];
+                console.out().print(text.substring(position, start));
+                console.out().print(highLightStyles[matches[m + 2]]);
+                console.out().print(text.substring(start, end));
+                console.out().print(reset);
+                position = end;
+            }
+            console.out().print(text.substring(position));
+        }
+    }
+
+    /**
+     * Returns the automaton that matches the text to highlight.
+     * The automaton is rebuilt lazily when the highlights or the {@link Theme} change.
+     *
+     * @return The automaton or null if there is nothing to highlight.
+     */
+    private AhoCorasick getHighLighter() {
+        if (highLighter == null && ((highLight != null && !highLight.isEmpty()) || !highLights.isEmpty())) {
+            List<String> patterns = new ArrayList<String>();
+            patterns.add(highLight != null ? highLight : "");
+            patterns.addAll(highLights);
+            highLightStyles = new String[patterns.size()];
+            highLightStyles[0] = highLightStyle(theme.getHighLightBackground(), theme.getHighLightForeground());
+            for (int i = 0; i < highLights.size(); i++) {
+                if (theme instanceof HighLightPalette) {
+                    HighLightPalette palette = (HighLightPalette) theme;
+                    highLightStyles[i + 1] = highLightStyle(palette.getHighLightBackground(i), palette.getHighLightForeground(i));
+                } else {
+                    highLightStyles[i + 1] = highLightStyles[0];
+                }
+            }
+            highLighter = new AhoCorasick(patterns);
         }
+        return highLighter;
+    }
+
+    private static String highLightStyle(Ansi.Color background, Ansi.Color foreground) {
+        Ansi style = ansi().bold();
+        if (background != null) {
+            style.bg(background);
+        }
+        if (foreground != null) {
+            style.fg(foreground);
+        }
+        return style.toString();
     }
 
     /**
@@ -972,32 +1283,133 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
     @Override
     public void saveCursorPosition() {
-        cursorPositions.push(new Coordinates(frameLine, frameColumn));
+        cursorPositions.push(frameLine, frameColumn);
     }
 
     @Override
     public void restoreCursorPosition() {
-        Coordinates coordinates = cursorPositions.pop();
-        if (coordinates != null) {
-            console.out().print(ansi().cursor(coordinates.getLine() + getHeaderSize(), coordinates.getColumn()));
+        long coordinates = cursorPositions.pop();
+        if (coordinates != CoordinatesStack.EMPTY) {
+            cursor(CoordinatesStack.line(coordinates) + getHeaderSize(), CoordinatesStack.column(coordinates));
+        }
+    }
+
+    /**
+     * Moves the cursor of the terminal.
+     * Writes the same bytes as {@code ansi().cursor(row, column)}, without allocating on every redraw.
+     *
+     * @param row
+     * @param column
+     */
+    protected void cursor(int row, int column) {
+        synchronized (escapeBuffer) {
+            int length = 0;
+            escapeBuffer[length++] = ESCAPE;
+            escapeBuffer[length++] = '[';
+            length = appendNumber(row, length);
+            escapeBuffer[length++] = ';';
+            length = appendNumber(column, length);
+            escapeBuffer[length++] = 'H';
+            console.out().write(escapeBuffer, 0, length);
+        }
+    }
+
+    /**
+     * Erases the terminal line from the cursor to the end, like {@code ansi().eraseLine(Erase.FORWARD)}.
+     */
+    protected void eraseLine() {
+        console.out().write(ERASE_LINE_FORWARD, 0, ERASE_LINE_FORWARD.length);
+    }
+
+    private int appendNumber(int number, int index) {
+        long value = number;
+        if (value < 0) {
+            escapeBuffer[index++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = index + digits - 1; i >= index; i--) {
+            escapeBuffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
         }
+        return index + digits;
     }
 
     public void flush() {
+        Object trace = Tracing.begin(TracedOperation.FLUSH);
+        long start = System.nanoTime();
         console.out().flush();
+        long elapsed = System.nanoTime() - start;
+        Tracing.end(trace, null, 0, 0);
+        flushNanos += elapsed;
+        metrics.getFlushTime().record(elapsed);
+        //Only the thread that reads the input displays its effect, other threads flush status updates.
+        if (pendingInputTime != 0 && Thread.currentThread() == inputThread) {
+            metrics.getDisplayLatency().record(System.nanoTime() - pendingInputTime);
+            pendingInputTime = 0;
+        }
     }
 
     protected void highLight(String text) {
         this.highLight = text;
+        this.highLighter = null;
+    }
+
+    @Override
+    public void addHighLight(String pattern) {
+        if (pattern != null && !pattern.isEmpty() && !highLights.contains(pattern)) {
+            highLights.add(pattern);
+            highLighter = null;
+        }
+    }
+
+    @Override
+    public void removeHighLight(String pattern) {
+        if (highLights.remove(pattern)) {
+            highLighter = null;
+        }
+    }
+
+    @Override
+    public List<String> getHighLights() {
+        return Collections.unmodifiableList(highLights);
     }
 
     @Override
     public void open(String source, String displayAs) throws IOException {
         this.displayAs = displayAs;
         this.file = source;
+        long start = System.nanoTime();
         delegate.open(source);
+        metrics.getOpenTime().record(System.nanoTime() - start);
         this.frameLine = 1;
         this.frameColumn = 1;
+        if (running) {
+            offerRecovery();
+        }
+    }
+
+    /**
+     * Asks the user whether to recover the unsaved changes of a previous session, if the journal of the file has any.
+     *
+     * @throws IOException
+     */
+    private void offerRecovery() throws IOException {
+        if (!(delegate instanceof StringEditor) || !((StringEditor) delegate).hasRecoverableJournal()) {
+            return;
+        }
+        StringEditor editor = (StringEditor) delegate;
+        if (readBoolean("Unsaved changes from a previous session were found. Do you want to recover them? [Y/n]", true)) {
+            if (editor.recoverJournal()) {
+                redrawText();
+                redrawHeader();
+            }
+        } else {
+            editor.discardJournal();
+        }
     }
 
     @Override
@@ -1007,6 +1419,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
     @Override
     public void save(String target) throws IOException {
+        long start = System.nanoTime();
         if (target != null) {
             this.file = target;
             delegate.save(target);
@@ -1014,13 +1427,106 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         } else {
             delegate.save(this.file);
         }
+        metrics.getSaveTime().record(System.nanoTime() - start);
         setDirty(false);
     }
 
+    /**
+     * Saves in the background and reports the progress in the header.
+     *
+     * @param target   The target or null to save to the current source.
+     * @param listener Notified from the background thread, when the save completes.
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public Future<?> saveAsync(String target, final SaveListener listener) throws IOException {
+        if (target != null) {
+            this.file = target;
+            displayAs = target;
+        }
+        //Reported before the save starts, as the listener may be notified before saveAsync returns.
+        synchronized (screenLock) {
+            pendingSaves++;
+            updateSaveStatus(SaveStatus.SAVING);
+        }
+        final long start = System.nanoTime();
+        try {
+            return delegate.saveAsync(this.file, new SaveListener() {
+                @Override
+                public void saved(String target) {
+                    metrics.getSaveTime().record(System.nanoTime() - start);
+                    saveCompleted(SaveStatus.SAVED);
+                    if (listener != null) {
+                        listener.saved(target);
+                    }
+                }
+
+                @Override
+                public void failed(String target, IOException cause) {
+                    saveCompleted(SaveStatus.SAVE_FAILED);
+                    if (listener != null) {
+                        listener.failed(target, cause);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            saveCompleted(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until the background saves complete.
+     * The screen lock is released while waiting, so that commands can wait for the saves to report their status.
+     *
+     * @throws InterruptedException
+     */
+    public void awaitSaves() throws InterruptedException {
+        synchronized (screenLock) {
+            while (pendingSaves > 0) {
+                screenLock.wait();
+            }
+        }
+    }
+
+    private void saveCompleted(SaveStatus status) {
+        synchronized (screenLock) {
+            pendingSaves--;
+            updateSaveStatus(status);
+            screenLock.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the status of the last background save, {@link SaveStatus#JOURNAL_FAILED} if the changes are not
+     * journaled or null.
+     *
+     * @return
+     */
+    public SaveStatus getSaveStatus() {
+        return saveStatus;
+    }
+
+    private boolean isJournalFailed() {
+        return delegate instanceof StringEditor && ((StringEditor) delegate).getJournalFailure() != null;
+    }
+
+    private void updateSaveStatus(SaveStatus status) {
+        synchronized (screenLock) {
+            saveStatus = status;
+            if (running) {
+                redrawHeader();
+                flush();
+            }
+        }
+    }
+
 
     @Override
     public void close() throws IOException {
         try {
+            awaitSaves();
             delegate.close();
             file = null;
         } catch (Exception e) {
@@ -1052,6 +1558,30 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         return file;
     }
 
+    /**
+     * Returns the number of terminal lines that display a line, the same as {@code toDisplayLines(line).size()}.
+     *
+     * @param line
+     * @return
+     */
+    private int toDisplayLineCount(String line) {
+        return line.length() <= terminal.getWidth() ? 1 : (line.length() - 1) / terminal.getWidth() + 1;
+    }
+
+    /**
+     * Returns the part of a line that is displayed in one line of the terminal.
+     *
+     * @param line   The content of the line.
+     * @param offset The index of the first character, a multiple of the terminal width.
+     * @return
+     */
+    private String toDisplayLine(String line, int offset) {
+        if (line.length() <= terminal.getWidth()) {
+            return offset == 0 ? line : "";
+        }
+        return line.substring(offset, Math.min(offset + terminal.getWidth(), line.length()));
+    }
+
     /**
      * Creates a list of lines that represent how the line will be displayed on screen.
      *
@@ -1140,6 +1670,7 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
 
     public void setTheme(Theme theme) {
         this.theme = theme;
+        this.highLighter = null;
     }
 
     public UndoContext getUndoContext() {
@@ -1178,6 +1709,81 @@ public abstract class AbstractConsoleEditor implements ConsoleEditor, CommandFac
         this.displayAs = displayAs;
     }
 
+    public SessionRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Sets the recorder of the user input, which takes effect when the editor is started.
+     *
+     * @param recorder The recorder or null to stop recording.
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Returns the timings and errors of the commands executed by the editor.
+     *
+     * @return
+     */
+    public EditorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics to record to, e.g. to share them between editors.
+     *
+     * @param metrics
+     */
+    public void setMetrics(EditorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the number of changes to the lines of the content, if the delegate is a {@link StringEditor}.
+     *
+     * @return
+     */
+    private long getGeneration() {
+        return delegate instanceof StringEditor ? ((StringEditor) delegate).getGeneration() : 0;
+    }
+
+    public boolean isLatencyOverlayEnabled() {
+        return latencyOverlayEnabled;
+    }
+
+    /**
+     * Enables showing the latency from receiving a key to displaying its effect in the header.
+     *
+     * @param latencyOverlayEnabled
+     */
+    public void setLatencyOverlayEnabled(boolean latencyOverlayEnabled) {
+        this.latencyOverlayEnabled = latencyOverlayEnabled;
+    }
+
+    /**
+     * Returns the text that shows the display latency percentiles in the header or null if the overlay is disabled.
+     *
+     * @return
+     */
+    protected String getLatencyOverlay() {
+        if (!latencyOverlayEnabled) {
+            return null;
+        }
+        LatencyHistogram latency = metrics.getDisplayLatency();
+        return String.format("p50:%.1fms p99:%.1fms", latency.getValueAtPercentile(50) / 1000000d, latency.getValueAtPercentile(99) / 1000000d);
+    }
+
+    /**
+     * Sets a registration of the editor, e.g. a management bean, that is closed when the editor stops.
+     *
+     * @param registration
+     */
+    public void setRegistration(Closeable registration) {
+        this.registration = registration;
+    }
+
     public JlEditConsole getConsole() {
         return console;
     }
@@ -16,6 +16,7 @@ package org.jledit;
 
 
 import jline.Terminal;
+import org.jledit.metrics.EditorSession;
 import org.jledit.utils.Resources;
 
 import java.io.InputStream;
@@ -31,8 +32,10 @@ public class ConcreteEditorFactory implements EditorFactory {
 
     private static final String DEFAULT_FLAVOR = "simple";
     private static final String RESOURCE_PATH = "META-INF/services/org/jledit/";
+    public static final String MANAGEMENT_PROPERTY = "jledit.jmx";
 
     private final Map<String, Class<? extends ConsoleEditor>> flavorMap = new HashMap<String, Class<? extends ConsoleEditor>>();
+    private boolean managementEnabled = Boolean.getBoolean(MANAGEMENT_PROPERTY);
 
 
     /**
@@ -96,16 +99,21 @@ public class ConcreteEditorFactory implements EditorFactory {
     public ConsoleEditor create(String flavor, Terminal terminal, InputStream in, PrintStream out) throws EditorInitializationException {
         if (flavorMap.containsKey(flavor)) {
             Class<? extends ConsoleEditor> editorClass = flavorMap.get(flavor);
+            ConsoleEditor editor;
             try {
-                return instantiate(editorClass, terminal, in, out);
+                editor = instantiate(editorClass, terminal, in, out);
             } catch (Exception e) {
                 throw new EditorInitializationException("Failed to create Editor instance of class:" + editorClass.getName(), e);
             }
+            if (managementEnabled && editor instanceof AbstractConsoleEditor) {
+                register((AbstractConsoleEditor) editor);
+            }
+            return editor;
         } else {
             Class<? extends ConsoleEditor> editorClass = resolve(flavor);
             if (editorClass != null) {
                 flavorMap.put(flavor, editorClass);
-                return create(flavor, terminal);
+                return create(flavor, terminal, in, out);
             } else {
                 throw new EditorInitializationException("Unknown flavor:" + flavor);
             }
@@ -156,6 +164,36 @@ public class ConcreteEditorFactory implements EditorFactory {
         return (ConsoleEditor) constructor.newInstance(terminal, in , out);
     }
 
+    /**
+     * Registers the management bean of the editor.
+     * Management is optional, so the editor is still usable if the registration fails, e.g. without javax.management.
+     *
+     * @param editor
+     */
+    private void register(AbstractConsoleEditor editor) {
+        try {
+            EditorSession.register(editor);
+        } catch (Exception e) {
+            //noop
+        } catch (LinkageError e) {
+            //noop
+        }
+    }
+
+    public boolean isManagementEnabled() {
+        return managementEnabled;
+    }
+
+    /**
+     * Enables registering a management bean with the statistics of each created editor.
+     * Defaults to the jledit.jmx system property.
+     *
+     * @param managementEnabled
+     */
+    public void setManagementEnabled(boolean managementEnabled) {
+        this.managementEnabled = managementEnabled;
+    }
+
     /**
      * Binds the specified flavor to the specified class.
      *
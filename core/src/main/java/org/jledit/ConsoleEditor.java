@@ -18,6 +18,7 @@ import jline.Terminal;
 import org.jledit.theme.Theme;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface ConsoleEditor extends Editor<String>, InputReader, LifeCycle {
 
@@ -139,6 +140,28 @@ public interface ConsoleEditor extends Editor<String>, InputReader, LifeCycle {
      */
     Theme getTheme();
 
+    /**
+     * Adds a pattern that will be highlighted wherever it appears.
+     * Each pattern gets its own colors from the {@link Theme}.
+     *
+     * @param pattern
+     */
+    void addHighLight(String pattern);
+
+    /**
+     * Removes a highlight pattern.
+     *
+     * @param pattern
+     */
+    void removeHighLight(String pattern);
+
+    /**
+     * Returns the highlight patterns.
+     *
+     * @return
+     */
+    List<String> getHighLights();
+
     /**
      * Returns the {@link ConsoleEditor} title.
      *
@@ -14,10 +14,12 @@
 
 package org.jledit;
 
+import org.jledit.search.MatchSet;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Future;
 
 /**
  * The Editor interface describes all the text manipulation methods.
@@ -47,6 +49,17 @@ public interface Editor<C> extends Closeable {
      */
     void save(String target) throws IOException;
 
+    /**
+     * Saves a snapshot of the content in the background and returns immediately.
+     * Changes made while the save is running are not saved and keep the editor dirty.
+     *
+     * @param target   The target or null to save to the current source.
+     * @param listener Notified from the background thread, when the save completes.
+     * @return
+     * @throws IOException If there is no target to save to.
+     */
+    Future<?> saveAsync(String target, SaveListener listener) throws IOException;
+
     /**
      * Returns the number of the current line.
      * This method refers to the actual line in the file.
@@ -113,6 +126,41 @@ public interface Editor<C> extends Closeable {
      */
     String backspace();
 
+    /**
+     * Returns the text between two positions.
+     * The start position is inclusive and the end position is exclusive, lines are separated with {@link #NEW_LINE}.
+     *
+     * @param fromLine
+     * @param fromColumn
+     * @param toLine
+     * @param toColumn
+     * @return
+     */
+    String getRange(int fromLine, int fromColumn, int toLine, int toColumn);
+
+    /**
+     * Deletes the text between two positions and moves the cursor to the start position.
+     *
+     * @param fromLine
+     * @param fromColumn
+     * @param toLine
+     * @param toColumn
+     * @return The deleted text.
+     */
+    String deleteRange(int fromLine, int fromColumn, int toLine, int toColumn);
+
+    /**
+     * Replaces the text between two positions and moves the cursor to the end of the replacement.
+     *
+     * @param fromLine
+     * @param fromColumn
+     * @param toLine
+     * @param toColumn
+     * @param str
+     * @return The replaced text.
+     */
+    String replaceRange(int fromLine, int fromColumn, int toLine, int toColumn, String str);
+
     /**
      * Adds a new line to the current position.
      */
@@ -146,6 +194,55 @@ public interface Editor<C> extends Closeable {
      */
     void findPrevious(String str);
 
+    /**
+     * Finds all appearances of the String.
+     * The matches are kept up to date while editing and {@link #findNext(String)} and {@link #findPrevious(String)}
+     * use them to navigate, as long as they search for the same String.
+     *
+     * @param str The String to find or null to discard the current matches.
+     * @return The number of matches.
+     */
+    int findAll(String str);
+
+    /**
+     * Returns the matches of the last call to {@link #findAll(String)}.
+     *
+     * @return The matches or null.
+     */
+    MatchSet getMatches();
+
+    /**
+     * Replaces all appearances of the String in a single batch.
+     * The cursor stays on the same line.
+     *
+     * @param str         The String to replace.
+     * @param replacement The replacement, which should not contain line breaks.
+     * @return A {@link LinePatch} that reverts the replacement when applied.
+     */
+    LinePatch replaceAll(String str, String replacement);
+
+    /**
+     * Replaces the content of the lines in the {@link LinePatch}.
+     *
+     * @param patch
+     * @return A {@link LinePatch} that reverts the changes when applied.
+     */
+    LinePatch applyPatch(LinePatch patch);
+
+    /**
+     * Takes a snapshot of the content and the cursor position.
+     *
+     * @return
+     */
+    EditorSnapshot snapshot();
+
+    /**
+     * Replaces the content and the cursor position with the ones of the snapshot.
+     *
+     * @param snapshot
+     */
+    void restore(EditorSnapshot snapshot);
+
     /**
      * Marks that the editor has unsaved changes.
      *
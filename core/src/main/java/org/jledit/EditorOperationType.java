@@ -46,6 +46,7 @@ public enum EditorOperationType {
     FIND,
     FIND_NEXT,
     FIND_PREVIOUS,
+    REPLACE_ALL,
     GOTO
 
 }
@@ -0,0 +1,74 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import org.jledit.collection.PersistentLineList;
+
+/**
+ * An immutable copy of the content and cursor of an {@link Editor}.
+ * The content shares its structure with the editor, so taking a snapshot is cheap and a snapshot only costs the lines
+ * that change after it was taken.
+ */
+public class EditorSnapshot {
+
+    private final PersistentLineList lines;
+    private final int line;
+    private final int column;
+
+    public EditorSnapshot(PersistentLineList lines, int line, int column) {
+        this.lines = lines;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Returns the content of the snapshot.
+     *
+     * @return
+     */
+    public PersistentLineList getLines() {
+        return lines;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the first line (starting from 1) whose content differs between the two snapshots.
+     *
+     * @param other
+     * @return The line number or -1 if the content is the same.
+     */
+    public int firstDifference(EditorSnapshot other) {
+        int index = lines.firstDifference(other.lines);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * Returns the estimated memory in bytes, that the snapshot doesn't share with the base snapshot.
+     *
+     * @param base
+     * @return
+     */
+    public long getMemoryUsage(EditorSnapshot base) {
+        return lines.getMemoryUsage(base.lines);
+    }
+}
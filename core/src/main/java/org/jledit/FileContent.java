@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import org.jledit.collection.PersistentLineList;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * The lines of a file as they were loaded or saved, along with their terminators, the byte order mark of the file and
+ * the position of each line in the file.
+ * Lines that are still the same in the editor can be copied from the file as bytes, instead of being encoded again.
+ */
+public class FileContent {
+
+    private final File file;
+    private final Charset charset;
+    private final byte[] bom;
+    private final PersistentLineList lines;
+    private final LineTerminators terminators;
+    private final long[] offsets;
+    private final long length;
+    private final long lastModified;
+
+    /**
+     * Creates the content of a file.
+     *
+     * @param file
+     * @param charset
+     * @param bom         The byte order mark at the start of the file, empty if there is none.
+     * @param lines       The lines.
+     * @param terminators The terminator of each line.
+     * @param offsets     The position of the first byte of each line, followed by the length of the file.
+     *                    Null if the positions are not known.
+     */
+    public FileContent(File file, Charset charset, byte[] bom, PersistentLineList lines, LineTerminators terminators, long[] offsets) {
+        this.file = file;
+        this.charset = charset;
+        this.bom = bom;
+        this.lines = lines;
+        this.terminators = terminators;
+        this.offsets = offsets;
+        this.length = file.length();
+        this.lastModified = file.lastModified();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public byte[] getBom() {
+        return bom;
+    }
+
+    public PersistentLineList getLines() {
+        return lines;
+    }
+
+    public LineTerminators getTerminators() {
+        return terminators;
+    }
+
+    /**
+     * Returns the position in the file of the first byte of a line.
+     *
+     * @param index The index of the line (starting from 0) or the number of lines for the length of the file.
+     * @return
+     */
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    public boolean hasOffsets() {
+        return offsets != null;
+    }
+
+    public boolean isTerminated() {
+        return terminators.getLast() != LineTerminators.NONE;
+    }
+
+    /**
+     * Checks if the file has not been modified since it was loaded or saved.
+     *
+     * @return
+     */
+    public boolean isCurrent() {
+        return file.isFile() && file.length() == length && file.lastModified() == lastModified;
+    }
+}
@@ -14,18 +14,40 @@
 
 package org.jledit;
 
+import org.jledit.collection.PersistentLineList;
+import org.jledit.utils.Closeables;
 import org.jledit.utils.Files;
+import org.jledit.utils.internal.ChannelEncoder;
 import org.jledit.utils.internal.Charsets;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A {@link ContentManager} implementation for saving and loading from {@link File}.
  */
 public class FileContentManager implements ContentManager {
 
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] NO_BOM = new byte[0];
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF_16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF_16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+    private boolean atomicSaveEnabled = true;
+    private boolean incrementalSaveEnabled = true;
+
     /**
      * Loads content from the specified location.
      *
@@ -50,7 +72,11 @@ public class FileContentManager implements ContentManager {
     public boolean save(String content, Charset charset, String location) {
         File file = new File(location);
         try {
-            Files.writeToFile(file, content, charset);
+            if (atomicSaveEnabled) {
+                Files.writeToFileAtomically(file, content, charset);
+            } else {
+                Files.writeToFile(file, content, charset);
+            }
         } catch (IOException ex) {
             return false;
         }
@@ -69,10 +95,376 @@ public class FileContentManager implements ContentManager {
         return save(content, Charsets.UTF_8, location);
     }
 
+    public boolean isAtomicSaveEnabled() {
+        return atomicSaveEnabled;
+    }
+
+    /**
+     * Enables/disables saving through a temporary file, that replaces the target once it is completely written.
+     * Without it the target is truncated and rewritten in place, which is not safe against crashes but keeps the
+     * identity of the file, e.g. its hard links.
+     *
+     * @param atomicSaveEnabled
+     */
+    public void setAtomicSaveEnabled(boolean atomicSaveEnabled) {
+        this.atomicSaveEnabled = atomicSaveEnabled;
+    }
+
     @Override
     public Charset detectCharset(String location) {
         return Charsets.detect(new File(location));
     }
 
+    public boolean isIncrementalSaveEnabled() {
+        return incrementalSaveEnabled;
+    }
+
+    /**
+     * Enables/disables copying the unchanged lines from the file, when saving {@link FileContent}.
+     * Incremental saves only apply to atomic saves, as the file being replaced is the source of the copied lines.
+     *
+     * @param incrementalSaveEnabled
+     */
+    public void setIncrementalSaveEnabled(boolean incrementalSaveEnabled) {
+        this.incrementalSaveEnabled = incrementalSaveEnabled;
+    }
+
+    /**
+     * Loads the lines of a file in a single pass, recording the terminator of each line and the byte order mark.
+     * Lines are terminated by \r\n, \n or \r. The position of each line in the file is only recorded for charsets that
+     * encode line terminators as single ASCII bytes.
+     *
+     * @param location
+     * @param charset
+     * @return
+     * @throws IOException
+     */
+    public FileContent loadContent(String location, Charset charset) throws IOException {
+        File file = new File(location);
+        byte[] bom = readBom(file, charset);
+        Charset encoding = encodingOf(charset, bom);
+        List<String> lines = new ArrayList<String>();
+        LineTerminators terminators = new LineTerminators();
+        long[] offsets = null;
+        InputStream in = new FileInputStream(file);
+        try {
+            for (long skipped = 0; skipped < bom.length; ) {
+                skipped += in.skip(bom.length - skipped);
+            }
+            if (isAsciiCompatible(encoding)) {
+                offsets = readLines(in, bom.length, encoding, lines, terminators);
+            } else {
+                readLines(new InputStreamReader(in, encoding), lines, terminators);
+            }
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+        PersistentLineList content = new PersistentLineList();
+        content.addAll(lines);
+        return new FileContent(file, charset, bom, content.snapshot(), terminators, offsets);
+    }
+
+    /**
+     * Reads lines from bytes, decoding each line separately.
+     *
+     * @return The position of each line, followed by the length of the file.
+     */
+    private static long[] readLines(InputStream in, long position, Charset charset, List<String> lines, LineTerminators terminators) throws IOException {
+        long[] offsets = new long[1024];
+        long lineOffset = position;
+        boolean pendingCr = false;
+        ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (pendingCr) {
+                    pendingCr = false;
+                    if (b == '\n') {
+                        terminators.add(LineTerminators.CRLF);
+                        start = i + 1;
+                        lineOffset = position + i + 1;
+                        continue;
+                    }
+                    terminators.add(LineTerminators.CR);
+                }
+                if (b != '\n' && b != '\r') {
+                    continue;
+                }
+                String line;
+                if (partialLine.size() == 0) {
+                    line = new String(buffer, start, i - start, charset);
+                } else {
+                    partialLine.write(buffer, start, i - start);
+                    line = new String(partialLine.toByteArray(), charset);
+                    partialLine.reset();
+                }
+                offsets = addLine(lines, offsets, line, lineOffset);
+                if (b == '\n') {
+                    terminators.add(LineTerminators.LF);
+                } else {
+                    pendingCr = true;
+                }
+                start = i + 1;
+                lineOffset = position + i + 1;
+            }
+            partialLine.write(buffer, start, read - start);
+            position += read;
+        }
+        if (pendingCr) {
+            terminators.add(LineTerminators.CR);
+        } else if (partialLine.size() > 0 || lines.isEmpty()) {
+            offsets = addLine(lines, offsets, new String(partialLine.toByteArray(), charset), lineOffset);
+            terminators.add(LineTerminators.NONE);
+        }
+        offsets[lines.size()] = position;
+        return offsets;
+    }
+
+    /**
+     * Reads lines from characters, for charsets that don't encode line terminators as single bytes.
+     */
+    private static void readLines(Reader reader, List<String> lines, LineTerminators terminators) throws IOException {
+        boolean pendingCr = false;
+        StringBuilder partialLine = new StringBuilder();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) > 0) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (pendingCr) {
+                    pendingCr = false;
+                    if (c == '\n') {
+                        terminators.add(LineTerminators.CRLF);
+                        start = i + 1;
+                        continue;
+                    }
+                    terminators.add(LineTerminators.CR);
+                }
+                if (c != '\n' && c != '\r') {
+                    continue;
+                }
+                partialLine.append(buffer, start, i - start);
+                lines.add(partialLine.toString());
+                partialLine.setLength(0);
+                if (c == '\n') {
+                    terminators.add(LineTerminators.LF);
+                } else {
+                    pendingCr = true;
+                }
+                start = i + 1;
+            }
+            partialLine.append(buffer, start, read - start);
+        }
+        if (pendingCr) {
+            terminators.add(LineTerminators.CR);
+        } else if (partialLine.length() > 0 || lines.isEmpty()) {
+            lines.add(partialLine.toString());
+            terminators.add(LineTerminators.NONE);
+        }
+    }
+
+    /**
+     * Saves lines to a file, with the byte order mark and line terminators of the content they were loaded from.
+     * Lines that replaced lines of the base get their terminator, other new lines get the most common terminator.
+     * If the lines were loaded from the same file and the file has not been modified since, only the lines between the
+     * first and the last change are encoded. The lines before and after them are copied from the file.
+     *
+     * @param base     The content the lines were loaded from or null.
+     * @param lines    The lines to save, which should not be modified during the save.
+     * @param charset
+     * @param location
+     * @return The content of the saved file.
+     * @throws IOException
+     */
+    public FileContent saveContent(FileContent base, final PersistentLineList lines, Charset charset, String location) throws IOException {
+        File file = new File(location);
+        int size = lines.size();
+        final long[] offsets = new long[size + 1];
+        final LineTerminators terminators = new LineTerminators();
+        final byte[] bom = base != null && base.getCharset().equals(charset) ? base.getBom() : NO_BOM;
+        final Charset encoding = encodingOf(charset, bom);
+        if (base == null) {
+            terminators.add(LineTerminators.LF, size);
+        } else {
+            PersistentLineList baseLines = base.getLines();
+            int baseSize = baseLines.size();
+            int first = lines.firstDifference(baseLines);
+            if (first < 0) {
+                first = size;
+            }
+            int common = lines.commonSuffix(baseLines, Math.min(size, baseSize) - first);
+            //When lines were appended or removed at the end, the new last line takes the terminator of the old one.
+            if (common == 0 && first > 0 && (first == size) != (first == baseSize)) {
+                first--;
+            }
+            addTerminators(base.getTerminators(), first, common, size, terminators);
+
+            if (atomicSaveEnabled && incrementalSaveEnabled && base.hasOffsets()
+                    && base.getCharset().equals(charset) && base.isCurrent()) {
+                final FileContent source = base;
+                final int firstChanged = first;
+                final int unchanged = common;
+                Files.writeToFileAtomically(file, new Files.ChannelWriter() {
+                    @Override
+                    public void write(FileChannel channel) throws IOException {
+                        writeIncrementally(source, lines, firstChanged, unchanged, terminators, offsets, new ChannelEncoder(channel, encoding));
+                    }
+                });
+                return new FileContent(file, charset, bom, lines, terminators, offsets);
+            }
+        }
+
+        Files.ChannelWriter writer = new Files.ChannelWriter() {
+            @Override
+            public void write(FileChannel channel) throws IOException {
+                ChannelEncoder encoder = new ChannelEncoder(channel, encoding);
+                encoder.write(bom);
+                writeLines(lines, 0, lines.size(), terminators, offsets, encoder);
+                offsets[lines.size()] = encoder.position();
+                encoder.finish();
+            }
+        };
+        if (atomicSaveEnabled) {
+            Files.writeToFileAtomically(file, writer);
+        } else {
+            FileOutputStream fos = new FileOutputStream(file);
+            try {
+                writer.write(fos.getChannel());
+            } finally {
+                Closeables.closeQuitely(fos);
+            }
+        }
+        return new FileContent(file, charset, bom, lines, terminators, isAsciiCompatible(encoding) ? offsets : null);
+    }
+
+    /**
+     * Adds the terminators of lines, that share a prefix and a suffix with the lines of the base.
+     * Only the last line is allowed to have no terminator.
+     */
+    private static void addTerminators(LineTerminators base, int first, int common, int size, LineTerminators terminators) {
+        int baseSize = base.size();
+        byte fallback = base.getDefault();
+        terminators.addAll(base, 0, first);
+        for (int i = first; i < size - common; i++) {
+            byte terminator = i < baseSize - common ? base.get(i) : fallback;
+            if (i == size - 1) {
+                terminator = base.getLast();
+            } else if (terminator == LineTerminators.NONE) {
+                terminator = fallback;
+            }
+            terminators.add(terminator);
+        }
+        terminators.addAll(base, baseSize - common, baseSize);
+    }
+
+    /**
+     * Copies the lines before the first and after the last change from the file and encodes the lines in between.
+     */
+    private static void writeIncrementally(FileContent base, PersistentLineList lines, int first, int common, LineTerminators terminators,
+                                           long[] offsets, ChannelEncoder encoder) throws IOException {
+        int size = lines.size();
+        int baseSize = base.getLines().size();
+        int firstCopied = baseSize - common;
+        FileInputStream in = new FileInputStream(base.getFile());
+        try {
+            FileChannel source = in.getChannel();
+            //The byte order mark is copied along with the first lines.
+            encoder.transferFrom(source, 0, base.getOffset(first));
+            for (int i = 0; i < first; i++) {
+                offsets[i] = base.getOffset(i);
+            }
+            writeLines(lines, first, size - common, terminators, offsets, encoder);
+            long shift = encoder.position() - base.getOffset(firstCopied);
+            encoder.transferFrom(source, base.getOffset(firstCopied), base.getOffset(baseSize) - base.getOffset(firstCopied));
+            for (int i = 0; i <= common; i++) {
+                offsets[size - common + i] = base.getOffset(firstCopied + i) + shift;
+            }
+            encoder.finish();
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+    }
+
+    private static void writeLines(List<String> lines, int from, int to, LineTerminators terminators, long[] offsets, ChannelEncoder encoder) throws IOException {
+        for (int i = from; i < to; i++) {
+            offsets[i] = encoder.position();
+            encoder.write(lines.get(i));
+            encoder.write(LineTerminators.toString(terminators.get(i)));
+        }
+    }
+
+    /**
+     * Adds a line, growing the offsets as needed.
+     */
+    private static long[] addLine(List<String> lines, long[] offsets, String line, long lineOffset) {
+        if (offsets.length < lines.size() + 2) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[lines.size()] = lineOffset;
+        lines.add(line);
+        return offsets;
+    }
 
+    /**
+     * Returns the byte order mark the file starts with, if it matches the charset.
+     */
+    private static byte[] readBom(File file, Charset charset) throws IOException {
+        byte[] start = new byte[3];
+        int length = 0;
+        InputStream in = new FileInputStream(file);
+        try {
+            int read;
+            while (length < start.length && (read = in.read(start, length, start.length - length)) > 0) {
+                length += read;
+            }
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+        String name = charset.name();
+        if (name.equals("UTF-8") && startsWith(start, length, UTF_8_BOM)) {
+            return UTF_8_BOM;
+        } else if ((name.equals("UTF-16") || name.equals("UTF-16BE")) && startsWith(start, length, UTF_16BE_BOM)) {
+            return UTF_16BE_BOM;
+        } else if ((name.equals("UTF-16") || name.equals("UTF-16LE")) && startsWith(start, length, UTF_16LE_BOM)) {
+            return UTF_16LE_BOM;
+        }
+        return NO_BOM;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the charset to decode and encode the lines with, which doesn't read or write a byte order mark itself.
+     */
+    private static Charset encodingOf(Charset charset, byte[] bom) {
+        if (!charset.name().equals("UTF-16")) {
+            return charset;
+        }
+        return Charset.forName(bom == UTF_16LE_BOM ? "UTF-16LE" : "UTF-16BE");
+    }
+
+    /**
+     * Checks if the charset encodes ASCII characters, including the line terminators, as single bytes.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        try {
+            return Arrays.equals("a\n\r".getBytes(charset.name()), new byte[]{'a', '\n', '\r'});
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
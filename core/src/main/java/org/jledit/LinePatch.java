@@ -0,0 +1,90 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit;
+
+import org.jledit.utils.Strings;
+
+/**
+ * The new content of a set of lines, sorted by line number.
+ * A patch only replaces the content of existing lines, so applying it never shifts lines and the inverse of a patch
+ * is just the previous content of the same lines.
+ */
+public class LinePatch {
+
+    public static final LinePatch EMPTY = new LinePatch(new int[0], new String[0]);
+
+    private final int[] lines;
+    private final String[] contents;
+
+    /**
+     * Creates a patch.
+     *
+     * @param lines    The line numbers (starting from 1) in ascending order.
+     * @param contents The new content of each line.
+     */
+    public LinePatch(int[] lines, String[] contents) {
+        if (lines.length != contents.length) {
+            throw new IllegalArgumentException("Lines and contents should have the same length.");
+        }
+        this.lines = lines;
+        this.contents = contents;
+    }
+
+    /**
+     * Returns the number of lines in the patch.
+     *
+     * @return
+     */
+    public int size() {
+        return lines.length;
+    }
+
+    public boolean isEmpty() {
+        return lines.length == 0;
+    }
+
+    /**
+     * Returns the line number of the entry with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Returns the content of the entry with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public String getContent(int index) {
+        return contents[index];
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the patch.
+     *
+     * @return
+     */
+    public long getMemoryUsage() {
+        long usage = 48 + 8L * lines.length;
+        for (String content : contents) {
+            usage += Strings.sizeOf(content);
+        }
+        return usage;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import java.util.Arrays;
+
+/**
+ * The line terminators of a sequence of lines, stored as runs of equal terminators.
+ * Most files use a single terminator, so this takes a few bytes regardless of the number of lines.
+ */
+public class LineTerminators {
+
+    public static final byte NONE = 0;
+    public static final byte LF = 1;
+    public static final byte CR = 2;
+    public static final byte CRLF = 3;
+
+    private static final String[] STRINGS = {"", "\n", "\r", "\r\n"};
+
+    private byte[] terminators = new byte[4];
+    //The index after the last line of each run.
+    private int[] ends = new int[4];
+    private int runs;
+    private final int[] counts = new int[STRINGS.length];
+
+    /**
+     * Returns the characters of a terminator.
+     *
+     * @param terminator
+     * @return
+     */
+    public static String toString(byte terminator) {
+        return STRINGS[terminator];
+    }
+
+    public void add(byte terminator) {
+        add(terminator, 1);
+    }
+
+    /**
+     * Adds the terminator of the specified number of lines.
+     *
+     * @param terminator
+     * @param count
+     */
+    public void add(byte terminator, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (runs > 0 && terminators[runs - 1] == terminator) {
+            ends[runs - 1] += count;
+        } else {
+            if (runs == ends.length) {
+                terminators = Arrays.copyOf(terminators, runs * 2);
+                ends = Arrays.copyOf(ends, runs * 2);
+            }
+            terminators[runs] = terminator;
+            ends[runs] = size() + count;
+            runs++;
+        }
+        counts[terminator] += count;
+    }
+
+    /**
+     * Adds the terminators of a range of lines of an other instance, a run at a time.
+     *
+     * @param source
+     * @param from   The index of the first line (inclusive).
+     * @param to     The index of the last line (exclusive).
+     */
+    public void addAll(LineTerminators source, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int run = source.runOf(from);
+        for (int index = from; index < to; run++) {
+            int end = Math.min(source.ends[run], to);
+            add(source.terminators[run], end - index);
+            index = end;
+        }
+    }
+
+    /**
+     * Returns the terminator of a line.
+     *
+     * @param index The index of the line (starting from 0).
+     * @return
+     */
+    public byte get(int index) {
+        return terminators[runOf(index)];
+    }
+
+    /**
+     * Returns the terminator of the last line or {@link #NONE} if there are no lines.
+     *
+     * @return
+     */
+    public byte getLast() {
+        return runs > 0 ? terminators[runs - 1] : NONE;
+    }
+
+    /**
+     * Returns the most common terminator, to be used for new lines.
+     *
+     * @return
+     */
+    public byte getDefault() {
+        byte result = LF;
+        for (byte terminator = LF; terminator < counts.length; terminator++) {
+            if (counts[terminator] > counts[result]) {
+                result = terminator;
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return runs > 0 ? ends[runs - 1] : 0;
+    }
+
+    private int runOf(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int low = 0;
+        int high = runs - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import java.io.IOException;
+
+/**
+ * Receives the result of a save that runs in the background.
+ */
+public interface SaveListener {
+
+    /**
+     * Notifies that the content was saved.
+     *
+     * @param target
+     */
+    void saved(String target);
+
+    /**
+     * Notifies that the save failed.
+     *
+     * @param target
+     * @param cause
+     */
+    void failed(String target, IOException cause);
+}
@@ -0,0 +1,53 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit;
+
+/**
+ * The status of the background saves, shown in the header of the editor.
+ */
+public enum SaveStatus {
+
+    /**
+     * A save is in progress.
+     */
+    SAVING("Saving..."),
+    /**
+     * The last save completed.
+     */
+    SAVED("Saved"),
+    /**
+     * The last save failed.
+     */
+    SAVE_FAILED("Save failed"),
+    /**
+     * The changes are not journaled, until a save or open starts a new journal.
+     */
+    JOURNAL_FAILED("Journal failed");
+
+    private final String text;
+
+    private SaveStatus(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Returns the text shown in the header.
+     *
+     * @return
+     */
+    public String getText() {
+        return text;
+    }
+}
@@ -15,10 +15,28 @@
 package org.jledit;
 
 
+import org.jledit.collection.PersistentLineList;
+import org.jledit.metrics.TracedOperation;
+import org.jledit.metrics.Tracing;
+import org.jledit.recovery.EditJournal;
+import org.jledit.recovery.LineChangeHandler;
+import org.jledit.search.MatchSet;
+import org.jledit.search.TrigramIndex;
+import org.jledit.utils.internal.Parallel;
+
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An {@link org.jledit.Editor} implementation for {@link String} objects.
@@ -29,9 +47,24 @@ public class StringEditor implements Editor<String> {
     private Charset charset = Charset.defaultCharset();
     private int line = 1;
     private int column = 1;
-    private Boolean dirty = false;
-    private final LinkedList<String> lines = new LinkedList<String>();
+    //Cleared by the save thread and read by the input thread without the editor lock.
+    private volatile boolean dirty;
+    private final PersistentLineList lines = new PersistentLineList();
     private ContentManager contentManager = new FileContentManager();
+    private TrigramIndex searchIndex;
+    private MatchSet matches;
+    private boolean journalEnabled;
+    private boolean journalSyncEnabled;
+    private EditJournal journal;
+    private File recoverableJournal;
+    private IOException journalFailure;
+    //Counts the modifications of the content, so that a background save can tell if it saved the latest content.
+    private long generation;
+    //Counts the opened sources, so that a background save doesn't affect a source opened after it started.
+    private long sourceGeneration;
+    private ExecutorService saveExecutor;
+    //The content of the file as it was loaded or last saved, used to write only the modified lines on save.
+    private FileContent fileContent;
 
     public StringEditor() {
         lines.add("");
@@ -112,23 +145,9 @@ public class StringEditor implements Editor<String> {
     @Override
     public synchronized void put(String str) {
         while (lines() < line) {
-            lines.add("");
-        }
-        String currentLine = lines.remove(line - 1);
-        String beforePut = currentLine.substring(0, column - 1);
-        String afterPut = column - 1 < currentLine.length() ? currentLine.substring(column - 1) : "";
-        String[] modifiedContent = (beforePut + str + afterPut).split("\n|\r");
-        if (modifiedContent.length == 1) {
-            lines.add(line - 1, modifiedContent[0]);
-            column += str.length();
-        } else {
-            String lastLine = null;
-            for (String l : modifiedContent) {
-                lines.add(line++ - 1, l);
-                lastLine = l;
-            }
-            column = lastLine.length() - afterPut.length();
+            insertLine(lines() + 1, "");
         }
+        replaceRange(line, column, line, column, str);
     }
 
     @Override
@@ -137,17 +156,17 @@ public class StringEditor implements Editor<String> {
             this.column = 1;
             return "\n";
         }
-        String currentLine = lines.remove(line - 1);
+        String currentLine = lines.get(line - 1);
         if (column - 1 == currentLine.length()) {
             String nextLine = "";
-            if (lines() >= line) {
-                nextLine = lines.remove(line - 1);
+            if (lines() > line) {
+                nextLine = removeLine(line + 1);
             }
-            lines.add(line - 1, currentLine + nextLine);
+            replaceLine(line, currentLine.length() + 1, 0, nextLine);
             return "\n";
         } else if (column - 1 < currentLine.length()) {
             String deleted = currentLine.substring(column - 1, column);
-            lines.add(line - 1, currentLine.substring(0, column - 1) + currentLine.substring(column));
+            replaceLine(line, column, 1, "");
             return deleted;
         } else {
             return "\n";
@@ -161,36 +180,120 @@ public class StringEditor implements Editor<String> {
         } else if (lines() < line) {
             return "";
         } else if (column == 1) {
-            String currentLine = lines.remove(line - 1);
-            String previousLine = lines.remove(line - 2);
-            lines.add(line - 2, previousLine + currentLine);
+            String currentLine = removeLine(line);
+            String previousLine = lines.get(line - 2);
+            replaceLine(line - 1, previousLine.length() + 1, 0, currentLine);
             line--;
             column = previousLine.length();
             return "\n";
         } else {
-            String currentLine = lines.remove(line - 1);
+            String currentLine = lines.get(line - 1);
             String deleted = currentLine.substring(column - 2, column - 1);
-            lines.add(line - 1, currentLine.substring(0, column - 2) + currentLine.substring(column - 1));
+            replaceLine(line, column - 1, 1, "");
             column--;
             return deleted;
         }
     }
 
+    @Override
+    public synchronized String getRange(int fromLine, int fromColumn, int toLine, int toColumn) {
+        int[] range = normalizeRange(fromLine, fromColumn, toLine, toColumn);
+        String first = lines.get(range[0] - 1);
+        if (range[0] == range[2]) {
+            return first.substring(range[1] - 1, range[3] - 1);
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(first, range[1] - 1, first.length());
+        for (int l = range[0] + 1; l < range[2]; l++) {
+            builder.append(NEW_LINE).append(lines.get(l - 1));
+        }
+        builder.append(NEW_LINE).append(lines.get(range[2] - 1), 0, range[3] - 1);
+        return builder.toString();
+    }
+
+    @Override
+    public synchronized String deleteRange(int fromLine, int fromColumn, int toLine, int toColumn) {
+        return replaceRange(fromLine, fromColumn, toLine, toColumn, "");
+    }
+
+    @Override
+    public synchronized String replaceRange(int fromLine, int fromColumn, int toLine, int toColumn, String str) {
+        int[] range = normalizeRange(fromLine, fromColumn, toLine, toColumn);
+        String removed = getRange(range[0], range[1], range[2], range[3]);
+        List<String> replacement = splitLines(str);
+        int last = replacement.size() - 1;
+        if (range[0] == range[2] && last == 0) {
+            replaceLine(range[0], range[1], range[3] - range[1], str);
+            line = range[0];
+            column = range[1] + str.length();
+            return removed;
+        }
+        String before = lines.get(range[0] - 1).substring(0, range[1] - 1);
+        String after = lines.get(range[2] - 1).substring(range[3] - 1);
+        String lastLine = replacement.get(last);
+        replacement.set(0, before + replacement.get(0));
+        replacement.set(last, replacement.get(last) + after);
+        replaceLines(range[0], range[2] - range[0] + 1, replacement);
+
+        line = range[0] + last;
+        column = last == 0 ? before.length() + lastLine.length() + 1 : lastLine.length() + 1;
+        return removed;
+    }
+
+    /**
+     * Orders two positions and moves them inside the content.
+     *
+     * @return An array with the start line, start column, end line and end column.
+     */
+    private int[] normalizeRange(int fromLine, int fromColumn, int toLine, int toColumn) {
+        if (fromLine > toLine || (fromLine == toLine && fromColumn > toColumn)) {
+            return normalizeRange(toLine, toColumn, fromLine, fromColumn);
+        }
+        int startLine = Math.max(1, Math.min(fromLine, lines.size()));
+        int endLine = Math.max(1, Math.min(toLine, lines.size()));
+        int startColumn = Math.max(1, Math.min(fromColumn, lines.get(startLine - 1).length() + 1));
+        int endColumn = Math.max(1, Math.min(toColumn, lines.get(endLine - 1).length() + 1));
+        if (toLine > lines.size()) {
+            endColumn = lines.get(endLine - 1).length() + 1;
+        }
+        return new int[]{startLine, startColumn, endLine, endColumn};
+    }
+
+    /**
+     * Splits text to lines, treating \r\n, \n and \r as line breaks.
+     * Unlike {@link String#split(String)} trailing empty lines are kept.
+     */
+    private static List<String> splitLines(String str) {
+        List<String> result = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\n' || c == '\r') {
+                result.add(str.substring(start, i));
+                if (c == '\r' && i + 1 < str.length() && str.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        result.add(str.substring(start));
+        return result;
+    }
+
     @Override
     public synchronized void newLine() {
         while (lines() < line) {
-            lines.add("");
+            insertLine(lines() + 1, "");
         }
 
         if (column == 1) {
-            lines.add(line - 1, "");
+            insertLine(line, "");
         } else {
-            String currentLine = lines.remove(line - 1);
+            String currentLine = lines.get(line - 1);
             //The character under the cursor should just move to the next line.
-            String beforeNewLine = currentLine.substring(0, column - 1);
             String afterNewLine = currentLine.substring(column - 1);
-            lines.add(line - 1, afterNewLine);
-            lines.add(line - 1, beforeNewLine);
+            replaceLine(line, column, afterNewLine.length(), "");
+            insertLine(line + 1, afterNewLine);
         }
         line++;
         column = 1;
@@ -199,9 +302,9 @@ public class StringEditor implements Editor<String> {
     @Override
     public synchronized void mergeLine() {
         if (line < lines.size()) {
-            String currentLine = lines.remove(line - 1);
-            String nextLine = lines.remove(line - 1);
-            lines.add(line - 1, currentLine + nextLine);
+            String currentLine = lines.get(line - 1);
+            String nextLine = removeLine(line + 1);
+            replaceLine(line, currentLine.length() + 1, 0, nextLine);
         }
     }
 
@@ -212,20 +315,43 @@ public class StringEditor implements Editor<String> {
      */
     @Override
     public synchronized void findNext(String str) {
-        boolean found = false;
-        int startLine = line;
-        int startColumn = column + 1; //We always start one char after the cursor position.
-
-        while (!found && startLine <= lines.size()) {
-            String currentLine = getContent(startLine);
-            String linePart = currentLine.length() > startColumn ? currentLine.substring(startColumn - 1) : "";
-            if (linePart.contains(str)) {
-                column = startColumn + linePart.indexOf(str);
-                line = startLine;
-                found = true;
-            } else {
-                startLine++;
-                startColumn = 1;
+        Object trace = Tracing.begin(TracedOperation.SEARCH);
+        int previousLine = line;
+        int previousColumn = column;
+        try {
+            if (matches != null && matches.getPattern().equals(str)) {
+                int index = matches.next(line, column);
+                if (index >= 0) {
+                    line = matches.getLine(index);
+                    column = matches.getColumn(index);
+                }
+                return;
+            }
+            boolean found = false;
+            int startLine = line;
+            int startColumn = column + 1; //We always start one char after the cursor position.
+            int[] candidates = searchRanges(str);
+            int range = firstRangeEndingAtOrAfter(candidates, startLine);
+
+            while (!found && startLine <= lines.size()) {
+                String currentLine = getContent(startLine);
+                String linePart = currentLine.length() > startColumn ? currentLine.substring(startColumn - 1) : "";
+                if (linePart.contains(str)) {
+                    column = startColumn + linePart.indexOf(str);
+                    line = startLine;
+                    found = true;
+                } else {
+                    startLine++;
+                    if (range < candidates.length && startLine > candidates[range + 1]) {
+                        range += 2;
+                    }
+                    startLine = range < candidates.length ? Math.max(startLine, candidates[range]) : lines.size() + 1;
+                    startColumn = 1;
+                }
+            }
+        } finally {
+            if (trace != null) {
+                Tracing.end(trace, str, previousLine != line || previousColumn != column ? 1 : 0, 0);
             }
         }
     }
@@ -240,6 +366,35 @@ public class StringEditor implements Editor<String> {
         return lines.size();
     }
 
+    /**
+     * Returns the number of changes to the lines since the editor was created.
+     *
+     * @return
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of characters of the content, including the line separators.
+     * The editor is not locked, so that monitoring doesn't wait for long running operations.
+     *
+     * @return
+     */
+    public long getLength() {
+        return lines.length() + Math.max(0, lines.size() - 1);
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the lines of the content.
+     * The editor is not locked, so that monitoring doesn't wait for long running operations.
+     *
+     * @return
+     */
+    public long getMemoryUsage() {
+        return lines.getMemoryUsage();
+    }
+
     /**
      * Finds the next appearance of the String.
      *
@@ -247,39 +402,234 @@ public class StringEditor implements Editor<String> {
      */
     @Override
     public synchronized void findPrevious(String str) {
-        boolean found = false;
-        int startLine = line;
-        int startColumn = column;
-
-        while (!found && startLine > 0) {
-            String currentLine = getContent(startLine);
-            String linePart = currentLine.substring(0, startColumn - 1);
-            if (linePart.contains(str)) {
-                column = linePart.indexOf(str, 0) + 1;
-                line = startLine;
-                found = true;
+        Object trace = Tracing.begin(TracedOperation.SEARCH);
+        int previousLine = line;
+        int previousColumn = column;
+        try {
+            if (matches != null && matches.getPattern().equals(str)) {
+                int index = matches.previous(line, column);
+                if (index >= 0) {
+                    line = matches.getLine(index);
+                    column = matches.getColumn(index);
+                }
+                return;
+            }
+            boolean found = false;
+            int startLine = line;
+            int startColumn = column;
+            int[] candidates = searchRanges(str);
+            int range = lastRangeStartingAtOrBefore(candidates, startLine);
+
+            while (!found && startLine > 0) {
+                String currentLine = getContent(startLine);
+                String linePart = currentLine.substring(0, startColumn - 1);
+                if (linePart.contains(str)) {
+                    column = linePart.indexOf(str, 0) + 1;
+                    line = startLine;
+                    found = true;
+                } else {
+                    startLine--;
+                    if (range >= 0 && startLine < candidates[range]) {
+                        range -= 2;
+                    }
+                    startLine = range >= 0 ? Math.min(startLine, candidates[range + 1]) : 0;
+                    if (startLine > 0) {
+                        currentLine = getContent(startLine);
+                        startColumn = currentLine.length() + 1;
+                    }
+                }
+            }
+        } finally {
+            if (trace != null) {
+                Tracing.end(trace, str, previousLine != line || previousColumn != column ? 1 : 0, 0);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int findAll(String str) {
+        if (str == null || str.isEmpty()) {
+            matches = null;
+            return 0;
+        }
+        Object trace = Tracing.begin(TracedOperation.SEARCH);
+        int[] candidates = searchIndex != null ? searchIndex.candidates(str) : null;
+        matches = MatchSet.find(str, lines, candidates);
+        Tracing.end(trace, str, matches.size(), 0);
+        return matches.size();
+    }
+
+    @Override
+    public synchronized MatchSet getMatches() {
+        return matches;
+    }
+
+    @Override
+    public synchronized LinePatch replaceAll(final String str, final String replacement) {
+        if (str == null || str.isEmpty()) {
+            throw new IllegalArgumentException("String to replace should not be empty.");
+        } else if (replacement.contains(NEW_LINE) || replacement.contains(CARRIEGE_RETURN)) {
+            throw new IllegalArgumentException("Replacement should not contain line breaks.");
+        }
+        Object trace = Tracing.begin(TracedOperation.REPLACE);
+        final int[] candidates = searchRanges(str);
+        List<LinePatch> chunks = Parallel.forEachChunk(lines.size(), new Parallel.ChunkTask<LinePatch>() {
+            @Override
+            public LinePatch run(int from, int to) {
+                List<Integer> changedLines = new ArrayList<Integer>();
+                List<String> changedContents = new ArrayList<String>();
+                int r = firstRangeEndingAtOrAfter(candidates, from + 1);
+                for (; r < candidates.length && candidates[r] <= to; r += 2) {
+                    int last = Math.min(to, candidates[r + 1]);
+                    for (int l = Math.max(from + 1, candidates[r]); l <= last; l++) {
+                        String content = lines.get(l - 1);
+                        if (content.contains(str)) {
+                            changedLines.add(l);
+                            changedContents.add(content.replace(str, replacement));
+                        }
+                    }
+                }
+                return toPatch(changedLines, changedContents);
+            }
+        });
+        LinePatch undo = chunks.size() == 1 ? applyPatch(chunks.get(0)) : applyPatch(merge(chunks));
+        move(line, column);
+        Tracing.end(trace, str, undo.size(), 0);
+        return undo;
+    }
+
+    @Override
+    public synchronized LinePatch applyPatch(LinePatch patch) {
+        int[] patchedLines = new int[patch.size()];
+        String[] previousContents = new String[patch.size()];
+        for (int i = 0; i < patch.size(); i++) {
+            patchedLines[i] = patch.getLine(i);
+            previousContents[i] = lines.get(patch.getLine(i) - 1);
+            replaceLine(patch.getLine(i), patch.getContent(i));
+        }
+        return new LinePatch(patchedLines, previousContents);
+    }
+
+    private static LinePatch toPatch(List<Integer> lines, List<String> contents) {
+        if (lines.isEmpty()) {
+            return LinePatch.EMPTY;
+        }
+        int[] patchLines = new int[lines.size()];
+        for (int i = 0; i < patchLines.length; i++) {
+            patchLines[i] = lines.get(i);
+        }
+        return new LinePatch(patchLines, contents.toArray(new String[contents.size()]));
+    }
+
+    private static LinePatch merge(List<LinePatch> patches) {
+        List<Integer> mergedLines = new ArrayList<Integer>();
+        List<String> mergedContents = new ArrayList<String>();
+        for (LinePatch patch : patches) {
+            for (int i = 0; i < patch.size(); i++) {
+                mergedLines.add(patch.getLine(i));
+                mergedContents.add(patch.getContent(i));
+            }
+        }
+        return toPatch(mergedLines, mergedContents);
+    }
+
+    /**
+     * Returns the line ranges that may contain the specified String.
+     *
+     * @param str
+     * @return The candidate ranges of the search index or a single range of all lines, if there is no index.
+     */
+    private int[] searchRanges(String str) {
+        int[] candidates = searchIndex != null ? searchIndex.candidates(str) : null;
+        return candidates != null ? candidates : new int[]{1, lines.size()};
+    }
+
+    /**
+     * Finds the first of the sorted and disjoint ranges that ends at or after the specified line.
+     *
+     * @param ranges Pairs of first and last line.
+     * @param line
+     * @return The index of the first line of the range or the length of the ranges, if all ranges end before the line.
+     */
+    private static int firstRangeEndingAtOrAfter(int[] ranges, int line) {
+        int low = 0;
+        int high = ranges.length / 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ranges[2 * middle + 1] < line) {
+                low = middle + 1;
             } else {
-                startLine--;
-                currentLine = getContent(startLine);
-                startColumn = currentLine.length() + 1;
+                high = middle;
             }
         }
+        return 2 * low;
+    }
+
+    /**
+     * Finds the last of the sorted and disjoint ranges that starts at or before the specified line.
+     *
+     * @param ranges Pairs of first and last line.
+     * @param line
+     * @return The index of the first line of the range or -2, if all ranges start after the line.
+     */
+    private static int lastRangeStartingAtOrBefore(int[] ranges, int line) {
+        int range = firstRangeEndingAtOrAfter(ranges, line);
+        return range < ranges.length && ranges[range] <= line ? range : range - 2;
+    }
+
+    @Override
+    public synchronized EditorSnapshot snapshot() {
+        return new EditorSnapshot(lines.snapshot(), line, column);
+    }
+
+    @Override
+    public synchronized void restore(EditorSnapshot snapshot) {
+        PersistentLineList restored = snapshot.getLines();
+        int firstChanged = lines.firstDifference(restored);
+        int previousSize = lines.size();
+        int suffix = firstChanged >= 0 ? lines.commonSuffix(restored, Math.min(previousSize, restored.size()) - firstChanged) : 0;
+        lines.restore(restored);
+        generation++;
+        this.line = snapshot.getLine();
+        this.column = snapshot.getColumn();
+        if (firstChanged >= 0) {
+            linesReplaced(firstChanged + 1, previousSize - firstChanged - suffix, lines.subList(firstChanged, lines.size() - suffix));
+        }
     }
 
     @Override
     public synchronized void open(String source) throws IOException {
+        Object trace = Tracing.begin(TracedOperation.LOAD);
+        stopJournal();
+        sourceGeneration++;
         this.source = source;
         this.charset = contentManager.detectCharset(source);
         lines.clear();
+        fileContent = null;
         try {
-            String[] contentLines = contentManager.load(source).split("\n|\r");
-            lines.addAll(Arrays.asList(contentLines));
+            if (contentManager instanceof FileContentManager) {
+                fileContent = ((FileContentManager) contentManager).loadContent(source, charset);
+                lines.restore(fileContent.getLines());
+            } else {
+                String[] contentLines = contentManager.load(source).split("\n|\r");
+                lines.addAll(Arrays.asList(contentLines));
+            }
         } catch (Exception ex) {
+            lines.clear();
             lines.add("");
+            fileContent = null;
             //noop
         }
         this.line = 1;
         this.column = 1;
+        this.matches = null;
+        if (searchIndex != null) {
+            searchIndex.rebuild(lines.toArray(new String[lines.size()]));
+        }
+        startJournal(true);
+        if (trace != null) {
+            Tracing.end(trace, source, lines.size(), new File(source).length());
+        }
     }
 
     @Override
@@ -288,23 +638,160 @@ public class StringEditor implements Editor<String> {
             this.source = target;
         }
 
+        Object trace = Tracing.begin(TracedOperation.SAVE);
         if (source == null) {
             throw new IOException("No target specified for saving.");
+        } else if (contentManager instanceof FileContentManager) {
+            fileContent = ((FileContentManager) contentManager).saveContent(fileContent, lines.snapshot(), charset, source);
         } else if (!contentManager.save(getContent(), charset, source)) {
             throw new IOException("Failed to save to target.");
         }
+        if (trace != null) {
+            Tracing.end(trace, source, lines.size(), new File(source).length());
+        }
+        //The saved file is the new base of the journal.
+        stopJournal();
+        startJournal(false);
     }
 
+    /**
+     * Saves a snapshot of the content in the background.
+     * The content is built and written without holding the lock of the editor, so editing continues during the save.
+     * When the save completes, the editor is marked as not dirty only if the content has not been modified since the
+     * snapshot was taken.
+     *
+     * @param target   The target or null to save to the current source.
+     * @param listener Notified from the background thread, when the save completes.
+     * @return
+     * @throws IOException If there is no target to save to.
+     */
     @Override
-    public synchronized void close() throws IOException {
-        this.source = null;
-        this.charset = null;
-        lines.clear();
+    public synchronized Future<?> saveAsync(String target, final SaveListener listener) throws IOException {
+        if (target != null) {
+            this.source = target;
+        }
+        if (source == null) {
+            throw new IOException("No target specified for saving.");
+        }
+        final String location = source;
+        final Charset saveCharset = charset;
+        final ContentManager manager = contentManager;
+        final PersistentLineList snapshot = lines.snapshot();
+        final FileContent base = fileContent;
+        final long savedGeneration = generation;
+        final long savedSourceGeneration = sourceGeneration;
+        return getSaveExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                Object trace = Tracing.begin(TracedOperation.SAVE);
+                IOException failure = null;
+                FileContent saved = null;
+                try {
+                    if (manager instanceof FileContentManager) {
+                        saved = ((FileContentManager) manager).saveContent(base, snapshot, saveCharset, location);
+                    } else if (!manager.save(toContent(snapshot), saveCharset, location)) {
+                        failure = new IOException("Failed to save to target.");
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IOException("Failed to save to target.", e);
+                }
+                if (failure == null) {
+                    if (trace != null) {
+                        Tracing.end(trace, location, snapshot.size(), new File(location).length());
+                    }
+                    onSaved(snapshot, saved, savedGeneration, savedSourceGeneration);
+                    if (listener != null) {
+                        listener.saved(location);
+                    }
+                } else if (listener != null) {
+                    listener.failed(location, failure);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reconciles the state of the editor with a completed background save.
+     */
+    private synchronized void onSaved(PersistentLineList snapshot, FileContent saved, long savedGeneration, long savedSourceGeneration) {
+        if (savedSourceGeneration != sourceGeneration) {
+            return;
+        }
+        fileContent = saved;
+        if (savedGeneration == generation) {
+            dirty = false;
+        }
+        //The saved file is the new base of the journal, followed by the changes made during the save.
+        stopJournal();
+        startJournal(false);
+        int firstChanged = journal != null ? snapshot.firstDifference(lines) : -1;
+        if (firstChanged >= 0) {
+            int suffix = snapshot.commonSuffix(lines, Math.min(snapshot.size(), lines.size()) - firstChanged);
+            journal.linesReplaced(firstChanged + 1, snapshot.size() - firstChanged - suffix, lines.subList(firstChanged, lines.size() - suffix));
+        }
+    }
+
+    private synchronized ExecutorService getSaveExecutor() {
+        if (saveExecutor == null) {
+            saveExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setName("JLEditSaveThread");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return saveExecutor;
+    }
+
+    /**
+     * Closes the source, after the background saves complete.
+     * The journal is only deleted afterwards, so that the changes stay recoverable if a save fails.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = saveExecutor;
+            saveExecutor = null;
+        }
+        //Waits without holding the lock of the editor, which the saves need to complete.
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the background save.");
+            }
+        }
+        synchronized (this) {
+            this.source = null;
+            this.charset = null;
+            sourceGeneration++;
+            stopJournal();
+            fileContent = null;
+            lines.clear();
+            matches = null;
+            if (searchIndex != null) {
+                searchIndex.clear();
+            }
+        }
     }
 
 
     @Override
     public synchronized String getContent() {
+        return toContent(lines);
+    }
+
+    private static String toContent(List<String> lines) {
         StringBuilder contentBuilder = new StringBuilder();
         for (String l : lines) {
             contentBuilder.append(l).append("\n");
@@ -346,4 +833,385 @@ public class StringEditor implements Editor<String> {
     public void setContentManager(ContentManager contentManager) {
         this.contentManager = contentManager;
     }
+
+    /**
+     * Checks if searches are narrowed down using a {@link TrigramIndex}.
+     *
+     * @return
+     */
+    public synchronized boolean isSearchIndexEnabled() {
+        return searchIndex != null;
+    }
+
+    /**
+     * Enables/disables the {@link TrigramIndex}.
+     * The index is built in the background and searches scan all lines until it becomes ready.
+     *
+     * @param enabled
+     */
+    public synchronized void setSearchIndexEnabled(boolean enabled) {
+        if (enabled && searchIndex == null) {
+            searchIndex = new TrigramIndex();
+            searchIndex.rebuild(lines.toArray(new String[lines.size()]));
+        } else if (!enabled && searchIndex != null) {
+            searchIndex.clear();
+            searchIndex = null;
+        }
+    }
+
+    /**
+     * Returns the {@link TrigramIndex} or null if it is not enabled.
+     *
+     * @return
+     */
+    public synchronized TrigramIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public synchronized boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Enables/disables the {@link EditJournal}, which keeps the unsaved changes of files in a sidecar file.
+     * If a file without unsaved changes is open, its journal starts immediately, otherwise with the next open or save.
+     *
+     * @param enabled
+     */
+    public synchronized void setJournalEnabled(boolean enabled) {
+        this.journalEnabled = enabled;
+        if (!enabled) {
+            stopJournal();
+        } else if (journal == null && !dirty) {
+            startJournal(false);
+        }
+    }
+
+    public synchronized boolean isJournalSyncEnabled() {
+        return journalSyncEnabled;
+    }
+
+    /**
+     * Sets if the journal forces each batch of changes to the disk.
+     * Without it the journal survives a crash of the JVM, but not of the operating system.
+     * Applies to journals started after the call.
+     *
+     * @param enabled
+     */
+    public synchronized void setJournalSyncEnabled(boolean enabled) {
+        this.journalSyncEnabled = enabled;
+    }
+
+    /**
+     * Returns the error that prevented the journal from starting or from writing the changes, or null.
+     * The changes made after the error are not recoverable until the next save or open.
+     *
+     * @return
+     */
+    public synchronized IOException getJournalFailure() {
+        if (journalFailure != null) {
+            return journalFailure;
+        }
+        return journal != null ? journal.getFailure() : null;
+    }
+
+    /**
+     * Checks if a journal with unsaved changes of a previous session was found, when the source was opened.
+     * Until it is recovered or discarded, new changes are not journaled.
+     *
+     * @return
+     */
+    public synchronized boolean hasRecoverableJournal() {
+        return recoverableJournal != null;
+    }
+
+    /**
+     * Applies the unsaved changes of the journal found when the source was opened.
+     *
+     * @return true if any change was recovered.
+     * @throws IOException
+     */
+    public synchronized boolean recoverJournal() throws IOException {
+        if (recoverableJournal == null) {
+            return false;
+        }
+        File previous = new File(recoverableJournal.getPath() + ".old");
+        previous.delete();
+        if (!recoverableJournal.renameTo(previous)) {
+            throw new IOException("Failed to move journal " + recoverableJournal);
+        }
+        recoverableJournal = null;
+        //The recovered changes are added to the new journal.
+        startJournal(false);
+        try {
+            int changes = EditJournal.replay(previous, new LineChangeHandler() {
+                @Override
+                public void lineChanged(int line, String content) {
+                    replaceLine(line, content);
+                }
+
+                @Override
+                public void lineEdited(int line, int column, int length, String inserted) {
+                    replaceLine(line, column, length, inserted);
+                }
+
+                @Override
+                public void lineInserted(int line, String content) {
+                    insertLine(line, content);
+                }
+
+                @Override
+                public void lineRemoved(int line) {
+                    removeLine(line);
+                }
+
+                @Override
+                public void linesReplaced(int line, int count, List<String> contents) {
+                    replaceLines(line, count, contents);
+                }
+            });
+            if (changes > 0) {
+                dirty = true;
+            }
+            return changes > 0;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Journal " + previous + " does not match the content.", e);
+        } finally {
+            previous.delete();
+        }
+    }
+
+    /**
+     * Deletes the journal found when the source was opened and starts a new one.
+     */
+    public synchronized void discardJournal() {
+        if (recoverableJournal != null) {
+            recoverableJournal.delete();
+            recoverableJournal = null;
+            startJournal(false);
+        }
+    }
+
+    /**
+     * Starts journaling the changes of the source, if it is a file.
+     *
+     * @param recover Checks for a journal of a previous session, that should be recovered instead of replaced.
+     */
+    private void startJournal(boolean recover) {
+        if (!journalEnabled || journal != null || source == null || !(contentManager instanceof FileContentManager)) {
+            return;
+        }
+        File sourceFile = new File(source);
+        if (!sourceFile.isFile()) {
+            return;
+        }
+        File journalFile = EditJournal.fileOf(sourceFile);
+        if (recover && EditJournal.isRecoverable(journalFile, sourceFile)) {
+            recoverableJournal = journalFile;
+            return;
+        }
+        try {
+            journal = new EditJournal(journalFile, sourceFile, EditJournal.DEFAULT_FLUSH_INTERVAL, journalSyncEnabled);
+        } catch (IOException e) {
+            journalFailure = e;
+        }
+    }
+
+    /**
+     * Stops the journal and deletes it, as its changes are either saved or discarded.
+     */
+    private void stopJournal() {
+        if (journal != null) {
+            journal.delete();
+            journal = null;
+        }
+        journalFailure = null;
+        recoverableJournal = null;
+    }
+
+    /**
+     * Replaces the content of a line.
+     * All modifications of the content should go through this method, {@link #replaceLine(int, int, int, String)},
+     * {@link #insertLine(int, String)}, {@link #removeLine(int)} and {@link #replaceLines(int, int, List)}.
+     *
+     * @param line    The line number (starting from 1).
+     * @param content
+     */
+    private void replaceLine(int line, String content) {
+        lines.set(line - 1, content);
+        generation++;
+        if (journal != null) {
+            journal.lineChanged(line, content);
+        }
+        updateSearch(line, content);
+    }
+
+    /**
+     * Replaces a range inside a line.
+     * Only the range is journaled, so typing in a long line doesn't journal the whole line for every key.
+     *
+     * @param line     The line number (starting from 1).
+     * @param column   The first column of the range (starting from 1).
+     * @param length   The number of characters to replace.
+     * @param inserted
+     */
+    private void replaceLine(int line, int column, int length, String inserted) {
+        String currentLine = lines.get(line - 1);
+        String content = currentLine.substring(0, column - 1) + inserted + currentLine.substring(column - 1 + length);
+        lines.set(line - 1, content);
+        generation++;
+        if (journal != null) {
+            journal.lineEdited(line, column, length, inserted);
+        }
+        updateSearch(line, content);
+    }
+
+    private void updateSearch(int line, String content) {
+        if (matches != null) {
+            matches.lineChanged(line, content);
+        }
+        if (searchIndex != null) {
+            searchIndex.lineChanged(line, content);
+            rebuildSearchIndexIfNeeded();
+        }
+    }
+
+    /**
+     * Inserts a line, shifting the following lines.
+     *
+     * @param line    The line number (starting from 1) of the new line.
+     * @param content
+     */
+    private void insertLine(int line, String content) {
+        lines.add(line - 1, content);
+        generation++;
+        if (journal != null) {
+            journal.lineInserted(line, content);
+        }
+        if (matches != null) {
+            matches.lineInserted(line, content);
+        }
+        if (searchIndex != null) {
+            searchIndex.lineInserted(line, content);
+            rebuildSearchIndexIfNeeded();
+        }
+    }
+
+    /**
+     * Removes a line, shifting the following lines.
+     *
+     * @param line The line number (starting from 1).
+     * @return The content of the removed line.
+     */
+    private String removeLine(int line) {
+        String removed = lines.remove(line - 1);
+        generation++;
+        if (journal != null) {
+            journal.lineRemoved(line);
+        }
+        if (matches != null) {
+            matches.lineRemoved(line);
+        }
+        if (searchIndex != null) {
+            searchIndex.lineRemoved(line);
+            rebuildSearchIndexIfNeeded();
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces a block of lines with a block of possibly different size.
+     * Lines are added and removed in bulk, so the cost does not depend on the number of lines that follow.
+     *
+     * @param line     The first line of the block (starting from 1).
+     * @param count    The number of lines to replace.
+     * @param contents The new lines.
+     */
+    private void replaceLines(int line, int count, List<String> contents) {
+        generation++;
+        int common = Math.min(count, contents.size());
+        for (int i = 0; i < common; i++) {
+            if (!lines.get(line - 1 + i).equals(contents.get(i))) {
+                replaceLine(line + i, contents.get(i));
+            }
+        }
+        if (count > common) {
+            lines.subList(line - 1 + common, line - 1 + count).clear();
+            if (journal != null) {
+                journal.linesReplaced(line + common, count - common, Collections.<String>emptyList());
+            }
+            for (int i = common; i < count; i++) {
+                if (matches != null) {
+                    matches.lineRemoved(line + common);
+                }
+                if (searchIndex != null) {
+                    searchIndex.lineRemoved(line + common);
+                }
+            }
+        } else if (contents.size() > common) {
+            lines.addAll(line - 1 + common, contents.subList(common, contents.size()));
+            if (journal != null) {
+                journal.linesReplaced(line + common, 0, contents.subList(common, contents.size()));
+            }
+            for (int i = common; i < contents.size(); i++) {
+                if (matches != null) {
+                    matches.lineInserted(line + i, contents.get(i));
+                }
+                if (searchIndex != null) {
+                    searchIndex.lineInserted(line + i, contents.get(i));
+                }
+            }
+        }
+        if (searchIndex != null) {
+            rebuildSearchIndexIfNeeded();
+        }
+    }
+
+    /**
+     * Updates the journal, the matches and the search index after a block of lines was replaced without going through
+     * {@link #replaceLines(int, int, List)}, e.g. by restoring a snapshot.
+     *
+     * @param line     The first line of the block (starting from 1).
+     * @param count    The number of lines that were replaced.
+     * @param contents The new lines.
+     */
+    private void linesReplaced(int line, int count, List<String> contents) {
+        if (journal != null) {
+            journal.linesReplaced(line, count, contents);
+        }
+        int common = Math.min(count, contents.size());
+        for (int i = 0; i < common; i++) {
+            if (matches != null) {
+                matches.lineChanged(line + i, contents.get(i));
+            }
+            if (searchIndex != null) {
+                searchIndex.lineChanged(line + i, contents.get(i));
+            }
+        }
+        for (int i = common; i < count; i++) {
+            if (matches != null) {
+                matches.lineRemoved(line + common);
+            }
+            if (searchIndex != null) {
+                searchIndex.lineRemoved(line + common);
+            }
+        }
+        for (int i = common; i < contents.size(); i++) {
+            if (matches != null) {
+                matches.lineInserted(line + i, contents.get(i));
+            }
+            if (searchIndex != null) {
+                searchIndex.lineInserted(line + i, contents.get(i));
+            }
+        }
+        if (searchIndex != null) {
+            rebuildSearchIndexIfNeeded();
+        }
+    }
+
+    private void rebuildSearchIndexIfNeeded() {
+        if (searchIndex.needsRebuild()) {
+            searchIndex.rebuild(lines.toArray(new String[lines.size()]));
+        }
+    }
 }
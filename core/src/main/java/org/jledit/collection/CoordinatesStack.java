@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.collection;
+
+/**
+ * A {@link RollingStack} for cursor coordinates.
+ * Each entry is packed in a long (line in the upper and column in the lower 32 bits) in a preallocated ring buffer,
+ * so push and pop don't allocate at all.
+ */
+public class CoordinatesStack {
+
+    public static final long EMPTY = -1L;
+    private static final int DEFAULT_SIZE = 100;
+
+    private final long[] items;
+    //The index of the oldest item.
+    private int head;
+    private int size;
+
+    /**
+     * Constructor
+     */
+    public CoordinatesStack() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity
+     */
+    public CoordinatesStack(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
+        this.items = new long[capacity];
+    }
+
+    /**
+     * Pushes the coordinates to the stack, removing the oldest entry if the stack is full.
+     *
+     * @param line
+     * @param column
+     */
+    public synchronized void push(int line, int column) {
+        long packed = ((long) line << 32) | (column & 0xFFFFFFFFL);
+        if (size == items.length) {
+            items[head] = packed;
+            head = head + 1 < items.length ? head + 1 : 0;
+        } else {
+            int tail = head + size;
+            items[tail < items.length ? tail : tail - items.length] = packed;
+            size++;
+        }
+    }
+
+    /**
+     * Pops the most recent coordinates.
+     *
+     * @return The packed coordinates or {@link #EMPTY} if the stack is empty.
+     * Use {@link #line(long)} and {@link #column(long)} to unpack them.
+     */
+    public synchronized long pop() {
+        if (size == 0) {
+            return EMPTY;
+        }
+        int tail = head + size - 1;
+        size--;
+        return items[tail < items.length ? tail : tail - items.length];
+    }
+
+    public int getCapacity() {
+        return items.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public static int line(long coordinates) {
+        return (int) (coordinates >> 32);
+    }
+
+    public static int column(long coordinates) {
+        return (int) coordinates;
+    }
+}
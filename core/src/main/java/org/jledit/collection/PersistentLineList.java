@@ -0,0 +1,690 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.collection;
+
+import org.jledit.utils.Strings;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A list of lines backed by a persistent tree.
+ * The nodes of a snapshot are never modified: a change copies the part of the path from the root to the affected leaf
+ * that is shared with a snapshot and shares everything else. This makes {@link #snapshot()} a constant time operation
+ * and a snapshot costs only the nodes that change after it was taken. Nodes created since the last snapshot are owned
+ * by the list and are updated in place, so while no snapshot is taken, replacing a line doesn't copy anything.
+ * <p/>
+ * Reads never see a partially applied change, so the list can be read by multiple threads while one thread writes.
+ * Snapshots have to be taken by the writing thread or under the same lock as the changes.
+ */
+public class PersistentLineList extends AbstractList<String> {
+
+    static final int NODE_SIZE = 32;
+    private static final int WINDOW = 2;
+    //The estimated size of a node: the object, its array and the references to the lines or children.
+    private static final long NODE_MEMORY_USAGE = 32 + 8L * NODE_SIZE;
+    private static final Node EMPTY = new Leaf(new String[0], null);
+
+    private volatile Node root = EMPTY;
+    //The nodes owned by this token are not shared with any snapshot.
+    private Object owner = new Object();
+
+    public PersistentLineList() {
+    }
+
+    private PersistentLineList(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns an immutable copy of the list.
+     * Modifying either list doesn't affect the other.
+     *
+     * @return
+     */
+    public PersistentLineList snapshot() {
+        owner = new Object();
+        return new Snapshot(root);
+    }
+
+    /**
+     * Replaces the content of the list with the content of a snapshot.
+     *
+     * @param snapshot
+     */
+    public void restore(PersistentLineList snapshot) {
+        owner = new Object();
+        root = snapshot.root;
+        modCount++;
+    }
+
+    /**
+     * Returns the index of the first line that differs between the two lists.
+     * Nodes shared by the two lists at the same position are skipped without comparing their lines.
+     *
+     * @param other
+     * @return The index or -1 if the lists are equal.
+     */
+    public int firstDifference(PersistentLineList other) {
+        if (root == other.root) {
+            return -1;
+        }
+        LeafCursor a = new LeafCursor(root, false);
+        LeafCursor b = new LeafCursor(other.root, false);
+        int index = 0;
+        while (a.leaf != null && b.leaf != null) {
+            int shared = a.skipShared(b, Integer.MAX_VALUE);
+            if (shared > 0) {
+                index += shared;
+                continue;
+            }
+            String lineA = a.leaf.lines[a.offset];
+            String lineB = b.leaf.lines[b.offset];
+            if (lineA != lineB && !lineA.equals(lineB)) {
+                return index;
+            }
+            index++;
+            a.next();
+            b.next();
+        }
+        return a.leaf == null && b.leaf == null ? -1 : index;
+    }
+
+    /**
+     * Returns the number of lines at the end of the two lists that are equal.
+     * Nodes shared by the two lists at the same distance from the end are skipped without comparing their lines.
+     *
+     * @param other
+     * @param limit The maximum number of lines to compare.
+     * @return
+     */
+    public int commonSuffix(PersistentLineList other, int limit) {
+        if (root == other.root) {
+            return Math.min(limit, size());
+        }
+        LeafCursor a = new LeafCursor(root, true);
+        LeafCursor b = new LeafCursor(other.root, true);
+        int count = 0;
+        while (a.leaf != null && b.leaf != null && count < limit) {
+            int shared = a.skipShared(b, limit - count);
+            if (shared > 0) {
+                count += shared;
+                continue;
+            }
+            String lineA = a.leaf.lines[a.offset];
+            String lineB = b.leaf.lines[b.offset];
+            if (lineA != lineB && !lineA.equals(lineB)) {
+                break;
+            }
+            count++;
+            a.next();
+            b.next();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the nodes and lines of this list that are not shared with the base.
+     * Nodes are matched by identity against the nodes of the base at the same level, which is exact for the paths
+     * copied by a few changes and an over-estimation after many.
+     *
+     * @param base
+     * @return
+     */
+    public long getMemoryUsage(PersistentLineList base) {
+        Node baseRoot = base.root;
+        int height = heightOf(root);
+        int baseHeight = heightOf(baseRoot);
+        Node[] baseNodes = new Node[]{baseRoot};
+        //After the root collapsed, compare with the nodes of the base at the same level.
+        while (baseHeight > height) {
+            baseNodes = childrenOf(baseNodes);
+            baseHeight--;
+        }
+        return unsharedMemoryUsage(root, height, baseNodes, baseHeight);
+    }
+
+    @Override
+    public String get(int index) {
+        Node node = root;
+        checkIndex(index, node.size());
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(index);
+            index -= branch.offsetOf(child);
+            node = branch.children[child];
+        }
+        return ((Leaf) node).lines[index];
+    }
+
+    @Override
+    public int size() {
+        return root.size();
+    }
+
+    /**
+     * Returns the total number of characters of the lines, without line terminators.
+     *
+     * @return
+     */
+    public long length() {
+        return root.length();
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the lines and nodes of this list, including those shared with
+     * snapshots. Nodes are assumed to be full, which under-estimates the nodes after many insertions.
+     *
+     * @return
+     */
+    public long getMemoryUsage() {
+        Node node = root;
+        int lines = node.size();
+        return lines * Strings.sizeOf("") + 2 * node.length() + (lines / NODE_SIZE + 1) * NODE_MEMORY_USAGE;
+    }
+
+    @Override
+    public String set(int index, String element) {
+        checkIndex(index, size());
+        String previous = get(index);
+        root = root.set(index, element, owner);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, String element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node[] nodes = root.add(index, element, owner);
+        root = nodes.length == 1 ? nodes[0] : new Branch(nodes, owner);
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index, size());
+        String previous = get(index);
+        Node node = root.remove(index, owner);
+        //Collapse the levels with a single child.
+        while (node instanceof Branch && ((Branch) node).children.length == 1) {
+            node = ((Branch) node).children[0];
+        }
+        root = node != null ? node : EMPTY;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+        if (isEmpty()) {
+            root = build(new ArrayList<String>(c), owner);
+            modCount++;
+            return !c.isEmpty();
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public void clear() {
+        root = EMPTY;
+        modCount++;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Builds a balanced tree bottom up.
+     */
+    private static Node build(List<String> lines, Object owner) {
+        if (lines.isEmpty()) {
+            return EMPTY;
+        }
+        List<Node> level = new ArrayList<Node>();
+        for (int i = 0; i < lines.size(); i += NODE_SIZE) {
+            List<String> chunk = lines.subList(i, Math.min(lines.size(), i + NODE_SIZE));
+            level.add(new Leaf(chunk.toArray(new String[chunk.size()]), owner));
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<Node>();
+            for (int i = 0; i < level.size(); i += NODE_SIZE) {
+                List<Node> chunk = level.subList(i, Math.min(level.size(), i + NODE_SIZE));
+                parents.add(new Branch(chunk.toArray(new Node[chunk.size()]), owner));
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * Estimates the memory of the nodes that don't appear among the base nodes of the same level.
+     * The base nodes are limited to a window around the position of the node, which follows the shifts caused by the
+     * nodes that were split or removed since the base was taken.
+     */
+    private static long unsharedMemoryUsage(Node node, int height, Node[] base, int baseHeight) {
+        if (height == baseHeight && indexOf(base, node) >= 0) {
+            return 0;
+        }
+        long usage = NODE_MEMORY_USAGE;
+        if (node instanceof Leaf) {
+            for (String line : ((Leaf) node).lines) {
+                usage += Strings.sizeOf(line);
+            }
+            return usage;
+        }
+        Node[] children = ((Branch) node).children;
+        if (height > baseHeight) {
+            for (Node child : children) {
+                usage += unsharedMemoryUsage(child, height - 1, base, baseHeight);
+            }
+            return usage;
+        }
+        Node[] baseChildren = childrenOf(base);
+        int shift = 0;
+        for (int i = 0; i < children.length; i++) {
+            int match = indexOf(baseChildren, children[i]);
+            if (match >= 0) {
+                shift = match - i;
+                continue;
+            }
+            int from = Math.max(0, Math.min(baseChildren.length, i + shift - WINDOW));
+            int to = Math.max(from, Math.min(baseChildren.length, i + shift + WINDOW + 1));
+            Node[] window = new Node[to - from];
+            System.arraycopy(baseChildren, from, window, 0, window.length);
+            usage += unsharedMemoryUsage(children[i], height - 1, window, baseHeight - 1);
+        }
+        return usage;
+    }
+
+    private static Node[] childrenOf(Node[] nodes) {
+        List<Node> children = new ArrayList<Node>();
+        for (Node node : nodes) {
+            if (node instanceof Branch) {
+                children.addAll(Arrays.asList(((Branch) node).children));
+            }
+        }
+        return children.toArray(new Node[children.size()]);
+    }
+
+    private static int indexOf(Node[] nodes, Node node) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int heightOf(Node node) {
+        int height = 0;
+        while (node instanceof Branch) {
+            node = ((Branch) node).children[0];
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * A read only view of the list at some point in time.
+     */
+    private static class Snapshot extends PersistentLineList {
+
+        private Snapshot(Node root) {
+            super(root);
+        }
+
+        @Override
+        public String set(int index, String element) {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+
+        @Override
+        public void add(int index, String element) {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+
+        @Override
+        public String remove(int index) {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends String> c) {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+
+        @Override
+        public void restore(PersistentLineList snapshot) {
+            throw new UnsupportedOperationException("Snapshots are read only.");
+        }
+    }
+
+    private abstract static class Node {
+
+        //The list that may update the node in place or null if the node is shared.
+        final Object owner;
+
+        Node(Object owner) {
+            this.owner = owner;
+        }
+
+        abstract int size();
+
+        abstract long length();
+
+        /**
+         * Returns the node itself if it was updated in place or a copy.
+         */
+        abstract Node set(int index, String line, Object owner);
+
+        /**
+         * Returns the new node or two nodes, if the node had to be split.
+         */
+        abstract Node[] add(int index, String line, Object owner);
+
+        /**
+         * Returns the new node or null if the node became empty.
+         */
+        abstract Node remove(int index, Object owner);
+    }
+
+    private static final class Leaf extends Node {
+
+        private final String[] lines;
+        private volatile long length;
+
+        private Leaf(String[] lines, Object owner) {
+            super(owner);
+            this.lines = lines;
+            long total = 0;
+            for (String line : lines) {
+                total += line.length();
+            }
+            this.length = total;
+        }
+
+        @Override
+        int size() {
+            return lines.length;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        Node set(int index, String line, Object owner) {
+            if (this.owner == owner) {
+                length += line.length() - lines[index].length();
+                lines[index] = line;
+                return this;
+            }
+            String[] copy = lines.clone();
+            copy[index] = line;
+            return new Leaf(copy, owner);
+        }
+
+        @Override
+        Node[] add(int index, String line, Object owner) {
+            String[] copy = new String[lines.length + 1];
+            System.arraycopy(lines, 0, copy, 0, index);
+            copy[index] = line;
+            System.arraycopy(lines, index, copy, index + 1, lines.length - index);
+            if (copy.length <= NODE_SIZE) {
+                return new Node[]{new Leaf(copy, owner)};
+            }
+            int half = copy.length / 2;
+            String[] left = new String[half];
+            String[] right = new String[copy.length - half];
+            System.arraycopy(copy, 0, left, 0, half);
+            System.arraycopy(copy, half, right, 0, right.length);
+            return new Node[]{new Leaf(left, owner), new Leaf(right, owner)};
+        }
+
+        @Override
+        Node remove(int index, Object owner) {
+            if (lines.length == 1) {
+                return null;
+            }
+            String[] copy = new String[lines.length - 1];
+            System.arraycopy(lines, 0, copy, 0, index);
+            System.arraycopy(lines, index + 1, copy, index, copy.length - index);
+            return new Leaf(copy, owner);
+        }
+    }
+
+    private static final class Branch extends Node {
+
+        private final Node[] children;
+        //The number of lines up to and including each child, to find the child of a line with a binary search.
+        private final int[] ends;
+        private volatile long length;
+
+        private Branch(Node[] children, Object owner) {
+            super(owner);
+            this.children = children;
+            this.ends = new int[children.length];
+            int total = 0;
+            long totalLength = 0;
+            for (int i = 0; i < children.length; i++) {
+                total += children[i].size();
+                totalLength += children[i].length();
+                ends[i] = total;
+            }
+            this.length = totalLength;
+        }
+
+        @Override
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        /**
+         * Returns the child that contains the line.
+         */
+        private int childAt(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] > index) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the number of lines before the child.
+         */
+        private int offsetOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+
+        @Override
+        Node set(int index, String line, Object owner) {
+            int child = childAt(index);
+            Node previous = children[child];
+            long previousLength = previous.length();
+            Node replacement = previous.set(index - offsetOf(child), line, owner);
+            if (this.owner == owner) {
+                children[child] = replacement;
+                length += replacement.length() - previousLength;
+                return this;
+            }
+            Node[] copy = children.clone();
+            copy[child] = replacement;
+            return new Branch(copy, owner);
+        }
+
+        @Override
+        Node[] add(int index, String line, Object owner) {
+            //Appending to a child goes to that child rather than the start of the next one.
+            int child = index == 0 ? 0 : childAt(index - 1);
+            Node[] replacement = children[child].add(index - offsetOf(child), line, owner);
+            Node[] copy = new Node[children.length + replacement.length - 1];
+            System.arraycopy(children, 0, copy, 0, child);
+            System.arraycopy(replacement, 0, copy, child, replacement.length);
+            System.arraycopy(children, child + 1, copy, child + replacement.length, children.length - child - 1);
+            if (copy.length <= NODE_SIZE) {
+                return new Node[]{new Branch(copy, owner)};
+            }
+            int half = copy.length / 2;
+            Node[] left = new Node[half];
+            Node[] right = new Node[copy.length - half];
+            System.arraycopy(copy, 0, left, 0, half);
+            System.arraycopy(copy, half, right, 0, right.length);
+            return new Node[]{new Branch(left, owner), new Branch(right, owner)};
+        }
+
+        @Override
+        Node remove(int index, Object owner) {
+            int child = childAt(index);
+            Node replacement = children[child].remove(index - offsetOf(child), owner);
+            if (replacement == null) {
+                if (children.length == 1) {
+                    return null;
+                }
+                Node[] copy = new Node[children.length - 1];
+                System.arraycopy(children, 0, copy, 0, child);
+                System.arraycopy(children, child + 1, copy, child, copy.length - child);
+                return new Branch(copy, owner);
+            }
+            Node[] copy = children.clone();
+            copy[child] = replacement;
+            return new Branch(copy, owner);
+        }
+    }
+
+    /**
+     * Walks the lines of a tree forwards or backwards, keeping only the path from the root to the current leaf.
+     */
+    private static final class LeafCursor {
+
+        private final boolean reverse;
+        //The nodes from the root to the current leaf and the position of each node in its parent.
+        private final Node[] path;
+        private final int[] positions;
+        private Leaf leaf;
+        private int offset;
+
+        private LeafCursor(Node root, boolean reverse) {
+            this.reverse = reverse;
+            int height = heightOf(root);
+            path = new Node[height + 1];
+            positions = new int[height];
+            path[0] = root;
+            if (root.size() > 0) {
+                descend(0);
+            }
+        }
+
+        private void next() {
+            offset += reverse ? -1 : 1;
+            if (offset < 0 || offset >= leaf.lines.length) {
+                skip(positions.length);
+            }
+        }
+
+        /**
+         * Moves to the first line of the node at the specified level, or the last one going backwards.
+         */
+        private void descend(int level) {
+            for (int i = level; i < positions.length; i++) {
+                Node[] children = ((Branch) path[i]).children;
+                positions[i] = reverse ? children.length - 1 : 0;
+                path[i + 1] = children[positions[i]];
+            }
+            leaf = (Leaf) path[positions.length];
+            offset = reverse ? leaf.lines.length - 1 : 0;
+        }
+
+        /**
+         * Moves past the lines of the node at the specified level.
+         */
+        private void skip(int level) {
+            for (int i = level - 1; i >= 0; i--) {
+                Node[] children = ((Branch) path[i]).children;
+                int position = positions[i] + (reverse ? -1 : 1);
+                if (position >= 0 && position < children.length) {
+                    positions[i] = position;
+                    path[i + 1] = children[position];
+                    descend(i + 1);
+                    return;
+                }
+            }
+            leaf = null;
+        }
+
+        /**
+         * Returns the level of the largest node, which starts at the current line or -1 if no node starts there.
+         */
+        private int startLevel() {
+            if (offset != (reverse ? leaf.lines.length - 1 : 0)) {
+                return -1;
+            }
+            int level = positions.length;
+            while (level > 0 && positions[level - 1] == (reverse ? ((Branch) path[level - 1]).children.length - 1 : 0)) {
+                level--;
+            }
+            return level;
+        }
+
+        /**
+         * Skips the largest node that starts at the current line of both cursors.
+         * A node has the same height in every tree it belongs to, which gives its level in the other tree.
+         *
+         * @return The number of lines skipped.
+         */
+        private int skipShared(LeafCursor other, int limit) {
+            int level = startLevel();
+            int otherLevel = other.startLevel();
+            if (level < 0 || otherLevel < 0) {
+                return 0;
+            }
+            for (; level < path.length; level++) {
+                int match = level - positions.length + other.positions.length;
+                if (match >= otherLevel && match < other.path.length && path[level] == other.path[match]
+                        && path[level].size() <= limit) {
+                    int size = path[level].size();
+                    skip(level);
+                    other.skip(match);
+                    return size;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -14,24 +14,31 @@
 
 package org.jledit.collection;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 /**
  * A fixed size Stack implementation which removes oldest item when overflows.
+ * The items are kept in an array ring buffer, so push and pop don't allocate once the buffer has grown to fit the
+ * items (stacks with a capacity up to {@link #PREALLOCATED_SIZE} are allocated upfront).
  *
  * @param <I>
  */
 public class RollingStack<I> {
 
     private static final int DEFAULT_SIZE = 100;
-    private int capacity = DEFAULT_SIZE;
-    private final Deque<I> list = new LinkedList<I>();
+    static final int PREALLOCATED_SIZE = 1024;
+
+    private final int capacity;
+    private Object[] items;
+    //The index of the oldest item.
+    private int head;
+    private int size;
 
     /**
      * Constructor
      */
     public RollingStack() {
+        this(DEFAULT_SIZE);
     }
 
     /**
@@ -40,33 +47,110 @@ public class RollingStack<I> {
      * @param capacity
      */
     public RollingStack(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
         this.capacity = capacity;
+        this.items = new Object[Math.min(capacity, PREALLOCATED_SIZE)];
     }
 
-    public synchronized void push(I item) {
-        if (list.size() >= capacity) {
-            list.removeFirst();
+    /**
+     * Pushes an item to the stack.
+     *
+     * @param item
+     * @return The oldest item if it was removed to make room for the new one, or null.
+     */
+    public synchronized I push(I item) {
+        if (size == capacity) {
+            I removed = item(head);
+            items[head] = item;
+            head = next(head);
+            return removed;
+        }
+        if (size == items.length) {
+            grow();
         }
-        list.addLast(item);
+        int tail = head + size;
+        items[tail < items.length ? tail : tail - items.length] = item;
+        size++;
+        return null;
     }
 
     public synchronized I pop() {
-        if (list.isEmpty()) {
+        if (size == 0) {
             return null;
-        } else {
-            return list.removeLast();
         }
+        int tail = head + size - 1;
+        if (tail >= items.length) {
+            tail -= items.length;
+        }
+        I item = item(tail);
+        items[tail] = null;
+        size--;
+        return item;
+    }
+
+    /**
+     * Returns the most recent item without removing it.
+     *
+     * @return The most recent item or null if the stack is empty.
+     */
+    public synchronized I peek() {
+        if (size == 0) {
+            return null;
+        }
+        int tail = head + size - 1;
+        return item(tail < items.length ? tail : tail - items.length);
+    }
+
+    /**
+     * Removes the oldest item.
+     *
+     * @return The oldest item or null if the stack is empty.
+     */
+    public synchronized I removeOldest() {
+        if (size == 0) {
+            return null;
+        }
+        I item = item(head);
+        items[head] = null;
+        head = next(head);
+        size--;
+        return item;
     }
 
     public int getCapacity() {
         return capacity;
     }
 
-    public int size() {
-        return list.size();
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private I item(int index) {
+        return (I) items[index];
     }
 
-    public void clear() {
-        list.clear();
+    private int next(int index) {
+        return index + 1 < items.length ? index + 1 : 0;
+    }
+
+    /**
+     * Doubles the buffer (up to the capacity), moving the items to the start of the new buffer.
+     */
+    private void grow() {
+        Object[] grown = new Object[(int) Math.min(capacity, 2L * items.length)];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, grown, 0, firstPart);
+        System.arraycopy(items, 0, grown, firstPart, size - firstPart);
+        items = grown;
+        head = 0;
     }
 }
@@ -14,13 +14,17 @@
 
 package org.jledit.command.editor;
 
+import org.jledit.command.undo.MemoryEstimate;
 import org.jledit.command.undo.UndoableCommand;
 import org.jledit.ConsoleEditor;
 
 /**
  *
  */
-public abstract class AbstractUndoableCommand implements UndoableCommand {
+public abstract class AbstractUndoableCommand implements UndoableCommand, MemoryEstimate {
+
+    //The estimated size of a command object with the editor reference and the cursor coordinates.
+    protected static final long BASE_MEMORY_USAGE = 48;
 
     private final ConsoleEditor editor;
     private int beforeLine;
@@ -56,6 +60,33 @@ public abstract class AbstractUndoableCommand implements UndoableCommand {
         }
     }
 
+    /**
+     * Returns the memory used by the command itself.
+     * Commands that keep text for undo should add its size.
+     *
+     * @return
+     */
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE;
+    }
+
+    /**
+     * Checks if the command started exactly where this command left the cursor, on the same line.
+     *
+     * @param next
+     * @return
+     */
+    protected boolean isContinuedBy(UndoableCommand next) {
+        return getBeforeLine() == getAfterLine()
+                && next.getBeforeLine() == getAfterLine() && next.getAfterLine() == getAfterLine()
+                && next.getBeforeColumn() == getAfterColumn();
+    }
+
+    protected static boolean containsLineBreak(String str) {
+        return str.indexOf('\n') >= 0 || str.indexOf('\r') >= 0;
+    }
+
     public ConsoleEditor getEditor() {
         return editor;
     }
@@ -15,8 +15,17 @@
 package org.jledit.command.editor;
 
 import org.jledit.ConsoleEditor;
+import org.jledit.command.undo.JournaledCommand;
+import org.jledit.command.undo.MergeableCommand;
+import org.jledit.command.undo.UndoJournal;
+import org.jledit.command.undo.UndoableCommand;
+import org.jledit.utils.Strings;
 
-public class BackspaceCommand extends AbstractUndoableCommand {
+/**
+ * Deletes the character before the cursor.
+ * Consecutive backspaces on the same line are merged into a single undo entry per word.
+ */
+public class BackspaceCommand extends AbstractUndoableCommand implements MergeableCommand, JournaledCommand {
 
 
     private String deleted;
@@ -28,7 +37,12 @@ public class BackspaceCommand extends AbstractUndoableCommand {
     @Override
     public void doExecute() {
         if (!getEditor().isReadOnly()) {
-            deleted = getEditor().backspace();
+            if (deleted != null && !deleted.isEmpty() && !containsLineBreak(deleted)) {
+                //Redo, which may need to delete a whole group of merged backspaces.
+                getEditor().deleteRange(getAfterLine(), getAfterColumn(), getBeforeLine(), getBeforeColumn());
+            } else {
+                deleted = getEditor().backspace();
+            }
             if (deleted != null && !deleted.isEmpty()) {
                 getEditor().setDirty(true);
             }
@@ -43,4 +57,40 @@ public class BackspaceCommand extends AbstractUndoableCommand {
         }
     }
 
+    @Override
+    public boolean merge(UndoableCommand next) {
+        if (getEditor().isReadOnly() || !(next instanceof BackspaceCommand) || !isContinuedBy(next)) {
+            return false;
+        }
+        String nextDeleted = ((BackspaceCommand) next).deleted;
+        if (deleted == null || deleted.isEmpty() || nextDeleted == null || nextDeleted.isEmpty()
+                || containsLineBreak(deleted) || containsLineBreak(nextDeleted)) {
+            return false;
+        } else if (Character.isWhitespace(nextDeleted.charAt(0)) && !Character.isWhitespace(deleted.charAt(0))) {
+            //Going backwards, whitespace before a word starts a new group.
+            return false;
+        }
+        deleted = nextDeleted + deleted;
+        setAfterLine(next.getAfterLine());
+        setAfterColumn(next.getAfterColumn());
+        return true;
+    }
+
+    @Override
+    public boolean record(UndoJournal journal) {
+        if (getEditor().isReadOnly() || deleted == null || deleted.isEmpty()) {
+            return false;
+        }
+        journal.record(getAfterLine(), getAfterColumn(), deleted, "");
+        return true;
+    }
+
+    public String getDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(deleted);
+    }
 }
@@ -15,8 +15,11 @@
 package org.jledit.command.editor;
 
 import org.jledit.ConsoleEditor;
+import org.jledit.command.undo.JournaledCommand;
+import org.jledit.command.undo.UndoJournal;
+import org.jledit.utils.Strings;
 
-public class DeleteCommand extends AbstractUndoableCommand {
+public class DeleteCommand extends AbstractUndoableCommand implements JournaledCommand {
 
     private final DeleteType type;
     private String deleted;
@@ -70,4 +73,18 @@ public class DeleteCommand extends AbstractUndoableCommand {
             getEditor().put(deleted);
         }
     }
+
+    @Override
+    public boolean record(UndoJournal journal) {
+        if (getEditor().isReadOnly() || type == DeleteType.LINE || deleted == null || deleted.isEmpty()) {
+            return false;
+        }
+        journal.record(getBeforeLine(), getBeforeColumn(), deleted, "");
+        return true;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(deleted);
+    }
 }
@@ -34,8 +34,10 @@ public class FindCommand implements Command {
     public void execute() {
         try {
             String str = editor.readLine("Find:");
+            editor.findAll(str);
             editor.findNext(str);
             FindContext.setLastSearch(str);
+            editor.redrawFooter();
         } catch (IOException e) {
             //noop
         }
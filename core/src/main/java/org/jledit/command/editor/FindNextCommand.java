@@ -49,5 +49,6 @@ public class FindNextCommand implements Command {
             editor.findNext(str);
             FindContext.setLastSearch(str);
         }
+        editor.redrawFooter();
     }
 }
@@ -49,5 +49,6 @@ public class FindPreviousCommand implements Command {
             editor.findPrevious(str);
             FindContext.setLastSearch(str);
         }
+        editor.redrawFooter();
     }
 }
@@ -15,12 +15,19 @@
 package org.jledit.command.editor;
 
 import org.jledit.ConsoleEditor;
+import org.jledit.command.undo.Spillable;
+import org.jledit.command.undo.SpilledText;
 import org.jledit.utils.ClipboardUtils;
 
-public class PasteCommand extends AbstractUndoableCommand {
+import java.io.IOException;
 
-    private final String clipboardContent;
+public class PasteCommand extends AbstractUndoableCommand implements Spillable {
+
+    private final SpilledText clipboardContent;
     private final Position position;
+    //Where the pasted content starts.
+    private int pasteLine;
+    private int pasteColumn;
 
     public PasteCommand(ConsoleEditor editor) {
         this(editor, Position.CURRENT);
@@ -29,7 +36,7 @@ public class PasteCommand extends AbstractUndoableCommand {
     public PasteCommand(ConsoleEditor editor, Position position) {
         super(editor);
         this.position = position;
-        this.clipboardContent = ClipboardUtils.getContnet();
+        this.clipboardContent = new SpilledText(ClipboardUtils.getContnet());
     }
 
     @Override
@@ -39,46 +46,57 @@ public class PasteCommand extends AbstractUndoableCommand {
             if (!clipboardContent.isEmpty()) {
                 switch (position) {
                     case CURRENT:
-                        getEditor().put(clipboardContent);
                         break;
                     case NEXT_LINE:
                         getEditor().moveToEndOfLine();
                         getEditor().newLine();
-                        getEditor().put(clipboardContent);
                         break;
                     case PREVIOUS_LINE:
                         getEditor().moveToStartOfLine();
                         getEditor().newLine();
                         getEditor().moveUp(1);
-                        getEditor().put(clipboardContent);
                         break;
                 }
+                pasteLine = getEditor().getLine();
+                pasteColumn = getEditor().getColumn();
+                getEditor().put(clipboardContent.get());
             }
         }
     }
 
     @Override
     public void undo() {
-        if (!getEditor().isReadOnly()) {
+        if (!getEditor().isReadOnly() && !clipboardContent.isEmpty()) {
             switch (position) {
-                case NEXT_LINE:
-                    getEditor().move(getBeforeLine(), getBeforeColumn());
-                    getEditor().mergeLine();
                 case CURRENT:
-                    getEditor().move(getBeforeLine(), getBeforeColumn());
-                    for (int i = 0; i < clipboardContent.length(); i++) {
-                        getEditor().delete();
-                    }
+                    getEditor().deleteRange(pasteLine, pasteColumn, getAfterLine(), getAfterColumn());
+                    break;
+                case NEXT_LINE:
+                    //Also remove the line break that was added before the pasted content.
+                    int endOfLine = getEditor().getContent(pasteLine - 1).length() + 1;
+                    getEditor().deleteRange(pasteLine - 1, endOfLine, getAfterLine(), getAfterColumn());
                     break;
                 case PREVIOUS_LINE:
-                    getEditor().move(getBeforeLine() - 1, getBeforeColumn());
-                    getEditor().mergeLine();
-                    getEditor().move(getBeforeLine(), getBeforeColumn());
-                    for (int i = 0; i < clipboardContent.length(); i++) {
-                        getEditor().delete();
-                    }
+                    //Also remove the line break that was added after the pasted content.
+                    getEditor().deleteRange(pasteLine, pasteColumn, getAfterLine() + 1, 1);
                     break;
             }
+            getEditor().move(getBeforeLine(), getBeforeColumn());
         }
     }
+
+    @Override
+    public void spill() throws IOException {
+        clipboardContent.spill();
+    }
+
+    @Override
+    public void discard() {
+        clipboardContent.discard();
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + clipboardContent.getMemoryUsage();
+    }
 }
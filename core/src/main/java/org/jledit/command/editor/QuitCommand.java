@@ -15,6 +15,7 @@
 package org.jledit.command.editor;
 
 
+import org.jledit.AbstractConsoleEditor;
 import org.jledit.command.Command;
 import org.jledit.ConsoleEditor;
 
@@ -31,6 +32,10 @@ public class QuitCommand implements Command {
     @Override
     public void execute() {
         try {
+            //A running save clears the dirty flag when it completes, so it is awaited before asking.
+            if (editor instanceof AbstractConsoleEditor) {
+                ((AbstractConsoleEditor) editor).awaitSaves();
+            }
             if (editor.isDirty()) {
                 boolean forceQuit = editor.readBoolean("You have unsaved changes. Do you want to quit without saving? [Y/n]", true);
                 if (forceQuit) {
@@ -41,6 +46,8 @@ public class QuitCommand implements Command {
             }
         } catch (IOException e) {
             //noop
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -0,0 +1,78 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.editor;
+
+import org.jledit.ConsoleEditor;
+import org.jledit.LinePatch;
+import org.jledit.utils.Strings;
+
+import java.io.IOException;
+
+/**
+ * Replaces all appearances of a String as a single undoable step.
+ * Only the previous content of the changed lines is kept for undo.
+ */
+public class ReplaceAllCommand extends AbstractUndoableCommand {
+
+    private String str;
+    private String replacement;
+    private LinePatch undoPatch = LinePatch.EMPTY;
+
+    public ReplaceAllCommand(ConsoleEditor editor) {
+        this(editor, null, null);
+    }
+
+    public ReplaceAllCommand(ConsoleEditor editor, String str, String replacement) {
+        super(editor);
+        this.str = str;
+        this.replacement = replacement;
+    }
+
+    @Override
+    public void doExecute() {
+        if (getEditor().isReadOnly()) {
+            return;
+        }
+        try {
+            if (str == null) {
+                str = getEditor().readLine("Replace:");
+                if (str == null || str.isEmpty()) {
+                    return;
+                }
+                replacement = getEditor().readLine("With:");
+            }
+            undoPatch = getEditor().replaceAll(str, replacement != null ? replacement : "");
+            if (!undoPatch.isEmpty()) {
+                getEditor().setDirty(true);
+            }
+            getEditor().redrawFooter();
+        } catch (IOException e) {
+            //noop
+        }
+    }
+
+    @Override
+    public void undo() {
+        if (!getEditor().isReadOnly() && !undoPatch.isEmpty()) {
+            getEditor().applyPatch(undoPatch);
+            getEditor().move(getBeforeLine(), getBeforeColumn());
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(str) + Strings.sizeOf(replacement) + undoPatch.getMemoryUsage();
+    }
+}
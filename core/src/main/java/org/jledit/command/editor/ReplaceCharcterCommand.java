@@ -15,6 +15,7 @@
 package org.jledit.command.editor;
 
 import org.jledit.ConsoleEditor;
+import org.jledit.utils.Strings;
 
 public class ReplaceCharcterCommand extends AbstractUndoableCommand {
 
@@ -52,4 +53,9 @@ public class ReplaceCharcterCommand extends AbstractUndoableCommand {
             getEditor().moveLeft(1);
         }
     }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(replace);
+    }
 }
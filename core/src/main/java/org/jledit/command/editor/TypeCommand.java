@@ -16,10 +16,20 @@ package org.jledit.command.editor;
 
 
 import org.jledit.ConsoleEditor;
+import org.jledit.command.undo.JournaledCommand;
+import org.jledit.command.undo.MergeableCommand;
+import org.jledit.command.undo.UndoJournal;
+import org.jledit.command.undo.UndoableCommand;
+import org.jledit.utils.Strings;
 
-public class TypeCommand extends AbstractUndoableCommand {
+/**
+ * Types text at the cursor position.
+ * Consecutive typing on the same line is merged into a single undo entry per word (including the whitespace that
+ * follows it) and backspaces that remove just typed characters are folded into the entry.
+ */
+public class TypeCommand extends AbstractUndoableCommand implements MergeableCommand, JournaledCommand {
 
-    private final String str;
+    private String str;
 
     public TypeCommand(ConsoleEditor editor, String str) {
         super(editor);
@@ -37,10 +47,52 @@ public class TypeCommand extends AbstractUndoableCommand {
     @Override
     public void undo() {
         if (!getEditor().isReadOnly()) {
-            getEditor().move(getBeforeLine(), getBeforeColumn());
-            for (int i = 0; i < str.length(); i++) {
-                getEditor().delete();
+            getEditor().deleteRange(getBeforeLine(), getBeforeColumn(), getAfterLine(), getAfterColumn());
+        }
+    }
+
+    @Override
+    public boolean merge(UndoableCommand next) {
+        if (getEditor().isReadOnly() || !isContinuedBy(next) || containsLineBreak(str)) {
+            return false;
+        } else if (next instanceof TypeCommand) {
+            String typed = ((TypeCommand) next).str;
+            if (typed.isEmpty() || containsLineBreak(typed) || startsNewWord(typed)) {
+                return false;
             }
+            str = str + typed;
+        } else if (next instanceof BackspaceCommand) {
+            String deleted = ((BackspaceCommand) next).getDeleted();
+            if (str.isEmpty() || deleted == null || !str.endsWith(deleted) || containsLineBreak(deleted)) {
+                return false;
+            }
+            str = str.substring(0, str.length() - deleted.length());
+        } else {
+            return false;
+        }
+        setAfterLine(next.getAfterLine());
+        setAfterColumn(next.getAfterColumn());
+        return true;
+    }
+
+    @Override
+    public boolean record(UndoJournal journal) {
+        if (getEditor().isReadOnly()) {
+            return false;
         }
+        journal.record(getBeforeLine(), getBeforeColumn(), "", str);
+        return true;
+    }
+
+    /**
+     * Checks if the typed text starts a word after whitespace.
+     */
+    private boolean startsNewWord(String typed) {
+        return !str.isEmpty() && Character.isWhitespace(str.charAt(str.length() - 1)) && !Character.isWhitespace(typed.charAt(0));
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(str);
     }
 }
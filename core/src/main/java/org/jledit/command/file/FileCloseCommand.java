@@ -14,6 +14,7 @@
 
 package org.jledit.command.file;
 
+import org.jledit.AbstractConsoleEditor;
 import org.jledit.command.Command;
 import org.jledit.ConsoleEditor;
 
@@ -30,15 +31,22 @@ public class FileCloseCommand implements Command {
     @Override
     public void execute() {
         try {
+            //A running save clears the dirty flag when it completes, so it is awaited before asking.
+            if (editor instanceof AbstractConsoleEditor) {
+                ((AbstractConsoleEditor) editor).awaitSaves();
+            }
             if (editor.isDirty()) {
                 boolean forceQuit = editor.readBoolean("You have unsaved changes. Do you want to quit without saving? [Y/n]", true);
                 if (forceQuit) {
                     editor.close();
                 }
+            } else {
+                editor.close();
             }
-            editor.close();
         } catch (IOException e) {
             //noop
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
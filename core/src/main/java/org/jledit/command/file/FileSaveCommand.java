@@ -34,14 +34,14 @@ public class FileSaveCommand implements Command, UndoContextAware {
     public void execute() {
         if (!editor.isReadOnly()) {
             try {
+                //The content is saved in the background and the editor is marked as saved, when the save completes.
                 if (editor.getSource() == null) {
                     String targetName = editor.readLine("Save to:");
-                    editor.save(targetName);
+                    editor.saveAsync(targetName, null);
                 } else {
-                    editor.save(null);
+                    editor.saveAsync(null, null);
                 }
                 undoContext.clear();
-                editor.setDirty(false);
             } catch (IOException e) {
                 //noop
             }
@@ -0,0 +1,121 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import org.jledit.ConsoleEditor;
+import org.jledit.utils.Strings;
+
+/**
+ * Replays a delta from the {@link UndoJournal} through the range edit methods of the editor.
+ * Instances are only created when an entry leaves the journal, to be undone.
+ */
+public class DeltaCommand implements UndoableCommand, MemoryEstimate {
+
+    private static final long BASE_MEMORY_USAGE = 48;
+
+    private final ConsoleEditor editor;
+    private final int line;
+    private final int column;
+    private final String deleted;
+    private final String inserted;
+
+    public DeltaCommand(ConsoleEditor editor, int line, int column, String deleted, String inserted) {
+        this.editor = editor;
+        this.line = line;
+        this.column = column;
+        this.deleted = deleted;
+        this.inserted = inserted;
+    }
+
+    @Override
+    public void execute() {
+        doExecute();
+    }
+
+    @Override
+    public void doExecute() {
+        if (!editor.isReadOnly()) {
+            editor.replaceRange(line, column, endLine(deleted), endColumn(deleted), inserted);
+            editor.setDirty(true);
+        }
+    }
+
+    @Override
+    public void undo() {
+        if (!editor.isReadOnly()) {
+            editor.replaceRange(line, column, endLine(inserted), endColumn(inserted), deleted);
+        }
+    }
+
+    @Override
+    public void redo() {
+        doExecute();
+    }
+
+    @Override
+    public int getBeforeLine() {
+        return line;
+    }
+
+    @Override
+    public int getBeforeColumn() {
+        return column;
+    }
+
+    @Override
+    public int getAfterLine() {
+        return endLine(inserted);
+    }
+
+    @Override
+    public int getAfterColumn() {
+        return endColumn(inserted);
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return BASE_MEMORY_USAGE + Strings.sizeOf(deleted) + Strings.sizeOf(inserted);
+    }
+
+    public String getDeleted() {
+        return deleted;
+    }
+
+    public String getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Returns the line where the text ends, if it starts at the position of the delta.
+     */
+    private int endLine(String text) {
+        int breaks = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                breaks++;
+            }
+        }
+        return line + breaks;
+    }
+
+    /**
+     * Returns the column after the last character of the text, if it starts at the position of the delta.
+     */
+    private int endColumn(String text) {
+        int lastBreak = Math.max(text.lastIndexOf('\n'), text.lastIndexOf('\r'));
+        return lastBreak < 0 ? column + text.length() : text.length() - lastBreak;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import org.jledit.ConsoleEditor;
+
+/**
+ * An {@link UndoableCommand} whose change can be expressed as a single delta, so that the {@link UndoContext} can
+ * store it in an {@link UndoJournal} instead of keeping the command object.
+ */
+public interface JournaledCommand extends UndoableCommand {
+
+    /**
+     * Records the change of the command to the journal.
+     *
+     * @param journal
+     * @return false if the change can't be recorded as a single delta.
+     */
+    boolean record(UndoJournal journal);
+
+    /**
+     * Returns the editor the change should be replayed on.
+     *
+     * @return
+     */
+    ConsoleEditor getEditor();
+}
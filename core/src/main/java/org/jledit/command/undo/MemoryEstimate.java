@@ -0,0 +1,28 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+/**
+ * An optional addition to an {@link UndoableCommand}, that estimates the memory the command keeps for undo and redo.
+ * The {@link UndoContext} counts commands that don't implement it with {@link UndoContext#DEFAULT_COMMAND_MEMORY_USAGE}.
+ */
+public interface MemoryEstimate {
+
+    /**
+     * The estimated memory in bytes, that the {@link UndoableCommand} keeps for undo and redo.
+     * @return
+     */
+    long getMemoryUsage();
+}
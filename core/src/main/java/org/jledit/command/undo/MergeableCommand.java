@@ -0,0 +1,29 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+/**
+ * An {@link UndoableCommand} that can absorb the command that follows it, so that both are undone in a single step.
+ */
+public interface MergeableCommand extends UndoableCommand {
+
+    /**
+     * Merges a command that was executed right after this one.
+     *
+     * @param next
+     * @return true if the command was merged, false if it should be kept as a separate entry.
+     */
+    boolean merge(UndoableCommand next);
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.command.undo;
+
+import org.jledit.ConsoleEditor;
+import org.jledit.EditorSnapshot;
+
+/**
+ * Undoes and redoes a command by swapping the content of the editor with snapshots taken around its execution.
+ * The snapshots share their structure with the editor, so the cost of undo does not depend on the size of the change.
+ */
+public class SnapshotCommand implements MergeableCommand, MemoryEstimate {
+
+    private static final long BASE_MEMORY_USAGE = 48;
+
+    private final ConsoleEditor editor;
+    private final Class<? extends UndoableCommand> origin;
+    private final EditorSnapshot before;
+    private EditorSnapshot after;
+    private long memoryUsage;
+
+    /**
+     * Creates the command.
+     *
+     * @param editor
+     * @param origin The type of the command that was executed.
+     * @param before The snapshot taken before the execution.
+     * @param after  The snapshot taken after the execution.
+     */
+    public SnapshotCommand(ConsoleEditor editor, Class<? extends UndoableCommand> origin, EditorSnapshot before, EditorSnapshot after) {
+        this.editor = editor;
+        this.origin = origin;
+        this.before = before;
+        this.after = after;
+        this.memoryUsage = BASE_MEMORY_USAGE + after.getMemoryUsage(before);
+    }
+
+    @Override
+    public void execute() {
+        doExecute();
+    }
+
+    @Override
+    public void doExecute() {
+        if (!editor.isReadOnly()) {
+            editor.restore(after);
+            editor.setDirty(true);
+        }
+    }
+
+    @Override
+    public void undo() {
+        if (!editor.isReadOnly()) {
+            editor.restore(before);
+        }
+    }
+
+    @Override
+    public void redo() {
+        doExecute();
+    }
+
+    /**
+     * Merges consecutive snapshots of the same kind of small edit, e.g. typing, so that they are undone together.
+     *
+     * @param next
+     * @return
+     */
+    @Override
+    public boolean merge(UndoableCommand next) {
+        if (!(next instanceof SnapshotCommand)) {
+            return false;
+        }
+        SnapshotCommand command = (SnapshotCommand) next;
+        if (command.editor != editor || command.origin != origin || !JournaledCommand.class.isAssignableFrom(origin)
+                || command.before.getLine() != after.getLine() || command.before.getColumn() != after.getColumn()
+                || command.before.firstDifference(after) >= 0) {
+            return false;
+        }
+        after = command.after;
+        memoryUsage = BASE_MEMORY_USAGE + after.getMemoryUsage(before);
+        return true;
+    }
+
+    @Override
+    public int getBeforeLine() {
+        return before.getLine();
+    }
+
+    @Override
+    public int getBeforeColumn() {
+        return before.getColumn();
+    }
+
+    @Override
+    public int getAfterLine() {
+        return after.getLine();
+    }
+
+    @Override
+    public int getAfterColumn() {
+        return after.getColumn();
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public Class<? extends UndoableCommand> getOrigin() {
+        return origin;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import java.io.IOException;
+
+/**
+ * An {@link UndoableCommand} that can move its payload out of memory.
+ */
+public interface Spillable {
+
+    /**
+     * Moves the payload of the command to a temporary file.
+     *
+     * @throws IOException
+     */
+    void spill() throws IOException;
+
+    /**
+     * Releases the temporary files of the command, once it is no longer part of the history.
+     */
+    void discard();
+}
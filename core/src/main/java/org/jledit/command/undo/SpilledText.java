@@ -0,0 +1,127 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import org.jledit.utils.Closeables;
+import org.jledit.utils.Strings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Text that is kept in memory, until it gets spilled to a temporary file.
+ * The text is stored as raw chars, so that any String (even one with broken surrogate pairs) is restored as is.
+ */
+public class SpilledText {
+
+    private static final String TEMP_FILE_PREFIX = "jledit-undo";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int length;
+    private String text;
+    private File file;
+
+    public SpilledText(String text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /**
+     * Returns the text, reading it back from the temporary file if it was spilled.
+     *
+     * @return
+     */
+    public synchronized String get() {
+        if (text != null) {
+            return text;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = in.readChar();
+            }
+            return new String(chars);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read spilled undo data from " + file, e);
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+    }
+
+    /**
+     * Writes the text to a temporary file and releases it from memory.
+     *
+     * @throws IOException
+     */
+    public synchronized void spill() throws IOException {
+        if (text == null) {
+            return;
+        }
+        File tempFile = File.createTempFile(TEMP_FILE_PREFIX, ".tmp");
+        tempFile.deleteOnExit();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+            out.writeChars(text);
+            out.flush();
+        } catch (IOException e) {
+            Closeables.closeQuitely(out);
+            tempFile.delete();
+            throw e;
+        } finally {
+            Closeables.closeQuitely(out);
+        }
+        file = tempFile;
+        text = null;
+    }
+
+    /**
+     * Deletes the temporary file, if the text was spilled.
+     */
+    public synchronized void discard() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    public synchronized boolean isSpilled() {
+        return text == null;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns the estimated memory used by the text, while it is in memory.
+     *
+     * @return
+     */
+    public synchronized long getMemoryUsage() {
+        return text != null ? Strings.sizeOf(text) : Strings.sizeOf("");
+    }
+}
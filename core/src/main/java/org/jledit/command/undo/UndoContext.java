@@ -14,42 +14,112 @@
 
 package org.jledit.command.undo;
 
+import org.jledit.ConsoleEditor;
 import org.jledit.collection.RollingStack;
 
+import java.io.IOException;
+
+/**
+ * Keeps the undo and redo history.
+ * The history is bounded by a memory budget: when the estimated size of all entries exceeds it, the oldest entries
+ * are dropped. Optionally, commands with a payload larger than the spill threshold are moved to temporary files.
+ * <p/>
+ * Commands pushed in quick succession are grouped: a {@link MergeableCommand} on the top of the stack may absorb the
+ * next command, until the grouping timeout expires or an undo/redo takes place.
+ * <p/>
+ * Once a {@link JournaledCommand} is no longer on the top of the undo stack, it is replaced by a delta in the
+ * {@link UndoJournal}, so most of the history costs about as much as the changed text.
+ */
 public class UndoContext {
 
-    private static final int DEFAULT_UNDO_DEPTH = 500;
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+    public static final long NO_SPILL = -1;
+    public static final long DEFAULT_GROUPING_TIMEOUT = 1000;
+    //The estimated size of a command that doesn't implement MemoryEstimate.
+    public static final long DEFAULT_COMMAND_MEMORY_USAGE = 48;
+
+    private static final int DEFAULT_UNDO_DEPTH = Integer.MAX_VALUE;
+    //Marks the undo stack entries that have been moved to the journal.
+    private static final UndoableCommand JOURNALED = new DeltaCommand(null, 0, 0, "", "");
     private Boolean everDirty = false;
     private final RollingStack<UndoableCommand> undoStack;
     private final RollingStack<UndoableCommand> redoStack;
+    private long memoryBudget;
+    private long spillThreshold = NO_SPILL;
+    private long memoryUsage;
+    private long groupingTimeout = DEFAULT_GROUPING_TIMEOUT;
+    private long lastPushTime;
+    private boolean grouping;
+    private final UndoJournal journal = new UndoJournal();
+    private boolean journalEnabled = true;
+    private ConsoleEditor journalEditor;
+    private boolean snapshotEnabled;
 
     public UndoContext() {
         this(DEFAULT_UNDO_DEPTH);
     }
 
     public UndoContext(int size) {
+        this(size, DEFAULT_MEMORY_BUDGET);
+    }
+
+    public UndoContext(int size, long memoryBudget) {
         undoStack = new RollingStack<UndoableCommand>(size);
         redoStack = new RollingStack<UndoableCommand>(size);
+        this.memoryBudget = memoryBudget;
     }
 
 
     public synchronized void undoPush(UndoableCommand item) {
-        if (undoStack.getCapacity() == undoStack.size()) {
+        long now = System.currentTimeMillis();
+        boolean merged = grouping && now - lastPushTime <= groupingTimeout && mergeWithTop(item);
+        lastPushTime = now;
+        grouping = groupingTimeout > 0;
+        if (merged) {
+            trim();
+            return;
+        }
+        journalTop();
+        spillIfNeeded(item);
+        memoryUsage += memoryUsageOf(item);
+        UndoableCommand removed = undoStack.push(item);
+        if (removed != null) {
             everDirty = true;
+            release(removed);
         }
-        undoStack.push(item);
+        trim();
     }
 
     public synchronized UndoableCommand undoPop() {
-        return undoStack.pop();
+        grouping = false;
+        UndoableCommand item = undoStack.pop();
+        if (item == JOURNALED) {
+            int last = journal.size() - 1;
+            memoryUsage -= journal.getMemoryUsage(last);
+            item = new DeltaCommand(journalEditor, journal.getLine(last), journal.getColumn(last), journal.getDeleted(last), journal.getInserted(last));
+            journal.removeLast();
+        } else if (item != null) {
+            memoryUsage -= memoryUsageOf(item);
+        }
+        return item;
     }
 
-    public void redoPush(UndoableCommand item) {
-        redoStack.push(item);
+    public synchronized void redoPush(UndoableCommand item) {
+        memoryUsage += memoryUsageOf(item);
+        UndoableCommand removed = redoStack.push(item);
+        if (removed != null) {
+            release(removed);
+        }
+        trim();
     }
 
-    public UndoableCommand redoPop() {
-        return redoStack.pop();
+    public synchronized UndoableCommand redoPop() {
+        grouping = false;
+        UndoableCommand item = redoStack.pop();
+        if (item != null) {
+            memoryUsage -= memoryUsageOf(item);
+        }
+        return item;
     }
 
 
@@ -57,9 +127,185 @@ public class UndoContext {
         return everDirty || undoStack.size() > 0;
     }
 
-    public void clear() {
+    /**
+     * Returns the number of commands that can be undone.
+     *
+     * @return
+     */
+    public synchronized int getUndoDepth() {
+        return undoStack.size();
+    }
+
+    public synchronized int getRedoDepth() {
+        return redoStack.size();
+    }
+
+    public synchronized void clear() {
         everDirty = false;
-        redoStack.clear();
-        undoStack.clear();
+        grouping = false;
+        for (UndoableCommand item = redoStack.pop(); item != null; item = redoStack.pop()) {
+            discard(item);
+        }
+        for (UndoableCommand item = undoStack.pop(); item != null; item = undoStack.pop()) {
+            discard(item);
+        }
+        journal.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the undo and redo history.
+     *
+     * @return
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget in bytes and drops the oldest entries that don't fit.
+     *
+     * @param memoryBudget
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        trim();
+    }
+
+    public synchronized long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Sets the size in bytes above which the payload of {@link Spillable} commands is moved to a temporary file.
+     *
+     * @param spillThreshold The threshold or {@link #NO_SPILL} to keep everything in memory.
+     */
+    public synchronized void setSpillThreshold(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    public synchronized boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Enables/disables moving commands to the {@link UndoJournal}.
+     * Commands that are already in the journal stay there.
+     *
+     * @param journalEnabled
+     */
+    public synchronized void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public synchronized boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    /**
+     * Enables/disables the snapshot undo mode.
+     * In this mode the editor records a {@link SnapshotCommand} instead of each command, which makes undo of bulk
+     * changes a swap of the content instead of a replay of the inverse edits.
+     *
+     * @param snapshotEnabled
+     */
+    public synchronized void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    public synchronized long getGroupingTimeout() {
+        return groupingTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a new command starts a new undo group.
+     *
+     * @param groupingTimeout The timeout or 0 to disable grouping.
+     */
+    public synchronized void setGroupingTimeout(long groupingTimeout) {
+        this.groupingTimeout = groupingTimeout;
+        if (groupingTimeout <= 0) {
+            grouping = false;
+        }
+    }
+
+    /**
+     * Tries to merge the command into the most recent entry, keeping the memory usage up to date.
+     */
+    private boolean mergeWithTop(UndoableCommand item) {
+        UndoableCommand top = undoStack.peek();
+        if (top instanceof MergeableCommand) {
+            long before = memoryUsageOf(top);
+            if (((MergeableCommand) top).merge(item)) {
+                memoryUsage += memoryUsageOf(top) - before;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the oldest entries until the history fits in the memory budget.
+     * The most recent undo entry is always kept.
+     */
+    private void trim() {
+        while (memoryUsage > memoryBudget && undoStack.size() > 1) {
+            everDirty = true;
+            release(undoStack.removeOldest());
+        }
+        while (memoryUsage > memoryBudget && redoStack.size() > 0) {
+            release(redoStack.removeOldest());
+        }
+    }
+
+    /**
+     * Moves the command on the top of the undo stack to the journal.
+     */
+    private void journalTop() {
+        UndoableCommand top = undoStack.peek();
+        if (journalEnabled && top instanceof JournaledCommand) {
+            JournaledCommand command = (JournaledCommand) top;
+            if ((journalEditor == null || journalEditor == command.getEditor()) && command.record(journal)) {
+                journalEditor = command.getEditor();
+                undoStack.pop();
+                undoStack.push(JOURNALED);
+                memoryUsage += journal.getMemoryUsage(journal.size() - 1) - memoryUsageOf(command);
+            }
+        }
+    }
+
+    private void release(UndoableCommand item) {
+        if (item == JOURNALED) {
+            memoryUsage -= journal.getMemoryUsage(0);
+            journal.removeOldest();
+        } else {
+            memoryUsage -= memoryUsageOf(item);
+            discard(item);
+        }
+    }
+
+    private void spillIfNeeded(UndoableCommand item) {
+        if (spillThreshold != NO_SPILL && item instanceof Spillable && memoryUsageOf(item) > spillThreshold) {
+            try {
+                ((Spillable) item).spill();
+            } catch (IOException e) {
+                //noop
+            }
+        }
+    }
+
+    private static long memoryUsageOf(UndoableCommand item) {
+        return item instanceof MemoryEstimate ? ((MemoryEstimate) item).getMemoryUsage() : DEFAULT_COMMAND_MEMORY_USAGE;
+    }
+
+    private static void discard(UndoableCommand item) {
+        if (item instanceof Spillable) {
+            ((Spillable) item).discard();
+        }
     }
 }
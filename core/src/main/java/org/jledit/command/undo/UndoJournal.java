@@ -0,0 +1,201 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import java.util.Arrays;
+
+/**
+ * A compact log of text changes.
+ * Each entry is a delta: the position where the change starts, the text that was deleted and the text that was
+ * inserted. The text of all entries is packed in a single char arena, and the entries are indexed by primitive arrays,
+ * so the journal costs little more than the changed text itself.
+ * <p/>
+ * Entries are added and removed at the end (like a stack) and the oldest entries can be dropped.
+ * This class is not thread safe, it is meant to be guarded by the {@link UndoContext} that owns it.
+ */
+public class UndoJournal {
+
+    //The estimated cost of an entry in the index arrays.
+    static final long ENTRY_MEMORY_USAGE = 20;
+    private static final int INITIAL_ENTRIES = 16;
+    private static final int INITIAL_TEXT = 256;
+
+    private char[] text = new char[INITIAL_TEXT];
+    private int textEnd;
+
+    //Line in the upper and column in the lower 32 bits.
+    private long[] positions = new long[INITIAL_ENTRIES];
+    //The offset of the deleted text in the arena, the inserted text follows it.
+    private int[] offsets = new int[INITIAL_ENTRIES];
+    private int[] deletedLengths = new int[INITIAL_ENTRIES];
+    private int[] insertedLengths = new int[INITIAL_ENTRIES];
+    //Entries before first have been dropped, but not compacted yet.
+    private int first;
+    private int end;
+
+    /**
+     * Adds an entry.
+     *
+     * @param line     The line where the change starts.
+     * @param column   The column where the change starts.
+     * @param deleted  The text that was removed.
+     * @param inserted The text that was added in its place.
+     */
+    public void record(int line, int column, String deleted, String inserted) {
+        if (end == positions.length) {
+            compactOrGrow();
+        }
+        int length = deleted.length() + inserted.length();
+        if (textEnd + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(textEnd + length, text.length * 2));
+        }
+        deleted.getChars(0, deleted.length(), text, textEnd);
+        inserted.getChars(0, inserted.length(), text, textEnd + deleted.length());
+        positions[end] = ((long) line << 32) | (column & 0xFFFFFFFFL);
+        offsets[end] = textEnd;
+        deletedLengths[end] = deleted.length();
+        insertedLengths[end] = inserted.length();
+        textEnd += length;
+        end++;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return
+     */
+    public int size() {
+        return end - first;
+    }
+
+    /**
+     * Returns the line of the entry with the specified index (0 is the oldest entry).
+     *
+     * @param index
+     * @return
+     */
+    public int getLine(int index) {
+        return (int) (positions[entry(index)] >> 32);
+    }
+
+    /**
+     * Returns the column of the entry with the specified index (0 is the oldest entry).
+     *
+     * @param index
+     * @return
+     */
+    public int getColumn(int index) {
+        return (int) positions[entry(index)];
+    }
+
+    /**
+     * Returns the deleted text of the entry with the specified index (0 is the oldest entry).
+     *
+     * @param index
+     * @return
+     */
+    public String getDeleted(int index) {
+        int e = entry(index);
+        return new String(text, offsets[e], deletedLengths[e]);
+    }
+
+    /**
+     * Returns the inserted text of the entry with the specified index (0 is the oldest entry).
+     *
+     * @param index
+     * @return
+     */
+    public String getInserted(int index) {
+        int e = entry(index);
+        return new String(text, offsets[e] + deletedLengths[e], insertedLengths[e]);
+    }
+
+    /**
+     * Returns the estimated memory used by the entry with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public long getMemoryUsage(int index) {
+        int e = entry(index);
+        return ENTRY_MEMORY_USAGE + 2L * (deletedLengths[e] + insertedLengths[e]);
+    }
+
+    /**
+     * Removes the most recent entry.
+     */
+    public void removeLast() {
+        if (size() == 0) {
+            throw new IllegalStateException("Journal is empty.");
+        }
+        end--;
+        textEnd = offsets[end];
+        if (end == first) {
+            clear();
+        }
+    }
+
+    /**
+     * Removes the oldest entry.
+     */
+    public void removeOldest() {
+        if (size() == 0) {
+            throw new IllegalStateException("Journal is empty.");
+        }
+        first++;
+        if (end == first) {
+            clear();
+        }
+    }
+
+    public void clear() {
+        first = 0;
+        end = 0;
+        textEnd = 0;
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return first + index;
+    }
+
+    /**
+     * Makes room for a new entry, either by dropping the space of the removed oldest entries or by growing the index.
+     */
+    private void compactOrGrow() {
+        if (first > end / 2) {
+            int textStart = offsets[first];
+            System.arraycopy(text, textStart, text, 0, textEnd - textStart);
+            textEnd -= textStart;
+            int count = end - first;
+            System.arraycopy(positions, first, positions, 0, count);
+            System.arraycopy(deletedLengths, first, deletedLengths, 0, count);
+            System.arraycopy(insertedLengths, first, insertedLengths, 0, count);
+            for (int i = 0; i < count; i++) {
+                offsets[i] = offsets[first + i] - textStart;
+            }
+            first = 0;
+            end = count;
+        } else {
+            int capacity = positions.length * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            deletedLengths = Arrays.copyOf(deletedLengths, capacity);
+            insertedLengths = Arrays.copyOf(insertedLengths, capacity);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.jledit.Command")
+@Label("Command")
+@Description("The execution of an editor command, excluding the time waiting for user input.")
+class CommandEvent extends EditorEvent {
+
+    @Label("Command")
+    String command;
+
+    @Label("Line Changes")
+    @Description("The number of changes to the lines of the content.")
+    long lineChanges;
+
+    @Override
+    void set(String name, long lines, long bytes) {
+        command = name;
+        lineChanges = lines;
+    }
+}
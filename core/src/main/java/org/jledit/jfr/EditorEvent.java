@@ -0,0 +1,35 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+
+/**
+ * The base of the flight recorder events of the editor.
+ */
+@Category("jledit")
+abstract class EditorEvent extends Event {
+
+    /**
+     * Sets the fields of the event from the values passed to the tracer.
+     *
+     * @param name
+     * @param lines
+     * @param bytes
+     */
+    abstract void set(String name, long lines, long bytes);
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.jfr;
+
+import jdk.jfr.EventType;
+import org.jledit.metrics.TracedOperation;
+import org.jledit.metrics.OperationTracer;
+
+/**
+ * Traces the editor operations as Java Flight Recorder events.
+ * An event is only created while a recording enables its type, so tracing costs a check of the type otherwise.
+ */
+public class FlightRecorderTracer implements OperationTracer {
+
+    private final EventType[] types = new EventType[TracedOperation.values().length];
+
+    public FlightRecorderTracer() {
+        for (TracedOperation operation : TracedOperation.values()) {
+            types[operation.ordinal()] = EventType.getEventType(create(operation).getClass());
+        }
+    }
+
+    @Override
+    public Object begin(TracedOperation operation) {
+        if (!types[operation.ordinal()].isEnabled()) {
+            return null;
+        }
+        EditorEvent event = create(operation);
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end(Object trace, String name, long lines, long bytes) {
+        if (trace instanceof EditorEvent) {
+            EditorEvent event = (EditorEvent) trace;
+            event.end();
+            if (event.shouldCommit()) {
+                event.set(name, lines, bytes);
+                event.commit();
+            }
+        }
+    }
+
+    private static EditorEvent create(TracedOperation operation) {
+        switch (operation) {
+            case COMMAND:
+                return new CommandEvent();
+            case RENDER:
+                return new RenderEvent();
+            case FLUSH:
+                return new FlushEvent();
+            case LOAD:
+                return new LoadEvent();
+            case SAVE:
+                return new SaveEvent();
+            case SEARCH:
+                return new SearchEvent();
+            case REPLACE:
+                return new ReplaceEvent();
+            default:
+                throw new IllegalArgumentException("Unknown operation:" + operation);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.jledit.Save")
+@Label("Save")
+@Description("The encoding and saving of a file, in the foreground or in the background.")
+class SaveEvent extends EditorEvent {
+
+    @Label("File")
+    String file;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("File Size")
+    @DataAmount
+    long fileSize;
+
+    @Override
+    void set(String name, long lines, long bytes) {
+        this.file = name;
+        this.lines = lines;
+        this.fileSize = bytes;
+    }
+}
@@ -43,6 +43,8 @@ public class InputStreamReader extends Reader {
 
     ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
 
+    private final CharBuffer singleChar = CharBuffer.allocate(1);
+
     /**
      * Constructs a new {@code InputStreamReader} on the {@link InputStream}
      * {@code in}. This constructor sets the character converter to the encoding
@@ -182,8 +184,9 @@ public class InputStreamReader extends Reader {
                 throw new IOException("InputStreamReader is closed.");
             }
 
-            char buf[] = new char[1];
-            return read(buf, 0, 1) != -1 ? buf[0] : -1;
+            //Reuses the buffer, as the editor reads every key with this method.
+            singleChar.clear();
+            return read(singleChar, 0) != -1 ? singleChar.get(0) : -1;
         }
     }
 
@@ -224,7 +227,12 @@ public class InputStreamReader extends Reader {
                 return 0;
             }
 
-            CharBuffer out = CharBuffer.wrap(buf, offset, length);
+            return read(CharBuffer.wrap(buf, offset, length), offset);
+        }
+    }
+
+    private int read(CharBuffer out, int offset) throws IOException {
+        synchronized (lock) {
             CoderResult result = CoderResult.UNDERFLOW;
 
             // bytes.remaining() indicates number of bytes in buffer
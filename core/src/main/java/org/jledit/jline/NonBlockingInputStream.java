@@ -27,6 +27,8 @@ public class NonBlockingInputStream
 {
     private InputStream in;               // The actual input stream
     private int    ch   = -2;             // Recently read character
+    private long   chTime;                // When the recently read character was received
+    private volatile long receiveTime;    // When the last returned character was received
 
     private boolean     threadIsReading      = false;
     private boolean     isShutdown           = false;
@@ -95,7 +97,19 @@ public class NonBlockingInputStream
     public int read() throws IOException {
         if (nonBlockingEnabled)
             return read(0L, false);
-        return in.read ();
+        int c = in.read ();
+        receiveTime = System.nanoTime();
+        return c;
+    }
+
+    /**
+     * Returns when the last character returned by a read was received from the underlying stream.
+     * This is the start of the latency perceived by the user for that character.
+     *
+     * @return The time in nanoseconds, as returned by {@link System#nanoTime()}, or 0 if nothing was read.
+     */
+    public long getReceiveTime() {
+        return receiveTime;
     }
 
     /**
@@ -161,6 +175,7 @@ public class NonBlockingInputStream
         }
         else if ((timeout == 0L || isShutdown) && !threadIsReading) {
             ch = in.read();
+            chTime = System.nanoTime();
         }
         else {
             /*
@@ -216,6 +231,7 @@ public class NonBlockingInputStream
         int ret = ch;
         if (!isPeek) {
             ch = -2;
+            receiveTime = chTime;
         }
         return ret;
     }
@@ -238,8 +254,10 @@ public class NonBlockingInputStream
         int c;
         if (nonBlockingEnabled)
             c = this.read(0L);
-        else
+        else {
             c = in.read();
+            receiveTime = System.nanoTime();
+        }
 
         if (c == -1) {
             return -1;
@@ -289,6 +307,7 @@ public class NonBlockingInputStream
                 catch (IOException e) {
                     failure = e;
                 }
+                long time = System.nanoTime();
 
                 /*
                  * Re-grab the lock to update the state.
@@ -296,6 +315,7 @@ public class NonBlockingInputStream
                 synchronized (this) {
                     exception       = failure;
                     ch              = charRead;
+                    chTime          = time;
                     threadIsReading = false;
                     notify();
                 }
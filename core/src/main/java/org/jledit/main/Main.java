@@ -14,21 +14,47 @@
 
 package org.jledit.main;
 
+import org.jledit.AbstractConsoleEditor;
 import org.jledit.ConcreteEditorFactory;
 import org.jledit.EditorFactory;
 import org.jledit.ConsoleEditor;
+import org.jledit.StringEditor;
+import org.jledit.session.SessionRecorder;
+import org.jledit.utils.Closeables;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 
 public final class Main {
 
+    public static final String RECORD_PROPERTY = "jledit.record";
+    public static final String METRICS_PROPERTY = "jledit.metrics";
+    public static final String LATENCY_OVERLAY_PROPERTY = "jledit.latency";
+
     private Main() {
     }
 
     public static void main(String[] args) {
         ConsoleEditor editor = null;
+        SessionRecorder recorder = null;
         try {
             String fileName = args.length > 0 ? args[0] : null;
             EditorFactory factory = new ConcreteEditorFactory();
             editor = factory.create();
+            if (editor instanceof AbstractConsoleEditor && ((AbstractConsoleEditor) editor).getDelegate() instanceof StringEditor) {
+                ((StringEditor) ((AbstractConsoleEditor) editor).getDelegate()).setJournalEnabled(true);
+            }
+            //Records the session for replaying it later, e.g. -Djledit.record=session.jledit-session
+            String recording = System.getProperty(RECORD_PROPERTY);
+            if (recording != null && editor instanceof AbstractConsoleEditor) {
+                AbstractConsoleEditor consoleEditor = (AbstractConsoleEditor) editor;
+                recorder = new SessionRecorder(new File(recording), consoleEditor.getTerminal().getWidth(), consoleEditor.getTerminal().getHeight());
+                consoleEditor.setRecorder(recorder);
+            }
+            if (Boolean.getBoolean(LATENCY_OVERLAY_PROPERTY) && editor instanceof AbstractConsoleEditor) {
+                ((AbstractConsoleEditor) editor).setLatencyOverlayEnabled(true);
+            }
             if (fileName != null) {
                 editor.open(fileName);
             }
@@ -37,6 +63,25 @@ public final class Main {
             if (editor != null) {
                 editor.stop();
             }
+        } finally {
+            Closeables.closeQuitely(recorder);
+            //Dumps the command timings on exit, e.g. -Djledit.metrics=metrics.txt
+            String metrics = System.getProperty(METRICS_PROPERTY);
+            if (metrics != null && editor instanceof AbstractConsoleEditor) {
+                dumpMetrics((AbstractConsoleEditor) editor, new File(metrics));
+            }
+        }
+    }
+
+    private static void dumpMetrics(AbstractConsoleEditor editor, File file) {
+        PrintStream out = null;
+        try {
+            out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+            editor.getMetrics().dump(out);
+        } catch (Exception e) {
+            //noop
+        } finally {
+            Closeables.closeQuitely(out);
         }
     }
 }
@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The timings and errors of the executions of a command class.
+ * The time of a command is split in the time spent in the command itself, mostly on the buffer, the time spent
+ * redrawing the screen and the time spent flushing the output to the terminal. Time spent waiting for user input,
+ * e.g. in a prompt, is not counted.
+ */
+public class CommandMetrics {
+
+    private final String name;
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private final LatencyHistogram redrawTime = new LatencyHistogram();
+    private final LatencyHistogram flushTime = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile Throwable lastError;
+
+    public CommandMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @param executionNanos The time spent in the command, excluding redraws, flushes and user input.
+     * @param redrawNanos    The time spent redrawing the screen.
+     * @param flushNanos     The time spent flushing the output.
+     */
+    public void record(long executionNanos, long redrawNanos, long flushNanos) {
+        executionTime.record(executionNanos);
+        redrawTime.record(redrawNanos);
+        flushTime.record(flushNanos);
+    }
+
+    public void recordError(Throwable error) {
+        errors.incrementAndGet();
+        lastError = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getExecutionTime() {
+        return executionTime;
+    }
+
+    public LatencyHistogram getRedrawTime() {
+        return redrawTime;
+    }
+
+    public LatencyHistogram getFlushTime() {
+        return flushTime;
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the last error thrown by the command or null.
+     *
+     * @return
+     */
+    public Throwable getLastError() {
+        return lastError;
+    }
+
+    public void reset() {
+        executionTime.reset();
+        redrawTime.reset();
+        flushTime.reset();
+        errors.set(0);
+        lastError = null;
+    }
+}
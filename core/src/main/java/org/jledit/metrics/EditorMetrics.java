@@ -0,0 +1,187 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the {@link CommandMetrics} of each command class executed by an editor and the time of every flush of the
+ * terminal output, including those outside of commands like status updates.
+ * It also records the latency from reading an operation to flushing its result, the latency from receiving a key to
+ * displaying its effect, and the durations of opening and saving files.
+ */
+public class EditorMetrics {
+
+    private final ConcurrentMap<Class<?>, CommandMetrics> commands = new ConcurrentHashMap<Class<?>, CommandMetrics>();
+    private final LatencyHistogram flushTime = new LatencyHistogram();
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private final LatencyHistogram displayLatency = new LatencyHistogram();
+    private final LatencyHistogram openTime = new LatencyHistogram();
+    private final LatencyHistogram saveTime = new LatencyHistogram();
+
+    /**
+     * Returns the metrics of the specified command, creating them if needed.
+     *
+     * @param command The command class.
+     * @return
+     */
+    public CommandMetrics getCommand(Class<?> command) {
+        CommandMetrics metrics = commands.get(command);
+        if (metrics == null) {
+            String name = command.getSimpleName().isEmpty() ? command.getName() : command.getSimpleName();
+            CommandMetrics created = new CommandMetrics(name);
+            metrics = commands.putIfAbsent(command, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of the command with the specified name.
+     *
+     * @param name The simple name of the command class.
+     * @return The metrics or null if no such command has been executed.
+     */
+    public CommandMetrics getCommand(String name) {
+        for (CommandMetrics metrics : commands.values()) {
+            if (metrics.getName().equals(name)) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the metrics of all the commands that have been executed, sorted by name.
+     *
+     * @return
+     */
+    public List<CommandMetrics> getCommands() {
+        List<CommandMetrics> result = new ArrayList<CommandMetrics>(commands.values());
+        Collections.sort(result, new Comparator<CommandMetrics>() {
+            @Override
+            public int compare(CommandMetrics first, CommandMetrics second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+        return result;
+    }
+
+    public LatencyHistogram getFlushTime() {
+        return flushTime;
+    }
+
+    /**
+     * Returns the time from reading an operation from the user input to flushing the output of its command.
+     *
+     * @return
+     */
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Returns the time from receiving a key from the terminal to flushing the output that displays its effect.
+     * Unlike {@link #getInputLatency()}, it includes the time the key waited to be read, e.g. while the previous keys
+     * were processed, so this is the latency perceived by the user.
+     *
+     * @return
+     */
+    public LatencyHistogram getDisplayLatency() {
+        return displayLatency;
+    }
+
+    public LatencyHistogram getOpenTime() {
+        return openTime;
+    }
+
+    /**
+     * Returns the durations of the successful saves, including the background ones.
+     *
+     * @return
+     */
+    public LatencyHistogram getSaveTime() {
+        return saveTime;
+    }
+
+    /**
+     * Returns the total number of executed commands.
+     *
+     * @return
+     */
+    public long getExecutions() {
+        long executions = 0;
+        for (CommandMetrics metrics : commands.values()) {
+            executions += metrics.getExecutionTime().getCount();
+        }
+        return executions;
+    }
+
+    /**
+     * Returns the total number of errors thrown by commands.
+     *
+     * @return
+     */
+    public long getErrors() {
+        long errors = 0;
+        for (CommandMetrics metrics : commands.values()) {
+            errors += metrics.getErrors();
+        }
+        return errors;
+    }
+
+    public void reset() {
+        for (CommandMetrics metrics : commands.values()) {
+            metrics.reset();
+        }
+        flushTime.reset();
+        inputLatency.reset();
+        displayLatency.reset();
+        openTime.reset();
+        saveTime.reset();
+    }
+
+    /**
+     * Prints the metrics in a human readable form.
+     *
+     * @param out
+     */
+    public void dump(PrintStream out) {
+        for (CommandMetrics metrics : getCommands()) {
+            out.println(metrics.getName() + ":");
+            out.println("  execution: " + metrics.getExecutionTime());
+            out.println("  redraw:    " + metrics.getRedrawTime());
+            out.println("  flush:     " + metrics.getFlushTime());
+            if (metrics.getErrors() > 0) {
+                out.println("  errors:    " + metrics.getErrors() + ", last: " + metrics.getLastError());
+            }
+        }
+        out.println("All flushes: " + flushTime);
+        out.println("Input latency: " + inputLatency);
+        out.println("Display latency: " + displayLatency);
+        out.println("Open: " + openTime);
+        out.println("Save: " + saveTime);
+        out.flush();
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+import org.jledit.AbstractConsoleEditor;
+import org.jledit.StringEditor;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes the statistics of an editor as a management bean, so that the sessions of an application that embeds the
+ * editor can be monitored, e.g. to find a session that uses too much memory.
+ * The statistics are read without locking the editor. The bean is unregistered when the editor stops.
+ */
+public class EditorSession implements EditorSessionMBean, Closeable {
+
+    public static final String DOMAIN = "org.jledit";
+
+    private static final AtomicInteger SESSIONS = new AtomicInteger();
+
+    private final AbstractConsoleEditor editor;
+    private final ObjectName name;
+    private final MBeanServer server;
+    private long lastFrames;
+    private long lastFrameTime = System.nanoTime();
+
+    private EditorSession(AbstractConsoleEditor editor, ObjectName name, MBeanServer server) {
+        this.editor = editor;
+        this.name = name;
+        this.server = server;
+    }
+
+    /**
+     * Registers a bean for the editor in the platform MBean server.
+     *
+     * @param editor
+     * @return The registered bean.
+     * @throws Exception
+     */
+    public static EditorSession register(AbstractConsoleEditor editor) throws Exception {
+        return register(editor, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Registers a bean for the editor.
+     *
+     * @param editor
+     * @param server
+     * @return The registered bean.
+     * @throws Exception
+     */
+    public static EditorSession register(AbstractConsoleEditor editor, MBeanServer server) throws Exception {
+        ObjectName name = new ObjectName(DOMAIN + ":type=EditorSession,id=" + SESSIONS.incrementAndGet());
+        EditorSession session = new EditorSession(editor, name, server);
+        server.registerMBean(session, name);
+        editor.setRegistration(session);
+        return session;
+    }
+
+    public ObjectName getName() {
+        return name;
+    }
+
+    /**
+     * Unregisters the bean.
+     */
+    @Override
+    public void close() {
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            //noop
+        }
+    }
+
+    @Override
+    public String getSource() {
+        return editor.getSource();
+    }
+
+    @Override
+    public boolean isDirty() {
+        return Boolean.TRUE.equals(editor.isDirty());
+    }
+
+    @Override
+    public int getLines() {
+        return editor.lines();
+    }
+
+    @Override
+    public long getLength() {
+        return content() != null ? content().getLength() : 0;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return (content() != null ? content().getMemoryUsage() : 0) + getUndoMemoryUsage();
+    }
+
+    @Override
+    public int getUndoDepth() {
+        return editor.getUndoContext().getUndoDepth();
+    }
+
+    @Override
+    public long getUndoMemoryUsage() {
+        return editor.getUndoContext().getMemoryUsage();
+    }
+
+    @Override
+    public long getCommands() {
+        return editor.getMetrics().getExecutions();
+    }
+
+    @Override
+    public long getErrors() {
+        return editor.getMetrics().getErrors();
+    }
+
+    @Override
+    public long getFrames() {
+        return editor.getMetrics().getFlushTime().getCount();
+    }
+
+    @Override
+    public synchronized double getFrameRate() {
+        long frames = getFrames();
+        long now = System.nanoTime();
+        double rate = now > lastFrameTime ? (frames - lastFrames) * (double) TimeUnit.SECONDS.toNanos(1) / (now - lastFrameTime) : 0;
+        lastFrames = frames;
+        lastFrameTime = now;
+        return rate;
+    }
+
+    @Override
+    public long getInputLatencyMedian() {
+        return micros(editor.getMetrics().getInputLatency().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getInputLatency99thPercentile() {
+        return micros(editor.getMetrics().getInputLatency().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getInputLatencyMax() {
+        return micros(editor.getMetrics().getInputLatency().getMax());
+    }
+
+    @Override
+    public long getDisplayLatencyMedian() {
+        return micros(editor.getMetrics().getDisplayLatency().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getDisplayLatency99thPercentile() {
+        return micros(editor.getMetrics().getDisplayLatency().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getDisplayLatency999thPercentile() {
+        return micros(editor.getMetrics().getDisplayLatency().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getOpenTimeMean() {
+        return micros(editor.getMetrics().getOpenTime().getMean());
+    }
+
+    @Override
+    public long getOpenTimeMax() {
+        return micros(editor.getMetrics().getOpenTime().getMax());
+    }
+
+    @Override
+    public long getSaveTimeMean() {
+        return micros(editor.getMetrics().getSaveTime().getMean());
+    }
+
+    @Override
+    public long getSaveTimeMax() {
+        return micros(editor.getMetrics().getSaveTime().getMax());
+    }
+
+    @Override
+    public String dumpMetrics() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            PrintStream out = new PrintStream(bytes, false, "UTF-8");
+            editor.getMetrics().dump(out);
+            return bytes.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Override
+    public void resetMetrics() {
+        editor.getMetrics().reset();
+    }
+
+    /**
+     * Returns the content, if the editor uses a {@link StringEditor}.
+     *
+     * @return
+     */
+    private StringEditor content() {
+        return editor.getDelegate() instanceof StringEditor ? (StringEditor) editor.getDelegate() : null;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
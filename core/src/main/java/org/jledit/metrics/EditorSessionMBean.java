@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+/**
+ * The statistics of an editor session exposed through JMX.
+ * Durations are in microseconds.
+ */
+public interface EditorSessionMBean {
+
+    String getSource();
+
+    boolean isDirty();
+
+    int getLines();
+
+    /**
+     * Returns the number of characters of the content, which is its size in bytes for single byte encodings.
+     *
+     * @return
+     */
+    long getLength();
+
+    /**
+     * Returns the estimated heap in bytes used by the content and the undo history.
+     *
+     * @return
+     */
+    long getMemoryUsage();
+
+    int getUndoDepth();
+
+    long getUndoMemoryUsage();
+
+    long getCommands();
+
+    long getErrors();
+
+    long getFrames();
+
+    /**
+     * Returns the number of frames flushed to the terminal per second since the previous call.
+     *
+     * @return
+     */
+    double getFrameRate();
+
+    long getInputLatencyMedian();
+
+    long getInputLatency99thPercentile();
+
+    long getInputLatencyMax();
+
+    long getDisplayLatencyMedian();
+
+    long getDisplayLatency99thPercentile();
+
+    long getDisplayLatency999thPercentile();
+
+    long getOpenTimeMean();
+
+    long getOpenTimeMax();
+
+    long getSaveTimeMean();
+
+    long getSaveTimeMax();
+
+    /**
+     * Prints the timings of each command.
+     *
+     * @return
+     */
+    String dumpMetrics();
+
+    void resetMetrics();
+}
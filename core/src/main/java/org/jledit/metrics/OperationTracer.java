@@ -0,0 +1,42 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+/**
+ * Traces the editor operations as they happen, e.g. as flight recorder events.
+ * An operation is traced between {@link #begin(TracedOperation)} and {@link #end(Object, String, long, long)}, so
+ * that the tracer takes its own timestamps and can skip the operations it doesn't record at the cost of a null check.
+ */
+public interface OperationTracer {
+
+    /**
+     * Called when an operation begins.
+     *
+     * @param operation
+     * @return The trace to pass to {@link #end(Object, String, long, long)} or null if the operation is not traced.
+     */
+    Object begin(TracedOperation operation);
+
+    /**
+     * Called when a traced operation ends.
+     *
+     * @param trace The trace returned by {@link #begin(TracedOperation)}.
+     * @param name  The name of the operation, see {@link TracedOperation}.
+     * @param lines The number of lines, see {@link TracedOperation}.
+     * @param bytes The number of bytes, see {@link TracedOperation}.
+     */
+    void end(Object trace, String name, long lines, long bytes);
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+/**
+ * The editor operations reported to an {@link OperationTracer}.
+ */
+public enum TracedOperation {
+
+    /**
+     * The execution of a command, named after the command class, with the number of line changes.
+     */
+    COMMAND,
+    /**
+     * The redraw of a part of the screen, with the number of rows drawn.
+     */
+    RENDER,
+    /**
+     * The flush of the output to the terminal.
+     */
+    FLUSH,
+    /**
+     * The loading and decoding of a file, named after the file, with the number of lines and bytes read.
+     */
+    LOAD,
+    /**
+     * The encoding and saving of a file, named after the file, with the number of lines and the size of the file.
+     */
+    SAVE,
+    /**
+     * A search, named after the pattern, with the number of matches.
+     */
+    SEARCH,
+    /**
+     * A replace, named after the pattern, with the number of changed lines.
+     */
+    REPLACE
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+/**
+ * Holds the {@link OperationTracer} of the editors.
+ * By default, operations are traced as Java Flight Recorder events when the flight recorder is available, unless the
+ * jledit.jfr system property is false. The events are only created while a recording enables them.
+ */
+public final class Tracing {
+
+    public static final String JFR_PROPERTY = "jledit.jfr";
+    private static final String JFR_TRACER = "org.jledit.jfr.FlightRecorderTracer";
+
+    private static volatile OperationTracer tracer = createDefaultTracer();
+
+    private Tracing() {
+        //Utility Class
+    }
+
+    /**
+     * Begins tracing an operation.
+     *
+     * @param operation
+     * @return The trace or null if the operation is not traced.
+     */
+    public static Object begin(TracedOperation operation) {
+        OperationTracer current = tracer;
+        return current != null ? current.begin(operation) : null;
+    }
+
+    /**
+     * Ends tracing an operation.
+     * Callers should check the trace before computing expensive arguments.
+     *
+     * @param trace The trace returned by {@link #begin(TracedOperation)}, may be null.
+     * @param name
+     * @param lines
+     * @param bytes
+     */
+    public static void end(Object trace, String name, long lines, long bytes) {
+        OperationTracer current = tracer;
+        if (trace != null && current != null) {
+            current.end(trace, name, lines, bytes);
+        }
+    }
+
+    public static OperationTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Sets the tracer of all the editors.
+     *
+     * @param tracer The tracer or null to disable tracing.
+     */
+    public static void setTracer(OperationTracer tracer) {
+        Tracing.tracer = tracer;
+    }
+
+    private static OperationTracer createDefaultTracer() {
+        if ("false".equalsIgnoreCase(System.getProperty(JFR_PROPERTY))) {
+            return null;
+        }
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (OperationTracer) Class.forName(JFR_TRACER).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -24,7 +24,7 @@ public class Activator implements BundleActivator {
 
     private ServiceRegistration jleditFactoryRegistration;
 
-    private EditorFactory editorFactory = new ConcreteEditorFactory();
+    private ConcreteEditorFactory editorFactory = new ConcreteEditorFactory();
 
     /**
      * Called when this bundle is started so the Framework can perform the
@@ -43,6 +43,10 @@ public class Activator implements BundleActivator {
      */
     @Override
     public void start(BundleContext context) throws Exception {
+        //The framework properties fall back to the system properties.
+        if (Boolean.valueOf(context.getProperty(ConcreteEditorFactory.MANAGEMENT_PROPERTY))) {
+            editorFactory.setManagementEnabled(true);
+        }
         jleditFactoryRegistration = context.registerService(EditorFactory.class.getName(), editorFactory, null);
     }
 
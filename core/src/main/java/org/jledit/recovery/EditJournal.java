@@ -0,0 +1,384 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.recovery;
+
+import org.jledit.utils.Closeables;
+import org.jledit.utils.internal.Charsets;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A write-ahead journal of the line changes made to a file since it was last opened or saved.
+ * <p/>
+ * Changes are encoded in memory by the editing thread and appended to a sidecar file in batches by a background
+ * thread, so editing never waits for the disk. If the JVM dies, the changes can be replayed on top of the file,
+ * as long as the file has not been modified since the journal was started.
+ */
+public class EditJournal implements LineChangeHandler, Closeable {
+
+    public static final String SUFFIX = ".jledit-journal";
+    public static final long DEFAULT_FLUSH_INTERVAL = 200;
+
+    private static final int MAGIC = 0x4A4C4A31;
+    private static final byte LINE_CHANGED = 1;
+    private static final byte LINE_INSERTED = 2;
+    private static final byte LINE_REMOVED = 3;
+    private static final byte LINES_REPLACED = 4;
+    private static final byte LINE_EDITED = 5;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long CLOSE_TIMEOUT = 5000;
+
+    private final File file;
+    private final long flushInterval;
+    private final boolean sync;
+    private final FileOutputStream fileOut;
+    private final Thread writerThread;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(BUFFER_SIZE);
+    private DataOutputStream out = new DataOutputStream(pending);
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Creates a journal, replacing any existing journal file.
+     *
+     * @param file          The journal file.
+     * @param base          The file the changes are applied to.
+     * @param flushInterval The time in milliseconds, that changes are collected before they are written.
+     * @param sync          Forces each batch to the disk, so that the journal also survives an operating system crash.
+     * @throws IOException
+     */
+    public EditJournal(File file, File base, long flushInterval, boolean sync) throws IOException {
+        this.file = file;
+        this.flushInterval = flushInterval;
+        this.sync = sync;
+        this.fileOut = new FileOutputStream(file);
+        try {
+            DataOutputStream header = new DataOutputStream(fileOut);
+            header.writeInt(MAGIC);
+            header.writeLong(base.length());
+            header.writeLong(base.lastModified());
+            header.flush();
+        } catch (IOException e) {
+            Closeables.closeQuitely(fileOut);
+            file.delete();
+            throw e;
+        }
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "EditJournalThread");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Returns the journal file of a source file, which is a hidden file in the same directory.
+     *
+     * @param source
+     * @return
+     */
+    public static File fileOf(File source) {
+        return new File(source.getAbsoluteFile().getParentFile(), "." + source.getName() + SUFFIX);
+    }
+
+    /**
+     * Checks if the journal contains changes that can be applied to the base file.
+     * This is only the case if the base file has not been modified since the journal was started.
+     *
+     * @param journal
+     * @param base
+     * @return
+     */
+    public static boolean isRecoverable(File journal, File base) {
+        if (!journal.isFile() || !base.isFile() || journal.lastModified() < base.lastModified()) {
+            return false;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal), BUFFER_SIZE));
+            return in.readInt() == MAGIC && in.readLong() == base.length() && in.readLong() == base.lastModified()
+                    && in.read() != -1;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+    }
+
+    /**
+     * Reads the journal and passes the changes to the handler.
+     * An incomplete record at the end of the journal, e.g. from a crash in the middle of a write, is ignored.
+     *
+     * @param journal
+     * @param handler
+     * @return The number of changes replayed.
+     * @throws IOException
+     */
+    public static int replay(File journal, LineChangeHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal), BUFFER_SIZE));
+        int count = 0;
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a journal file: " + journal);
+            }
+            in.readLong();
+            in.readLong();
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+                int line = in.readInt();
+                switch (type) {
+                    case LINE_CHANGED:
+                        handler.lineChanged(line, readString(in));
+                        break;
+                    case LINE_INSERTED:
+                        handler.lineInserted(line, readString(in));
+                        break;
+                    case LINE_REMOVED:
+                        handler.lineRemoved(line);
+                        break;
+                    case LINE_EDITED:
+                        int column = in.readInt();
+                        int length = in.readInt();
+                        handler.lineEdited(line, column, length, readString(in));
+                        break;
+                    case LINES_REPLACED:
+                        int removed = in.readInt();
+                        int size = in.readInt();
+                        List<String> contents = new ArrayList<String>(size);
+                        for (int i = 0; i < size; i++) {
+                            contents.add(readString(in));
+                        }
+                        handler.linesReplaced(line, removed, contents);
+                        break;
+                    default:
+                        throw new IOException("Corrupted journal file: " + journal);
+                }
+                count++;
+            }
+        } catch (EOFException e) {
+            //The last record was not written completely.
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void lineChanged(int line, String content) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.writeByte(LINE_CHANGED);
+            out.writeInt(line);
+            writeString(content);
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Records only the replaced range, so that typing in a long line doesn't write the whole line for every key.
+     */
+    @Override
+    public synchronized void lineEdited(int line, int column, int length, String inserted) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.writeByte(LINE_EDITED);
+            out.writeInt(line);
+            out.writeInt(column);
+            out.writeInt(length);
+            writeString(inserted);
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void lineInserted(int line, String content) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.writeByte(LINE_INSERTED);
+            out.writeInt(line);
+            writeString(content);
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void lineRemoved(int line) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.writeByte(LINE_REMOVED);
+            out.writeInt(line);
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void linesReplaced(int line, int count, List<String> contents) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.writeByte(LINES_REPLACED);
+            out.writeInt(line);
+            out.writeInt(count);
+            out.writeInt(contents.size());
+            for (String content : contents) {
+                writeString(content);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the error that stopped the journal from writing or null.
+     * Changes made after a failure are not journaled.
+     *
+     * @return
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the pending changes and stops the background thread.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writerThread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Closeables.closeQuitely(fileOut);
+    }
+
+    /**
+     * Closes the journal and deletes its file.
+     */
+    public void delete() {
+        Closeables.closeQuitely(this);
+        file.delete();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean done;
+            synchronized (this) {
+                try {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    //Let more changes arrive, so that they are written in a single batch.
+                    long deadline = System.currentTimeMillis() + flushInterval;
+                    long remaining = flushInterval;
+                    while (!closed && remaining > 0) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                done = closed;
+            }
+            write(swap());
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the pending changes, so that the editing thread can keep adding changes while they are written.
+     */
+    private synchronized ByteArrayOutputStream swap() {
+        ByteArrayOutputStream batch = pending;
+        pending = new ByteArrayOutputStream(BUFFER_SIZE);
+        out = new DataOutputStream(pending);
+        return batch;
+    }
+
+    private void write(ByteArrayOutputStream batch) {
+        if (batch.size() == 0 || failure != null) {
+            return;
+        }
+        try {
+            batch.writeTo(fileOut);
+            if (sync) {
+                fileOut.getFD().sync();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void writeString(String content) throws IOException {
+        byte[] bytes = content.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
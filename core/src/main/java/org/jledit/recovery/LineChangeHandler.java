@@ -0,0 +1,66 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.recovery;
+
+import java.util.List;
+
+/**
+ * Receives the line level changes of an editor, in the order they are applied.
+ */
+public interface LineChangeHandler {
+
+    /**
+     * Notifies that the content of a line was replaced.
+     *
+     * @param line    The line number (starting from 1).
+     * @param content
+     */
+    void lineChanged(int line, String content);
+
+    /**
+     * Notifies that a range inside a line was replaced.
+     *
+     * @param line     The line number (starting from 1).
+     * @param column   The first column of the range (starting from 1).
+     * @param length   The number of characters replaced.
+     * @param inserted The new content of the range.
+     */
+    void lineEdited(int line, int column, int length, String inserted);
+
+    /**
+     * Notifies that a line was inserted, shifting the following lines.
+     *
+     * @param line    The line number (starting from 1) of the new line.
+     * @param content
+     */
+    void lineInserted(int line, String content);
+
+    /**
+     * Notifies that a line was removed, shifting the following lines.
+     *
+     * @param line The line number (starting from 1).
+     */
+    void lineRemoved(int line);
+
+    /**
+     * Notifies that a block of lines was replaced by a block of possibly different size.
+     *
+     * @param line     The first line of the block (starting from 1).
+     * @param count    The number of lines replaced.
+     * @param contents The new lines.
+     */
+    void linesReplaced(int line, int count, List<String> contents);
+}
@@ -0,0 +1,232 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An Aho-Corasick automaton that finds the appearances of multiple patterns in a single pass over the text.
+ * The automaton is immutable once built and can be shared between threads.
+ */
+public class AhoCorasick {
+
+    private static final int ROOT = 0;
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final String[] patterns;
+
+    //Per state: sorted transition labels and their target states.
+    private char[][] labels = new char[16][];
+    private int[][] targets = new int[16][];
+    private int[] fail = new int[16];
+    //The pattern that ends exactly at the state or -1.
+    private int[] output = new int[16];
+    //The closest state on the failure chain that has an output or ROOT.
+    private int[] dictionary = new int[16];
+    private int[] depth = new int[16];
+    private int states = 0;
+
+    /**
+     * Creates an automaton for the specified patterns.
+     * Empty patterns are ignored.
+     *
+     * @param patterns
+     */
+    public AhoCorasick(List<String> patterns) {
+        this.patterns = patterns.toArray(new String[patterns.size()]);
+        newState(0);
+        for (int p = 0; p < this.patterns.length; p++) {
+            addPattern(p, this.patterns[p]);
+        }
+        link();
+    }
+
+    /**
+     * Returns the number of patterns.
+     *
+     * @return
+     */
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * Returns the pattern with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public String getPattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * Finds the leftmost longest, non overlapping appearances of the patterns in the text.
+     * The result contains a triple for each match: the start index, the length and the index of the pattern.
+     *
+     * @param text
+     * @return
+     */
+    public int[] find(CharSequence text) {
+        int[] bestLength = null;
+        int[] bestPattern = null;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int s = output[state] >= 0 ? state : dictionary[state]; s != ROOT; s = dictionary[s]) {
+                int start = i - depth[s] + 1;
+                if (bestLength == null) {
+                    bestLength = new int[text.length()];
+                    bestPattern = new int[text.length()];
+                }
+                if (depth[s] > bestLength[start]) {
+                    bestLength[start] = depth[s];
+                    bestPattern[start] = output[s];
+                }
+            }
+        }
+
+        if (bestLength == null) {
+            return NO_MATCHES;
+        }
+        int[] result = new int[12];
+        int count = 0;
+        for (int i = 0; i < bestLength.length; ) {
+            if (bestLength[i] > 0) {
+                if (count + 3 > result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[count++] = i;
+                result[count++] = bestLength[i];
+                result[count++] = bestPattern[i];
+                i += bestLength[i];
+            } else {
+                i++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int step(int state, char c) {
+        int s = state;
+        while (true) {
+            int next = transition(s, c);
+            if (next >= 0) {
+                return next;
+            } else if (s == ROOT) {
+                return ROOT;
+            }
+            s = fail[s];
+        }
+    }
+
+    private int transition(int state, char c) {
+        char[] stateLabels = labels[state];
+        if (stateLabels == null) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(stateLabels, c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+    private void addPattern(int index, String pattern) {
+        if (pattern == null || pattern.isEmpty()) {
+            return;
+        }
+        int state = ROOT;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            int next = transition(state, c);
+            if (next < 0) {
+                next = newState(depth[state] + 1);
+                addTransition(state, c, next);
+            }
+            state = next;
+        }
+        if (output[state] < 0) {
+            output[state] = index;
+        }
+    }
+
+    /**
+     * Computes the failure and dictionary links in breadth first order.
+     */
+    private void link() {
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int state = queue[head++];
+            if (labels[state] == null) {
+                continue;
+            }
+            for (int t = 0; t < labels[state].length; t++) {
+                char c = labels[state][t];
+                int child = targets[state][t];
+                if (state == ROOT) {
+                    fail[child] = ROOT;
+                } else {
+                    int f = fail[state];
+                    int next = transition(f, c);
+                    while (next < 0 && f != ROOT) {
+                        f = fail[f];
+                        next = transition(f, c);
+                    }
+                    fail[child] = next >= 0 ? next : ROOT;
+                }
+                int f = fail[child];
+                dictionary[child] = output[f] >= 0 ? f : dictionary[f];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private int newState(int stateDepth) {
+        if (states == fail.length) {
+            int capacity = states * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            fail = Arrays.copyOf(fail, capacity);
+            output = Arrays.copyOf(output, capacity);
+            dictionary = Arrays.copyOf(dictionary, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+        }
+        output[states] = -1;
+        depth[states] = stateDepth;
+        return states++;
+    }
+
+    private void addTransition(int state, char c, int target) {
+        char[] stateLabels = labels[state];
+        if (stateLabels == null) {
+            labels[state] = new char[]{c};
+            targets[state] = new int[]{target};
+            return;
+        }
+        int position = -(Arrays.binarySearch(stateLabels, c) + 1);
+        char[] newLabels = new char[stateLabels.length + 1];
+        int[] newTargets = new int[stateLabels.length + 1];
+        System.arraycopy(stateLabels, 0, newLabels, 0, position);
+        System.arraycopy(targets[state], 0, newTargets, 0, position);
+        newLabels[position] = c;
+        newTargets[position] = target;
+        System.arraycopy(stateLabels, position, newLabels, position + 1, stateLabels.length - position);
+        System.arraycopy(targets[state], position, newTargets, position + 1, stateLabels.length - position);
+        labels[state] = newLabels;
+        targets[state] = newTargets;
+    }
+}
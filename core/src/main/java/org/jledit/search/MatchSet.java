@@ -0,0 +1,244 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import org.jledit.utils.internal.Parallel;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * All the appearances of a String in a buffer, sorted by position.
+ * Each position is packed in a long (line in the upper and column in the lower 32 bits), so that navigation is a binary
+ * search and the set can be shifted in place when lines are inserted or removed.
+ * <p/>
+ * This class is not thread safe, it is meant to be guarded by the lock of the editor that owns it.
+ */
+public class MatchSet {
+
+    private static final long LINE_UNIT = 1L << 32;
+    private static final long[] EMPTY = new long[0];
+
+    private final String pattern;
+    private long[] positions;
+    private int size;
+
+    private MatchSet(String pattern, long[] positions, int size) {
+        this.pattern = pattern;
+        this.positions = positions;
+        this.size = size;
+    }
+
+    /**
+     * Finds all the appearances of the pattern in the specified lines.
+     * Large buffers are scanned in parallel chunks.
+     *
+     * @param pattern    The String to find.
+     * @param lines      The content, one element per line.
+     * @param candidates The line ranges that may contain the pattern (as returned by {@link TrigramIndex#candidates(String)}) or null to scan all lines.
+     * @return
+     */
+    public static MatchSet find(final String pattern, final List<String> lines, int[] candidates) {
+        if (pattern == null || pattern.isEmpty()) {
+            throw new IllegalArgumentException("Pattern should not be empty.");
+        }
+        MatchSet result = new MatchSet(pattern, new long[16], 0);
+        if (candidates != null) {
+            for (int r = 0; r < candidates.length; r += 2) {
+                for (int l = candidates[r]; l <= Math.min(candidates[r + 1], lines.size()); l++) {
+                    result.scan(l, lines.get(l - 1));
+                }
+            }
+        } else {
+            List<MatchSet> chunks = Parallel.forEachChunk(lines.size(), new Parallel.ChunkTask<MatchSet>() {
+                @Override
+                public MatchSet run(int from, int to) {
+                    MatchSet chunk = new MatchSet(pattern, EMPTY, 0);
+                    for (int l = from; l < to; l++) {
+                        chunk.scan(l + 1, lines.get(l));
+                    }
+                    return chunk;
+                }
+            });
+            for (MatchSet chunk : chunks) {
+                result.append(chunk.positions, chunk.size);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the String that was searched.
+     *
+     * @return
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the number of matches.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the line of the match with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public int getLine(int index) {
+        return (int) (positions[index] >>> 32);
+    }
+
+    /**
+     * Returns the column of the match with the specified index.
+     *
+     * @param index
+     * @return
+     */
+    public int getColumn(int index) {
+        return (int) positions[index];
+    }
+
+    /**
+     * Returns the index of the match at the specified position.
+     *
+     * @param line
+     * @param column
+     * @return The index or -1 if there is no match starting at this position.
+     */
+    public int indexOf(int line, int column) {
+        int index = Arrays.binarySearch(positions, 0, size, pack(line, column));
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the index of the first match after the specified position.
+     *
+     * @param line
+     * @param column
+     * @return The index or -1 if there is no match after this position.
+     */
+    public int next(int line, int column) {
+        int index = ceiling(pack(line, column) + 1);
+        return index < size ? index : -1;
+    }
+
+    /**
+     * Returns the index of the last match before the specified position.
+     *
+     * @param line
+     * @param column
+     * @return The index or -1 if there is no match before this position.
+     */
+    public int previous(int line, int column) {
+        return ceiling(pack(line, column)) - 1;
+    }
+
+    /**
+     * Updates the matches of a line, after its content has changed.
+     *
+     * @param line
+     * @param content
+     */
+    public void lineChanged(int line, String content) {
+        int from = ceiling(pack(line, 0));
+        int to = ceiling(pack(line + 1, 0));
+        remove(from, to);
+        insert(from, line, content);
+    }
+
+    /**
+     * Shifts the matches of the following lines and adds the matches of an inserted line.
+     *
+     * @param line
+     * @param content
+     */
+    public void lineInserted(int line, String content) {
+        int from = ceiling(pack(line, 0));
+        for (int i = from; i < size; i++) {
+            positions[i] += LINE_UNIT;
+        }
+        insert(from, line, content);
+    }
+
+    /**
+     * Removes the matches of a removed line and shifts the matches of the following lines.
+     *
+     * @param line
+     */
+    public void lineRemoved(int line) {
+        int from = ceiling(pack(line, 0));
+        int to = ceiling(pack(line + 1, 0));
+        remove(from, to);
+        for (int i = from; i < size; i++) {
+            positions[i] -= LINE_UNIT;
+        }
+    }
+
+    private static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the index of the first position that is greater or equal to the specified one.
+     */
+    private int ceiling(long position) {
+        int index = Arrays.binarySearch(positions, 0, size, position);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    private void scan(int line, String content) {
+        for (int i = content.indexOf(pattern); i >= 0; i = content.indexOf(pattern, i + 1)) {
+            ensureCapacity(size + 1);
+            positions[size++] = pack(line, i + 1);
+        }
+    }
+
+    private void insert(int index, int line, String content) {
+        MatchSet lineMatches = new MatchSet(pattern, EMPTY, 0);
+        lineMatches.scan(line, content);
+        if (lineMatches.size > 0) {
+            ensureCapacity(size + lineMatches.size);
+            System.arraycopy(positions, index, positions, index + lineMatches.size, size - index);
+            System.arraycopy(lineMatches.positions, 0, positions, index, lineMatches.size);
+            size += lineMatches.size;
+        }
+    }
+
+    private void remove(int from, int to) {
+        if (to > from) {
+            System.arraycopy(positions, to, positions, from, size - to);
+            size -= to - from;
+        }
+    }
+
+    private void append(long[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(values, 0, positions, size, count);
+        size += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(capacity, positions.length * 2 + 4));
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A trigram index over the lines of a buffer.
+ * Lines are grouped in blocks and every trigram points to the blocks that contain it, so a search only needs to scan
+ * the blocks that contain all the trigrams of the query.
+ * <p/>
+ * The index is conservative: edits only ever add trigrams, so stale entries may produce extra candidates but never hide
+ * a match. When enough stale entries accumulate {@link #needsRebuild()} returns true and the owner is expected to
+ * call {@link #rebuild(String[])}. Building happens on a background thread, edits received in the meantime are replayed
+ * on the new table before it is installed.
+ */
+public class TrigramIndex {
+
+    static final int BLOCK_SIZE = 128;
+    static final int MIN_STALE_THRESHOLD = 1024;
+    static final int TRIGRAM_LENGTH = 3;
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private Table table;
+    private boolean building = false;
+    private int generation = 0;
+    private final List<PendingEdit> pending = new ArrayList<PendingEdit>();
+
+    /**
+     * Rebuilds the index from the specified lines in a background thread.
+     * The current table (if any) keeps serving queries until the new one is ready.
+     *
+     * @param snapshot The content of the buffer, one element per line.
+     */
+    public synchronized void rebuild(final String[] snapshot) {
+        final int buildGeneration = ++generation;
+        building = true;
+        pending.clear();
+        Thread builder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Table newTable = Table.build(snapshot);
+                install(newTable, buildGeneration);
+            }
+        });
+        builder.setName("TrigramIndexBuilderThread");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Discards the index.
+     */
+    public synchronized void clear() {
+        generation++;
+        building = false;
+        pending.clear();
+        table = null;
+        notifyAll();
+    }
+
+    /**
+     * Checks if the index can be used for queries.
+     *
+     * @return
+     */
+    public synchronized boolean isReady() {
+        return table != null;
+    }
+
+    /**
+     * Waits until the index is ready and no rebuild is in progress.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return True if the index is ready.
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitReady(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while ((building || table == null) && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return !building && table != null;
+    }
+
+    /**
+     * Checks if the index has accumulated enough stale entries to justify a rebuild.
+     *
+     * @return
+     */
+    public synchronized boolean needsRebuild() {
+        return !building && table != null && table.stale > Math.max(MIN_STALE_THRESHOLD, table.blocks.size());
+    }
+
+    /**
+     * Notifies the index that the content of a line has changed.
+     *
+     * @param line    The line number (starting from 1).
+     * @param content The new content of the line.
+     */
+    public synchronized void lineChanged(int line, String content) {
+        if (table != null) {
+            table.lineChanged(line, content);
+        }
+        if (building) {
+            pending.add(new PendingEdit(PendingEdit.CHANGED, line, content));
+        }
+    }
+
+    /**
+     * Notifies the index that a line has been inserted.
+     *
+     * @param line    The line number (starting from 1) of the inserted line.
+     * @param content The content of the inserted line.
+     */
+    public synchronized void lineInserted(int line, String content) {
+        if (table != null) {
+            table.lineInserted(line, content);
+        }
+        if (building) {
+            pending.add(new PendingEdit(PendingEdit.INSERTED, line, content));
+        }
+    }
+
+    /**
+     * Notifies the index that a line has been removed.
+     *
+     * @param line The line number (starting from 1) of the removed line.
+     */
+    public synchronized void lineRemoved(int line) {
+        if (table != null) {
+            table.lineRemoved(line);
+        }
+        if (building) {
+            pending.add(new PendingEdit(PendingEdit.REMOVED, line, null));
+        }
+    }
+
+    /**
+     * Returns the line ranges that may contain the specified String.
+     * The result contains pairs of first and last line (inclusive, starting from 1) in ascending order.
+     *
+     * @param str The String to search.
+     * @return The candidate ranges or null if the index cannot narrow down the search.
+     */
+    public synchronized int[] candidates(String str) {
+        if (table == null || str == null || str.length() < TRIGRAM_LENGTH) {
+            return null;
+        }
+        return table.candidates(str);
+    }
+
+    private synchronized void install(Table newTable, int buildGeneration) {
+        if (buildGeneration == generation) {
+            for (PendingEdit edit : pending) {
+                switch (edit.type) {
+                    case PendingEdit.CHANGED:
+                        newTable.lineChanged(edit.line, edit.content);
+                        break;
+                    case PendingEdit.INSERTED:
+                        newTable.lineInserted(edit.line, edit.content);
+                        break;
+                    case PendingEdit.REMOVED:
+                        newTable.lineRemoved(edit.line);
+                        break;
+                }
+            }
+            pending.clear();
+            table = newTable;
+            building = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Encodes the trigram that starts at the specified index.
+     * The top bit marks the key as used, so that an empty slot can be represented by zero.
+     */
+    static long trigram(CharSequence str, int index) {
+        return (1L << 48) | ((long) str.charAt(index) << 32) | ((long) str.charAt(index + 1) << 16) | str.charAt(index + 2);
+    }
+
+    private static final class PendingEdit {
+        static final int CHANGED = 0;
+        static final int INSERTED = 1;
+        static final int REMOVED = 2;
+
+        private final int type;
+        private final int line;
+        private final String content;
+
+        private PendingEdit(int type, int line, String content) {
+            this.type = type;
+            this.line = line;
+            this.content = content;
+        }
+    }
+
+    private static final class Block {
+        private final int id;
+        private int lines;
+
+        private Block(int id, int lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * The blocks and the postings of the index.
+     * Postings are kept in an open addressing table that maps each trigram to a sorted array of block ids.
+     */
+    private static final class Table {
+
+        private final List<Block> blocks = new ArrayList<Block>();
+        private int nextId = 0;
+        private int stale = 0;
+
+        private long[] keys = new long[1024];
+        private int[][] postings = new int[1024][];
+        private int[] sizes = new int[1024];
+        private int size = 0;
+
+        //The last located block, edits tend to be local.
+        private int cachedIndex = 0;
+        private int cachedStart = 1;
+
+        static Table build(String[] lines) {
+            Table table = new Table();
+            for (int start = 0; start < lines.length; start += BLOCK_SIZE) {
+                int end = Math.min(lines.length, start + BLOCK_SIZE);
+                Block block = new Block(table.nextId++, end - start);
+                table.blocks.add(block);
+                for (int l = start; l < end; l++) {
+                    table.addTrigrams(block, lines[l]);
+                }
+            }
+            return table;
+        }
+
+        void lineChanged(int line, String content) {
+            int index = locate(line);
+            if (index >= 0) {
+                addTrigrams(blocks.get(index), content);
+                stale++;
+            }
+        }
+
+        void lineInserted(int line, String content) {
+            Block block;
+            if (blocks.isEmpty()) {
+                block = new Block(nextId++, 0);
+                blocks.add(block);
+            } else {
+                int index = locate(line);
+                block = blocks.get(index < 0 ? blocks.size() - 1 : index);
+            }
+            block.lines++;
+            if (block.lines > 4 * BLOCK_SIZE) {
+                stale++;
+            }
+            addTrigrams(block, content);
+        }
+
+        void lineRemoved(int line) {
+            int index = locate(line);
+            if (index >= 0) {
+                Block block = blocks.get(index);
+                block.lines--;
+                if (block.lines == 0) {
+                    blocks.remove(index);
+                    cachedIndex = 0;
+                    cachedStart = 1;
+                }
+                stale++;
+            }
+        }
+
+        int[] candidates(String str) {
+            int[][] lists = new int[str.length() - TRIGRAM_LENGTH + 1][];
+            int[] lengths = new int[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                int slot = find(trigram(str, i));
+                if (keys[slot] == 0) {
+                    return NO_CANDIDATES;
+                }
+                lists[i] = postings[slot];
+                lengths[i] = sizes[slot];
+            }
+
+            //Start from the shortest postings list and intersect with the rest.
+            int shortest = 0;
+            for (int i = 1; i < lists.length; i++) {
+                if (lengths[i] < lengths[shortest]) {
+                    shortest = i;
+                }
+            }
+            int[] result = Arrays.copyOf(lists[shortest], lengths[shortest]);
+            int count = result.length;
+            for (int i = 0; i < lists.length && count > 0; i++) {
+                if (i != shortest && lists[i] != lists[shortest]) {
+                    count = intersect(result, count, lists[i], lengths[i]);
+                }
+            }
+
+            int[] ranges = new int[2 * count];
+            int rangeCount = 0;
+            int start = 1;
+            for (Block block : blocks) {
+                if (block.lines > 0 && Arrays.binarySearch(result, 0, count, block.id) >= 0) {
+                    int end = start + block.lines - 1;
+                    if (rangeCount > 0 && ranges[rangeCount - 1] == start - 1) {
+                        ranges[rangeCount - 1] = end;
+                    } else {
+                        if (rangeCount == ranges.length) {
+                            ranges = Arrays.copyOf(ranges, ranges.length * 2 + 2);
+                        }
+                        ranges[rangeCount++] = start;
+                        ranges[rangeCount++] = end;
+                    }
+                }
+                start += block.lines;
+            }
+            return Arrays.copyOf(ranges, rangeCount);
+        }
+
+        /**
+         * Keeps in target only the ids that also exist in other.
+         *
+         * @return The number of remaining ids.
+         */
+        private static int intersect(int[] target, int targetLength, int[] other, int otherLength) {
+            int count = 0;
+            int j = 0;
+            for (int i = 0; i < targetLength && j < otherLength; i++) {
+                while (j < otherLength && other[j] < target[i]) {
+                    j++;
+                }
+                if (j < otherLength && other[j] == target[i]) {
+                    target[count++] = target[i];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the index of the block that contains the specified line.
+         *
+         * @return The index of the block or -1 if the line is beyond the last block.
+         */
+        private int locate(int line) {
+            if (cachedIndex >= blocks.size() || line < cachedStart) {
+                cachedIndex = 0;
+                cachedStart = 1;
+            }
+            int start = cachedStart;
+            for (int index = cachedIndex; index < blocks.size(); index++) {
+                Block block = blocks.get(index);
+                if (line < start + block.lines) {
+                    cachedIndex = index;
+                    cachedStart = start;
+                    return index;
+                }
+                start += block.lines;
+            }
+            return -1;
+        }
+
+        private void addTrigrams(Block block, String content) {
+            for (int i = 0; i + TRIGRAM_LENGTH <= content.length(); i++) {
+                add(trigram(content, i), block.id);
+            }
+        }
+
+        private void add(long key, int id) {
+            int slot = find(key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                postings[slot] = new int[]{id};
+                sizes[slot] = 1;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+
+            int[] list = postings[slot];
+            int length = sizes[slot];
+            int last = list[length - 1];
+            if (last == id) {
+                return;
+            }
+            int position = last < id ? -(length + 1) : Arrays.binarySearch(list, 0, length, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -(position + 1);
+            if (length == list.length) {
+                list = Arrays.copyOf(list, length * 2);
+                postings[slot] = list;
+            }
+            System.arraycopy(list, position, list, position + 1, length - position);
+            list[position] = id;
+            sizes[slot] = length + 1;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[][] oldPostings = postings;
+            int[] oldSizes = sizes;
+            keys = new long[oldKeys.length * 2];
+            postings = new int[oldKeys.length * 2][];
+            sizes = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    postings[slot] = oldPostings[i];
+                    sizes[slot] = oldSizes[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.session;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and latencies of a {@link SessionReplay}.
+ */
+public class ReplayResult {
+
+    private final long[] latencies;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public ReplayResult(long[] latencies, long bytes, long elapsedNanos) {
+        this.latencies = latencies;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of replayed records.
+     *
+     * @return
+     */
+    public int getRecords() {
+        return latencies.length;
+    }
+
+    /**
+     * Returns the number of replayed bytes.
+     *
+     * @return
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the editor took to process each record, from typing it to waiting for input.
+     *
+     * @return
+     */
+    public long[] getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Returns the number of records processed per second.
+     *
+     * @return
+     */
+    public double getThroughput() {
+        return elapsedNanos > 0 ? latencies.length * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    /**
+     * Returns a percentile of the latencies.
+     *
+     * @param percentile Between 0 and 100.
+     * @return The latency in nanoseconds or 0 if there are no records.
+     */
+    public long getLatency(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records in %d ms (%.1f/s), latency p50 %d us, p99 %d us, max %d us",
+                latencies.length, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                getLatency(50) / 1000, getLatency(99) / 1000, getLatency(100) / 1000);
+    }
+}
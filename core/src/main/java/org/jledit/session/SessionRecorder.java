@@ -0,0 +1,165 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.session;
+
+import org.jledit.utils.Closeables;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Records the raw input of an editing session with timestamps, so that it can be replayed by {@link SessionReplay}.
+ * <p/>
+ * Input is recorded as it is consumed by the editor through {@link #wrap(InputStream)}. Bytes read within
+ * {@link #MERGE_INTERVAL} microseconds of each other, like the bytes of an escape sequence or a paste, are stored as
+ * a single record. Each record is the time since the previous record and the length as variable length integers,
+ * followed by the bytes, so a typed key usually takes 3 bytes.
+ */
+public class SessionRecorder implements Closeable {
+
+    public static final String SUFFIX = ".jledit-session";
+    public static final long MERGE_INTERVAL = 1000;
+
+    static final int MAGIC = 0x4A4C5331;
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long pendingTime;
+    private long lastRecordTime;
+    private long lastReadTime;
+    private boolean closed;
+
+    /**
+     * Creates a recording, replacing any existing file.
+     *
+     * @param file   The recording file.
+     * @param width  The width of the terminal.
+     * @param height The height of the terminal.
+     * @throws IOException
+     */
+    public SessionRecorder(File file, int width, int height) throws IOException {
+        this.out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeLong(System.currentTimeMillis());
+            header.writeShort(width);
+            header.writeShort(height);
+            header.flush();
+        } catch (IOException e) {
+            Closeables.closeQuitely(out);
+            throw e;
+        }
+        this.lastRecordTime = now();
+        this.lastReadTime = lastRecordTime;
+    }
+
+    /**
+     * Wraps an input stream, so that everything read from it is recorded.
+     *
+     * @param in
+     * @return
+     */
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    record(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    record(b, off, count);
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Records bytes read at the current time.
+     *
+     * @param bytes
+     * @param off
+     * @param len
+     * @throws IOException
+     */
+    public synchronized void record(byte[] bytes, int off, int len) throws IOException {
+        if (closed) {
+            return;
+        }
+        long time = now();
+        if (pending.size() > 0 && time - lastReadTime >= MERGE_INTERVAL) {
+            writePending();
+        }
+        if (pending.size() == 0) {
+            pendingTime = time;
+        }
+        pending.write(bytes, off, len);
+        lastReadTime = time;
+    }
+
+    private void writePending() throws IOException {
+        writeVarLong(out, pendingTime - lastRecordTime);
+        writeVarLong(out, pending.size());
+        pending.writeTo(out);
+        //Keys are typed by humans, so flushing each record costs little and keeps the recording if the JVM dies.
+        out.flush();
+        lastRecordTime = pendingTime;
+        pending.reset();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (pending.size() > 0) {
+                writePending();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000;
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
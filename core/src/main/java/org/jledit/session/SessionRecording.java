@@ -0,0 +1,160 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.session;
+
+import org.jledit.utils.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A session recorded by {@link SessionRecorder}.
+ */
+public class SessionRecording {
+
+    private final long startTime;
+    private final int width;
+    private final int height;
+    private final long[] times;
+    private final List<byte[]> keys;
+
+    private SessionRecording(long startTime, int width, int height, long[] times, List<byte[]> keys) {
+        this.startTime = startTime;
+        this.width = width;
+        this.height = height;
+        this.times = times;
+        this.keys = keys;
+    }
+
+    /**
+     * Reads a recording. A truncated last record, left by a recorder that was not closed, is ignored.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static SessionRecording read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != SessionRecorder.MAGIC) {
+                throw new IOException("File " + file + " is not a session recording.");
+            }
+            long startTime = in.readLong();
+            int width = in.readUnsignedShort();
+            int height = in.readUnsignedShort();
+            long[] times = new long[64];
+            List<byte[]> keys = new ArrayList<byte[]>();
+            long time = 0;
+            try {
+                while (true) {
+                    long delta = readVarLong(in);
+                    if (delta < 0) {
+                        break;
+                    }
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.readFully(bytes);
+                    time += delta;
+                    if (keys.size() == times.length) {
+                        times = Arrays.copyOf(times, times.length * 2);
+                    }
+                    times[keys.size()] = time;
+                    keys.add(bytes);
+                }
+            } catch (EOFException e) {
+                //noop
+            }
+            return new SessionRecording(startTime, width, height, Arrays.copyOf(times, keys.size()), keys);
+        } finally {
+            Closeables.closeQuitely(in);
+        }
+    }
+
+    /**
+     * Reads a variable length integer.
+     *
+     * @return The value or -1 at the end of the stream.
+     */
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns the time the recording started, in milliseconds since the epoch.
+     *
+     * @return
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the time of a record in microseconds since the start of the recording.
+     *
+     * @param index
+     * @return
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * Returns the bytes of a record.
+     *
+     * @param index
+     * @return
+     */
+    public byte[] getKeys(int index) {
+        return keys.get(index);
+    }
+}
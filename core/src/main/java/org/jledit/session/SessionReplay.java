@@ -0,0 +1,176 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.session;
+
+import org.jledit.AbstractConsoleEditor;
+import org.jledit.simple.SimpleConsoleEditor;
+import org.jledit.terminal.HeadlessTerminal;
+import org.jledit.terminal.VirtualScreen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a {@link SessionRecording} through an editor on a {@link HeadlessTerminal}.
+ * <p/>
+ * The editor runs on its own thread, like it does on a real terminal. Each record is typed once the editor is idle,
+ * either right away or at its recorded time, and the time until the editor is idle again is its latency. In real time,
+ * a record that could not be typed on time because the editor was still busy is measured from its recorded time, so
+ * that the latencies include the time the user would have waited.
+ */
+public class SessionReplay {
+
+    private static final long JOIN_TIMEOUT = 5000;
+
+    private final SessionRecording recording;
+    private final AbstractConsoleEditor editor;
+    private final HeadlessTerminal terminal;
+    private final VirtualScreen screen;
+
+    /**
+     * Creates a replay through a {@link SimpleConsoleEditor}, with a terminal of the recorded size.
+     *
+     * @param recording
+     * @throws Exception
+     */
+    public SessionReplay(SessionRecording recording) throws Exception {
+        this.recording = recording;
+        this.terminal = new HeadlessTerminal(recording.getWidth(), recording.getHeight());
+        this.screen = new VirtualScreen(recording.getWidth(), recording.getHeight());
+        this.editor = new SimpleConsoleEditor(terminal, null, new PrintStream(screen, false, "UTF-8"));
+    }
+
+    /**
+     * Creates a replay through an editor, that uses the specified terminal.
+     *
+     * @param recording
+     * @param editor
+     * @param terminal
+     */
+    public SessionReplay(SessionRecording recording, AbstractConsoleEditor editor, HeadlessTerminal terminal) {
+        this.recording = recording;
+        this.editor = editor;
+        this.terminal = terminal;
+        this.screen = null;
+    }
+
+    /**
+     * Replays the recording and stops the editor input.
+     *
+     * @param realTime Whether to type each record at its recorded time or as soon as the editor is idle.
+     * @return
+     * @throws IOException If the editor failed or did not stop.
+     * @throws InterruptedException
+     */
+    public ReplayResult replay(boolean realTime) throws IOException, InterruptedException {
+        final IOException[] failure = new IOException[1];
+        Thread editorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    editor.activate();
+                    while (editor.processOperation()) {
+                        //noop
+                    }
+                } catch (Exception e) {
+                    failure[0] = new IOException("Editor failed during replay.", e);
+                } finally {
+                    //Stops waiting for the editor, if it stopped before the end of the replay.
+                    terminal.endInput();
+                }
+            }
+        });
+        editorThread.setName("SessionReplayThread");
+        editorThread.setDaemon(true);
+        editorThread.start();
+
+        long[] latencies = new long[recording.size()];
+        int replayed = 0;
+        long bytes = 0;
+        terminal.awaitIdle();
+        long start = System.nanoTime();
+        for (; replayed < latencies.length && editorThread.isAlive(); replayed++) {
+            long typed = System.nanoTime();
+            if (realTime) {
+                long scheduled = start + TimeUnit.MICROSECONDS.toNanos(recording.getTime(replayed));
+                if (scheduled > typed) {
+                    //Sleeping may round the time down to milliseconds.
+                    while (scheduled > typed) {
+                        TimeUnit.NANOSECONDS.sleep(scheduled - typed);
+                        typed = System.nanoTime();
+                    }
+                } else {
+                    typed = scheduled;
+                }
+            }
+            byte[] keys = recording.getKeys(replayed);
+            terminal.type(keys);
+            terminal.awaitIdle();
+            latencies[replayed] = System.nanoTime() - typed;
+            bytes += keys.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        terminal.endInput();
+        editorThread.join(JOIN_TIMEOUT);
+        if (editorThread.isAlive()) {
+            throw new IOException("Editor did not stop at the end of the replay.");
+        } else if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new ReplayResult(Arrays.copyOf(latencies, replayed), bytes, elapsed);
+    }
+
+    /**
+     * Replays a recording and prints the result.
+     * Usage: SessionReplay [--real-time] recording [file to open]
+     *
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        boolean realTime = args.length > 0 && args[0].equals("--real-time");
+        int first = realTime ? 1 : 0;
+        if (args.length <= first) {
+            System.err.println("Usage: SessionReplay [--real-time] recording [file to open]");
+            return;
+        }
+        SessionReplay replay = new SessionReplay(SessionRecording.read(new File(args[first])));
+        if (args.length > first + 1) {
+            replay.getEditor().open(args[first + 1]);
+        }
+        System.out.println(replay.replay(realTime));
+    }
+
+    public AbstractConsoleEditor getEditor() {
+        return editor;
+    }
+
+    public HeadlessTerminal getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Returns the screen of the editor or null, if the editor was not created by the replay.
+     *
+     * @return
+     */
+    public VirtualScreen getScreen() {
+        return screen;
+    }
+}
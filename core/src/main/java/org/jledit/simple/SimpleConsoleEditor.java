@@ -24,6 +24,7 @@ import org.jledit.command.editor.DeleteCommand;
 import org.jledit.command.editor.FindCommand;
 import org.jledit.command.editor.FindNextCommand;
 import org.jledit.command.editor.FindPreviousCommand;
+import org.jledit.command.editor.ReplaceAllCommand;
 import org.jledit.command.editor.GoToCommand;
 import org.jledit.command.editor.MoveCursorDownCommand;
 import org.jledit.command.editor.MoveCursorLeftCommand;
@@ -43,6 +44,7 @@ import org.jledit.command.undo.UndoCommand;
 import org.jledit.AbstractConsoleEditor;
 import org.jledit.EditorOperation;
 import org.jledit.EditorOperationType;
+import org.jledit.search.MatchSet;
 import org.jledit.utils.Strings;
 import org.jledit.utils.internal.KeyMaps;
 
@@ -57,6 +59,8 @@ import static org.fusesource.jansi.Ansi.ansi;
 
 public class SimpleConsoleEditor extends AbstractConsoleEditor {
 
+    private static final String RESET = ansi().reset().toString();
+
     private final Map<String, String> supportedOperations = new LinkedHashMap<String, String>();
     private final List<String> helpLines = new LinkedList<String>();
 
@@ -73,13 +77,14 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
         supportedOperations.put("^F", "Find");
         supportedOperations.put("^N", "Next");
         supportedOperations.put("^P", "Previous");
+        supportedOperations.put("^W", "Replace");
         addHelpLines(helpLines);
         setFooterSize(helpLines.size() + 1);
     }
 
     public void redrawHeader() {
         saveCursorPosition();
-        getConsole().out().print(ansi().cursor(1, 1));
+        cursor(1, 1);
         Ansi style = ansi();
         if (getTheme().getHeaderBackground() != null) {
             style.bg(getTheme().getHeaderBackground());
@@ -87,12 +92,15 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
         if (getTheme().getHeaderForeground() != null) {
             style.fg(getTheme().getHeaderForeground());
         }
-        String textCoords = "L:" + getLine() + " C:" + getColumn();
-        int displayFileLength = getTerminal().getWidth() - getTitle().length() - textCoords.length() - 1;
-        getConsole().out().print(style.a(getTitle()).a(":").a(Strings.tryToTrimToSize(getDisplayAs(), displayFileLength)).a(isDirty() ? DIRTY_SIGN : "").eraseLine(Ansi.Erase.FORWARD));
-        getConsole().out().print(ansi().cursor(1, getTerminal().getWidth() - textCoords.length()));
-        getConsole().out().print(ansi().a(textCoords).reset());
-        getConsole().out().print(ansi().cursor(getTerminal().getHeight(), 1));
+        String overlay = getLatencyOverlay();
+        String textCoords = (overlay != null ? overlay + " " : "") + "L:" + getLine() + " C:" + getColumn();
+        String saveStatus = getSaveStatus() != null ? " [" + getSaveStatus().getText() + "]" : "";
+        int displayFileLength = getTerminal().getWidth() - getTitle().length() - textCoords.length() - saveStatus.length() - 1;
+        getConsole().out().print(style.a(getTitle()).a(":").a(Strings.tryToTrimToSize(getDisplayAs(), displayFileLength)).a(isDirty() ? DIRTY_SIGN : "").a(saveStatus).eraseLine(Ansi.Erase.FORWARD));
+        cursor(1, getTerminal().getWidth() - textCoords.length());
+        getConsole().out().print(textCoords);
+        getConsole().out().print(RESET);
+        cursor(getTerminal().getHeight(), 1);
         restoreCursorPosition();
     }
 
@@ -109,15 +117,22 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
             style.fg(getTheme().getFooterForeground());
         }
         getConsole().out().print(style);
-        getConsole().out().print(ansi().cursor(getTerminal().getHeight() + 1 - getFooterSize(), 1).eraseLine(Ansi.Erase.FORWARD));
+        cursor(getTerminal().getHeight() + 1 - getFooterSize(), 1);
+        eraseLine();
+        MatchSet matches = getMatches();
+        if (matches != null) {
+            int index = matches.indexOf(getLine(), getColumn());
+            getConsole().out().print(index >= 0 ? "Match " + (index + 1) + " of " + matches.size() : matches.size() + " matches");
+        }
         for (int i = 1; i <= helpLines.size(); i++) {
             String helpLine = helpLines.get(i - 1);
             int startColumn = (getTerminal().getWidth() - helpLine.length()) / 2;
-            getConsole().out().print(ansi().cursor(getTerminal().getHeight() + 1 - getFooterSize() + i, 1).eraseLine(Ansi.Erase.FORWARD));
-            getConsole().out().print(ansi().cursor(getTerminal().getHeight() + 1 - getFooterSize() + i, startColumn));
+            cursor(getTerminal().getHeight() + 1 - getFooterSize() + i, 1);
+            eraseLine();
+            cursor(getTerminal().getHeight() + 1 - getFooterSize() + i, startColumn);
             getConsole().out().print(helpLine);
         }
-        getConsole().out().print(ansi().reset());
+        getConsole().out().print(RESET);
         restoreCursorPosition();
     }
 
@@ -200,6 +215,8 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
                 return new FindNextCommand(this, null);
             case FIND_PREVIOUS:
                 return new FindPreviousCommand(this, null);
+            case REPLACE_ALL:
+                return new ReplaceAllCommand(this);
             case GOTO:
                 return new GoToCommand(this);
 
@@ -233,7 +250,7 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
                 null,                               /* Control-T */
                 EditorOperationType.UNDO,           /* Control-U */
                 EditorOperationType.PASTE,          /* Control-V */
-                null,                               /* Control-W */
+                EditorOperationType.REPLACE_ALL,    /* Control-W */
                 EditorOperationType.QUIT,           /* Control-X */
                 null,                               /* Control-Y */
                 EditorOperationType.UNDO,           /* Control-Z */
@@ -258,8 +275,12 @@ public class SimpleConsoleEditor extends AbstractConsoleEditor {
 
     @Override
     public void setDirty(Boolean dirty) {
+        boolean changed = !dirty.equals(isDirty());
         super.setDirty(dirty);
-        redrawHeader();
+        //The header is redrawn after every command anyway, only a change needs to show right away.
+        if (changed) {
+            redrawHeader();
+        }
     }
 
     @Override
@@ -0,0 +1,210 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.terminal;
+
+import jline.TerminalSupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * An in-memory {@link jline.Terminal} of a configurable size, for running the editor without a TTY.
+ * The input of the editor is replaced with the keys passed to {@link #type(String)}. Reading blocks while there are no
+ * keys, like a real terminal, so the keys of an operation should be typed before the editor is asked to process it.
+ * The output can be interpreted with a {@link VirtualScreen}.
+ */
+public class HeadlessTerminal extends TerminalSupport {
+
+    private final KeyInputStream keys = new KeyInputStream();
+    private volatile int width;
+    private volatile int height;
+
+    public HeadlessTerminal(int width, int height) {
+        super(true);
+        this.width = width;
+        this.height = height;
+        setAnsiSupported(true);
+    }
+
+    @Override
+    public void init() throws Exception {
+        //noop
+    }
+
+    @Override
+    public void restore() throws Exception {
+        //noop
+    }
+
+    @Override
+    public void reset() throws Exception {
+        //noop
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Resizes the terminal.
+     *
+     * @param width
+     * @param height
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the typed keys instead of the specified stream.
+     */
+    @Override
+    public InputStream wrapInIfNeeded(InputStream in) throws IOException {
+        return keys;
+    }
+
+    /**
+     * Appends keys to the input, encoded as UTF-8.
+     *
+     * @param keys
+     */
+    public void type(String keys) {
+        try {
+            type(keys.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends bytes to the input.
+     *
+     * @param bytes
+     */
+    public void type(byte[] bytes) {
+        keys.append(bytes);
+    }
+
+    /**
+     * Returns the number of typed bytes that have not been read yet.
+     *
+     * @return
+     */
+    public int getPendingKeys() {
+        return keys.available();
+    }
+
+    /**
+     * Waits until all typed keys have been read and the reader is waiting for more, i.e. the editor has processed the
+     * keys and is idle. Returns immediately once the input has ended.
+     *
+     * @throws InterruptedException
+     */
+    public void awaitIdle() throws InterruptedException {
+        keys.awaitIdle();
+    }
+
+    /**
+     * Ends the input, so that the editor stops reading once it has read the typed keys.
+     */
+    public void endInput() {
+        keys.close();
+    }
+
+    private static class KeyInputStream extends InputStream {
+
+        private byte[] buffer = new byte[256];
+        private int start;
+        private int end;
+        private boolean closed;
+        private boolean waiting;
+
+        synchronized void append(byte[] bytes) {
+            if (end + bytes.length > buffer.length) {
+                int pending = end - start;
+                byte[] target = pending + bytes.length > buffer.length ? new byte[Math.max(buffer.length * 2, pending + bytes.length)] : buffer;
+                System.arraycopy(buffer, start, target, 0, pending);
+                buffer = target;
+                start = 0;
+                end = pending;
+            }
+            System.arraycopy(bytes, 0, buffer, end, bytes.length);
+            end += bytes.length;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            while (start == end) {
+                if (closed) {
+                    return -1;
+                }
+                waiting = true;
+                notifyAll();
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for input.");
+                } finally {
+                    waiting = false;
+                }
+            }
+            return buffer[start++] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int first = read();
+            if (first < 0) {
+                return -1;
+            }
+            b[off] = (byte) first;
+            int count = Math.min(len - 1, end - start);
+            System.arraycopy(buffer, start, b, off + 1, count);
+            start += count;
+            return count + 1;
+        }
+
+        synchronized void awaitIdle() throws InterruptedException {
+            while (!closed && (start != end || !waiting)) {
+                wait();
+            }
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
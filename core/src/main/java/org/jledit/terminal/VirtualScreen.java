@@ -0,0 +1,615 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.terminal;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * A lightweight VT100/ANSI interpreter, that reconstructs the screen from the output of the editor.
+ * It supports the subset of escape sequences used by the editor: cursor movement, erasing, scrolling regions, scrolling
+ * and colors. Other sequences are counted and ignored.
+ * It also counts the bytes, escape sequences and characters it receives, to measure the cost of rendering.
+ */
+public class VirtualScreen extends OutputStream {
+
+    public static final int DEFAULT_COLOR = -1;
+
+    private static final char ESCAPE = 27;
+    private static final int BOLD = 1 << 16;
+    private static final int DEFAULT_STYLE = style(DEFAULT_COLOR, DEFAULT_COLOR, false);
+
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(4096);
+    private final CharBuffer chars = CharBuffer.allocate(4096);
+    private final StringBuilder sequence = new StringBuilder();
+    private boolean inEscape;
+
+    private int width;
+    private int height;
+    private char[][] cells;
+    private int[][] styles;
+    private int row;
+    private int column;
+    private int savedRow;
+    private int savedColumn;
+    private int scrollTop;
+    private int scrollBottom;
+    private int style = DEFAULT_STYLE;
+
+    private long bytesWritten;
+    private long escapeSequences;
+    private long charactersPrinted;
+
+    public VirtualScreen(int width, int height) {
+        this(width, height, Charset.forName("UTF-8"));
+    }
+
+    public VirtualScreen(int width, int height, Charset charset) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        resize(width, height);
+    }
+
+    /**
+     * Resizes the screen, keeping the content that still fits.
+     *
+     * @param width
+     * @param height
+     */
+    public synchronized void resize(int width, int height) {
+        char[][] newCells = new char[height][width];
+        int[][] newStyles = new int[height][width];
+        for (int r = 0; r < height; r++) {
+            Arrays.fill(newCells[r], ' ');
+            Arrays.fill(newStyles[r], DEFAULT_STYLE);
+            if (cells != null && r < this.height) {
+                int count = Math.min(width, this.width);
+                System.arraycopy(cells[r], 0, newCells[r], 0, count);
+                System.arraycopy(styles[r], 0, newStyles[r], 0, count);
+            }
+        }
+        this.cells = newCells;
+        this.styles = newStyles;
+        this.width = width;
+        this.height = height;
+        this.scrollTop = 0;
+        this.scrollBottom = height - 1;
+        this.row = Math.min(row, height - 1);
+        this.column = Math.min(column, width - 1);
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        bytesWritten += len;
+        while (len > 0) {
+            int count = Math.min(len, bytes.remaining());
+            bytes.put(b, off, count);
+            off += count;
+            len -= count;
+            bytes.flip();
+            decoder.decode(bytes, chars, false);
+            bytes.compact();
+            chars.flip();
+            while (chars.hasRemaining()) {
+                interpret(chars.get());
+            }
+            chars.clear();
+        }
+    }
+
+    private void interpret(char c) {
+        if (inEscape) {
+            sequence.append(c);
+            if (isComplete(sequence)) {
+                inEscape = false;
+                escapeSequences++;
+                execute(sequence);
+                sequence.setLength(0);
+            }
+            return;
+        }
+        switch (c) {
+            case ESCAPE:
+                inEscape = true;
+                break;
+            case '\r':
+                column = 0;
+                break;
+            case '\n':
+                //Output post processing of terminals translates a line feed to a carriage return and a line feed.
+                column = 0;
+                lineFeed();
+                break;
+            case '\b':
+                column = Math.max(0, column - 1);
+                break;
+            case '\t':
+                column = Math.min(width - 1, (column / 8 + 1) * 8);
+                break;
+            case 7:
+                break;
+            default:
+                print(c);
+        }
+    }
+
+    /**
+     * Checks if a sequence that follows an escape character is complete.
+     */
+    private static boolean isComplete(CharSequence sequence) {
+        char first = sequence.charAt(0);
+        if (first != '[') {
+            //Two character sequences, e.g. ESC 7 or ESC M, or character set selections like ESC ( B.
+            return first != '(' && first != ')' || sequence.length() == 2;
+        }
+        if (sequence.length() == 1) {
+            return false;
+        }
+        char last = sequence.charAt(sequence.length() - 1);
+        return last >= '@' && last <= '~';
+    }
+
+    private void execute(CharSequence sequence) {
+        char first = sequence.charAt(0);
+        if (first != '[') {
+            switch (first) {
+                case '7':
+                    saveCursor();
+                    break;
+                case '8':
+                    restoreCursor();
+                    break;
+                case 'D':
+                    lineFeed();
+                    break;
+                case 'M':
+                    reverseLineFeed();
+                    break;
+                case 'c':
+                    reset();
+                    break;
+                default:
+            }
+            return;
+        }
+        char command = sequence.charAt(sequence.length() - 1);
+        String body = sequence.subSequence(1, sequence.length() - 1).toString();
+        if (body.startsWith("?") || body.startsWith(">")) {
+            //Private modes, e.g. showing and hiding the cursor.
+            return;
+        }
+        int[] params = parseParameters(body);
+        switch (command) {
+            case 'H':
+            case 'f':
+                row = clamp(param(params, 0, 1) - 1, height);
+                column = clamp(param(params, 1, 1) - 1, width);
+                break;
+            case 'A':
+                row = Math.max(row < scrollTop ? 0 : scrollTop, row - param(params, 0, 1));
+                break;
+            case 'B':
+                row = Math.min(row > scrollBottom ? height - 1 : scrollBottom, row + param(params, 0, 1));
+                break;
+            case 'C':
+                column = clamp(column + param(params, 0, 1), width);
+                break;
+            case 'D':
+                column = clamp(column - param(params, 0, 1), width);
+                break;
+            case 'G':
+                column = clamp(param(params, 0, 1) - 1, width);
+                break;
+            case 'd':
+                row = clamp(param(params, 0, 1) - 1, height);
+                break;
+            case 'K':
+                eraseLine(param(params, 0, 0));
+                break;
+            case 'J':
+                eraseScreen(param(params, 0, 0));
+                break;
+            case 'm':
+                selectGraphicRendition(params);
+                break;
+            case 'r':
+                int top = param(params, 0, 1) - 1;
+                int bottom = param(params, 1, height) - 1;
+                if (top < bottom && bottom < height) {
+                    scrollTop = top;
+                    scrollBottom = bottom;
+                    row = 0;
+                    column = 0;
+                }
+                break;
+            case 'S':
+                scroll(param(params, 0, 1));
+                break;
+            case 'T':
+                scroll(-param(params, 0, 1));
+                break;
+            case 'L':
+                if (row >= scrollTop && row <= scrollBottom) {
+                    scrollRegion(row, scrollBottom, -param(params, 0, 1));
+                }
+                break;
+            case 'M':
+                if (row >= scrollTop && row <= scrollBottom) {
+                    scrollRegion(row, scrollBottom, param(params, 0, 1));
+                }
+                break;
+            case 'P':
+                deleteCharacters(param(params, 0, 1));
+                break;
+            case '@':
+                insertCharacters(param(params, 0, 1));
+                break;
+            case 's':
+                saveCursor();
+                break;
+            case 'u':
+                restoreCursor();
+                break;
+            default:
+        }
+    }
+
+    private void print(char c) {
+        if (column >= width) {
+            column = 0;
+            lineFeed();
+        }
+        cells[row][column] = c;
+        styles[row][column] = style;
+        column++;
+        charactersPrinted++;
+    }
+
+    private void lineFeed() {
+        if (row == scrollBottom) {
+            scroll(1);
+        } else if (row < height - 1) {
+            row++;
+        }
+    }
+
+    private void reverseLineFeed() {
+        if (row == scrollTop) {
+            scroll(-1);
+        } else if (row > 0) {
+            row--;
+        }
+    }
+
+    /**
+     * Scrolls the scrolling region, up for positive and down for negative rows.
+     */
+    private void scroll(int rows) {
+        scrollRegion(scrollTop, scrollBottom, rows);
+    }
+
+    private void scrollRegion(int top, int bottom, int rows) {
+        int size = bottom - top + 1;
+        int count = Math.min(Math.abs(rows), size);
+        if (rows > 0) {
+            for (int r = top; r <= bottom; r++) {
+                int source = r + count;
+                if (source <= bottom) {
+                    swapRows(r, source);
+                } else {
+                    clearRow(r, 0, width);
+                }
+            }
+        } else {
+            for (int r = bottom; r >= top; r--) {
+                int source = r - count;
+                if (source >= top) {
+                    swapRows(r, source);
+                } else {
+                    clearRow(r, 0, width);
+                }
+            }
+        }
+    }
+
+    private void swapRows(int target, int source) {
+        char[] cellRow = cells[target];
+        cells[target] = cells[source];
+        cells[source] = cellRow;
+        int[] styleRow = styles[target];
+        styles[target] = styles[source];
+        styles[source] = styleRow;
+    }
+
+    private void clearRow(int r, int from, int to) {
+        Arrays.fill(cells[r], from, to, ' ');
+        //Erasing fills with the background color, like xterm.
+        Arrays.fill(styles[r], from, to, style(DEFAULT_COLOR, backgroundOf(style), false));
+    }
+
+    private void eraseLine(int mode) {
+        int from = Math.min(column, width);
+        switch (mode) {
+            case 0:
+                clearRow(row, from, width);
+                break;
+            case 1:
+                clearRow(row, 0, Math.min(from + 1, width));
+                break;
+            default:
+                clearRow(row, 0, width);
+        }
+    }
+
+    private void eraseScreen(int mode) {
+        switch (mode) {
+            case 0:
+                eraseLine(0);
+                for (int r = row + 1; r < height; r++) {
+                    clearRow(r, 0, width);
+                }
+                break;
+            case 1:
+                eraseLine(1);
+                for (int r = 0; r < row; r++) {
+                    clearRow(r, 0, width);
+                }
+                break;
+            default:
+                for (int r = 0; r < height; r++) {
+                    clearRow(r, 0, width);
+                }
+        }
+    }
+
+    private void deleteCharacters(int count) {
+        count = Math.min(count, width - column);
+        System.arraycopy(cells[row], column + count, cells[row], column, width - column - count);
+        System.arraycopy(styles[row], column + count, styles[row], column, width - column - count);
+        clearRow(row, width - count, width);
+    }
+
+    private void insertCharacters(int count) {
+        count = Math.min(count, width - column);
+        System.arraycopy(cells[row], column, cells[row], column + count, width - column - count);
+        System.arraycopy(styles[row], column, styles[row], column + count, width - column - count);
+        clearRow(row, column, column + count);
+    }
+
+    private void selectGraphicRendition(int[] params) {
+        if (params.length == 0) {
+            style = DEFAULT_STYLE;
+            return;
+        }
+        int foreground = foregroundOf(style);
+        int background = backgroundOf(style);
+        boolean bold = (style & BOLD) != 0;
+        for (int p : params) {
+            if (p <= 0) {
+                foreground = DEFAULT_COLOR;
+                background = DEFAULT_COLOR;
+                bold = false;
+            } else if (p == 1) {
+                bold = true;
+            } else if (p == 22) {
+                bold = false;
+            } else if (p >= 30 && p <= 37) {
+                foreground = p - 30;
+            } else if (p == 39) {
+                foreground = DEFAULT_COLOR;
+            } else if (p >= 40 && p <= 47) {
+                background = p - 40;
+            } else if (p == 49) {
+                background = DEFAULT_COLOR;
+            } else if (p >= 90 && p <= 97) {
+                foreground = p - 90 + 8;
+            } else if (p >= 100 && p <= 107) {
+                background = p - 100 + 8;
+            }
+        }
+        style = style(foreground, background, bold);
+    }
+
+    private void saveCursor() {
+        savedRow = row;
+        savedColumn = column;
+    }
+
+    private void restoreCursor() {
+        row = savedRow;
+        column = savedColumn;
+    }
+
+    /**
+     * Clears the screen and resets the cursor, the scrolling region and the colors.
+     */
+    public synchronized void reset() {
+        style = DEFAULT_STYLE;
+        scrollTop = 0;
+        scrollBottom = height - 1;
+        row = 0;
+        column = 0;
+        eraseScreen(2);
+    }
+
+    private static int[] parseParameters(String body) {
+        if (body.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = body.split(";", -1);
+        int[] params = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                params[i] = parts[i].isEmpty() ? -1 : Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                params[i] = -1;
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Returns a parameter or the default value, if it is missing or empty.
+     */
+    private static int param(int[] params, int index, int defaultValue) {
+        if (index >= params.length || params[index] < 0) {
+            return defaultValue;
+        }
+        //Zero counts and positions mean one.
+        return defaultValue > 0 ? Math.max(params[index], 1) : params[index];
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(value, size - 1));
+    }
+
+    private static int style(int foreground, int background, boolean bold) {
+        return (foreground & 0xFF) | ((background & 0xFF) << 8) | (bold ? BOLD : 0);
+    }
+
+    private static int foregroundOf(int style) {
+        return (byte) (style & 0xFF);
+    }
+
+    private static int backgroundOf(int style) {
+        return (byte) ((style >> 8) & 0xFF);
+    }
+
+    /**
+     * Returns the text of a row, without trailing spaces.
+     *
+     * @param row The row (starting from 1).
+     * @return
+     */
+    public synchronized String getRow(int row) {
+        char[] cellRow = cells[row - 1];
+        int end = cellRow.length;
+        while (end > 0 && cellRow[end - 1] == ' ') {
+            end--;
+        }
+        return new String(cellRow, 0, end);
+    }
+
+    /**
+     * Returns the character at a position.
+     *
+     * @param row    The row (starting from 1).
+     * @param column The column (starting from 1).
+     * @return
+     */
+    public synchronized char getCharacter(int row, int column) {
+        return cells[row - 1][column - 1];
+    }
+
+    /**
+     * Returns the foreground color at a position, as an ANSI color index or {@link #DEFAULT_COLOR}.
+     *
+     * @param row    The row (starting from 1).
+     * @param column The column (starting from 1).
+     * @return
+     */
+    public synchronized int getForeground(int row, int column) {
+        return foregroundOf(styles[row - 1][column - 1]);
+    }
+
+    /**
+     * Returns the background color at a position, as an ANSI color index or {@link #DEFAULT_COLOR}.
+     *
+     * @param row    The row (starting from 1).
+     * @param column The column (starting from 1).
+     * @return
+     */
+    public synchronized int getBackground(int row, int column) {
+        return backgroundOf(styles[row - 1][column - 1]);
+    }
+
+    public synchronized boolean isBold(int row, int column) {
+        return (styles[row - 1][column - 1] & BOLD) != 0;
+    }
+
+    /**
+     * Returns the row of the cursor (starting from 1).
+     *
+     * @return
+     */
+    public synchronized int getCursorRow() {
+        return row + 1;
+    }
+
+    /**
+     * Returns the column of the cursor (starting from 1).
+     *
+     * @return
+     */
+    public synchronized int getCursorColumn() {
+        return Math.min(column, width - 1) + 1;
+    }
+
+    public synchronized int getWidth() {
+        return width;
+    }
+
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized long getEscapeSequences() {
+        return escapeSequences;
+    }
+
+    public synchronized long getCharactersPrinted() {
+        return charactersPrinted;
+    }
+
+    /**
+     * Resets the counters of bytes, escape sequences and characters.
+     */
+    public synchronized void resetCounters() {
+        bytesWritten = 0;
+        escapeSequences = 0;
+        charactersPrinted = 0;
+    }
+
+    /**
+     * Returns the text of the screen, a line per row.
+     *
+     * @return
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int r = 1; r <= height; r++) {
+            builder.append(getRow(r)).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -17,7 +17,16 @@ package org.jledit.theme;
 import org.fusesource.jansi.Ansi;
 
 
-public class DefaultTheme implements Theme {
+public class DefaultTheme implements Theme, HighLightPalette {
+
+    private static final Ansi.Color[] HIGHLIGHT_PALETTE = new Ansi.Color[]{
+            Ansi.Color.RED,
+            Ansi.Color.GREEN,
+            Ansi.Color.MAGENTA,
+            Ansi.Color.CYAN,
+            Ansi.Color.BLUE,
+            Ansi.Color.WHITE
+    };
 
     @Override
     public Ansi.Color getHeaderBackground() {
@@ -58,4 +67,14 @@ public class DefaultTheme implements Theme {
     public Ansi.Color getHighLightForeground() {
         return Ansi.Color.BLACK;
     }
+
+    @Override
+    public Ansi.Color getHighLightBackground(int index) {
+        return HIGHLIGHT_PALETTE[index % HIGHLIGHT_PALETTE.length];
+    }
+
+    @Override
+    public Ansi.Color getHighLightForeground(int index) {
+        return Ansi.Color.BLACK;
+    }
 }
@@ -0,0 +1,36 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.theme;
+
+import org.fusesource.jansi.Ansi;
+
+/**
+ * An optional addition to a {@link Theme}, that colors each highlight pattern differently.
+ * Themes that don't implement it show all the highlight patterns with the search highlight colors.
+ */
+public interface HighLightPalette {
+
+    /**
+     * Returns the background of the highlight pattern with the specified index.
+     */
+    Ansi.Color getHighLightBackground(int index);
+
+    /**
+     * Returns the foreground of the highlight pattern with the specified index.
+     */
+    Ansi.Color getHighLightForeground(int index);
+
+}
@@ -14,6 +14,7 @@
 
 package org.jledit.utils;
 
+import org.jledit.utils.internal.ChannelEncoder;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -22,17 +23,31 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.Set;
 import java.util.UUID;
 
 public final class Files {
 
     static final int BUFFER_SIZE = 4096;
+    static final String TEMP_FILE_SUFFIX = ".jledit-tmp";
+    static final String BACKUP_FILE_SUFFIX = ".jledit-bak";
 
     private Files() {
         //Utility Class
     }
 
+    /**
+     * Writes the content of a file to a {@link FileChannel}.
+     */
+    public interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
     /**
      * Reads a {@link File} and returns a {@String}.
      *
@@ -104,4 +119,139 @@ public final class Files {
             Closeables.closeQuitely(writer);
         }
     }
+
+    /**
+     * Writes {@link CharSequence} content to {@link File}, so that a crash leaves either the old or the new content.
+     * The content is encoded through a direct buffer.
+     *
+     * @param file
+     * @param content
+     * @param charset
+     * @throws IOException
+     * @see #writeToFileAtomically(File, ChannelWriter)
+     */
+    public static void writeToFileAtomically(File file, final CharSequence content, final Charset charset) throws IOException {
+        writeToFileAtomically(file, new ChannelWriter() {
+            @Override
+            public void write(FileChannel channel) throws IOException {
+                ChannelEncoder encoder = new ChannelEncoder(channel, charset);
+                encoder.write(content);
+                encoder.finish();
+            }
+        });
+    }
+
+    /**
+     * Writes to a temporary file in the same directory, forces it to the disk and then renames it over the target.
+     * A crash leaves either the old or the new content and the permissions of the target are kept.
+     * If the target can't be replaced, the temporary file is kept and its path is reported in the exception.
+     *
+     * @param file
+     * @param writer Writes the new content.
+     * @throws IOException
+     */
+    public static void writeToFileAtomically(File file, ChannelWriter writer) throws IOException {
+        if (file == null) {
+            throw new FileNotFoundException("No file specified.");
+        }
+        //Replace the file a symbolic link points to, not the link.
+        File target = file.getCanonicalFile();
+        File directory = target.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Could not find or create file:" + file.getName());
+        }
+        File temp = new File(directory, "." + target.getName() + "." + UUID.randomUUID() + TEMP_FILE_SUFFIX);
+        boolean written = false;
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(temp);
+            FileChannel channel = fos.getChannel();
+            writer.write(channel);
+            channel.force(true);
+            fos.close();
+            written = true;
+        } finally {
+            Closeables.closeQuitely(fos);
+            if (!written) {
+                temp.delete();
+            }
+        }
+        if (target.exists()) {
+            copyPermissions(target, temp);
+        }
+        boolean moved;
+        try {
+            moved = move(temp, target);
+        } catch (IOException e) {
+            throw new IOException("Could not replace file:" + file.getName() + ", the new content is in " + temp, e);
+        }
+        if (!moved) {
+            throw new IOException("Could not replace file:" + file.getName() + ", the new content is in " + temp);
+        }
+    }
+
+    /**
+     * Renames a file over the target.
+     * Uses an atomic move when the runtime supports java.nio.file and falls back to {@link File#renameTo(File)}, which
+     * is atomic on POSIX systems, but can't replace an existing file on Windows. In that case the target is renamed to
+     * a backup, which is only deleted once the file is in place and is renamed back if it can't be.
+     *
+     * @return True if the file replaced the target, false if the file and the target are unchanged.
+     * @throws IOException If the target could not be restored from its backup.
+     */
+    private static boolean move(File source, File target) throws IOException {
+        try {
+            Class<?> files = Class.forName("java.nio.file.Files");
+            Class<?> path = Class.forName("java.nio.file.Path");
+            Class<?> copyOption = Class.forName("java.nio.file.CopyOption");
+            Object options = Array.newInstance(copyOption, 1);
+            Array.set(options, 0, Class.forName("java.nio.file.StandardCopyOption").getField("ATOMIC_MOVE").get(null));
+            Method move = files.getMethod("move", path, path, options.getClass());
+            move.invoke(null, toPath(source), toPath(target), options);
+            return true;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException && !e.getCause().getClass().getName().endsWith("AtomicMoveNotSupportedException")) {
+                throw (IOException) e.getCause();
+            }
+        } catch (Exception e) {
+            //Not supported by the runtime.
+        }
+        if (source.renameTo(target)) {
+            return true;
+        }
+        File backup = new File(target.getParentFile(), "." + target.getName() + "." + UUID.randomUUID() + BACKUP_FILE_SUFFIX);
+        if (!target.exists() || !target.renameTo(backup)) {
+            return false;
+        }
+        if (source.renameTo(target)) {
+            backup.delete();
+            return true;
+        } else if (!backup.renameTo(target)) {
+            throw new IOException("Could not restore file:" + target.getName() + ", the previous content is in " + backup);
+        }
+        return false;
+    }
+
+    /**
+     * Copies the POSIX permissions when the runtime supports java.nio.file and the owner permissions otherwise.
+     */
+    private static void copyPermissions(File source, File target) {
+        try {
+            Class<?> files = Class.forName("java.nio.file.Files");
+            Class<?> path = Class.forName("java.nio.file.Path");
+            Object noOptions = Array.newInstance(Class.forName("java.nio.file.LinkOption"), 0);
+            Object permissions = files.getMethod("getPosixFilePermissions", path, noOptions.getClass()).invoke(null, toPath(source), noOptions);
+            files.getMethod("setPosixFilePermissions", path, Set.class).invoke(null, toPath(target), permissions);
+            return;
+        } catch (Exception e) {
+            //Not supported by the runtime or the file system.
+        }
+        target.setReadable(source.canRead());
+        target.setWritable(source.canWrite());
+        target.setExecutable(source.canExecute());
+    }
+
+    private static Object toPath(File file) throws Exception {
+        return File.class.getMethod("toPath").invoke(file);
+    }
 }
@@ -22,6 +22,16 @@ public final class Strings {
         //Utility Class
     }
 
+    /**
+     * Returns a rough estimate of the heap used by a String: the object, its char array and their headers.
+     *
+     * @param s
+     * @return The estimated size in bytes or 0 for null.
+     */
+    public static long sizeOf(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
     /**
      * Try to trim a String to the given size.
      *
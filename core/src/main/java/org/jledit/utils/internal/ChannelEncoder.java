@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.utils.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes text through a direct buffer into a {@link FileChannel} and copies byte ranges of other files into it.
+ * The number of bytes written is tracked, so that callers can record where each piece of text starts.
+ */
+public class ChannelEncoder {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private long written;
+
+    public ChannelEncoder(FileChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelEncoder(FileChannel channel, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Encodes the text.
+     *
+     * @param text
+     * @throws IOException
+     */
+    public void write(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, false);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                drain();
+            }
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Writes bytes as they are, e.g. a byte order mark.
+     *
+     * @param bytes
+     * @throws IOException
+     */
+    public void write(byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Copies a range of bytes from a file, without passing them through the heap.
+     *
+     * @param source
+     * @param position The position of the first byte in the source.
+     * @param count    The number of bytes.
+     * @throws IOException
+     */
+    public void transferFrom(FileChannel source, long position, long count) throws IOException {
+        drain();
+        long transferred = 0;
+        while (transferred < count) {
+            long bytes = source.transferTo(position + transferred, count - transferred, channel);
+            if (bytes <= 0) {
+                throw new IOException("Unexpected end of file, after " + transferred + " of " + count + " bytes.");
+            }
+            transferred += bytes;
+        }
+        written += transferred;
+    }
+
+    /**
+     * Returns the number of bytes written so far, including those still in the buffer.
+     *
+     * @return
+     */
+    public long position() {
+        return written + buffer.position();
+    }
+
+    /**
+     * Completes the encoding and writes the remaining bytes.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        encoder.encode(CharBuffer.allocate(0), buffer, true);
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
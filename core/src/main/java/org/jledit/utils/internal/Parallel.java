@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.utils.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits work over a range of indexes (usually lines) into chunks that run in parallel.
+ * Small ranges are processed in the calling thread.
+ */
+public final class Parallel {
+
+    public static final int THRESHOLD = 1 << 16;
+    static final int CHUNKS_PER_WORKER = 4;
+
+    private static ExecutorService executor;
+
+    private Parallel() {
+        //Utility Class
+    }
+
+    /**
+     * A task that processes the indexes from (inclusive) to (exclusive).
+     *
+     * @param <T>
+     */
+    public interface ChunkTask<T> {
+        T run(int from, int to);
+    }
+
+    /**
+     * Runs the task over the range [0, size) and returns the result of each chunk in order.
+     *
+     * @param size
+     * @param task
+     * @param <T>
+     * @return
+     */
+    public static <T> List<T> forEachChunk(int size, final ChunkTask<T> task) {
+        List<T> results = new ArrayList<T>();
+        int workers = Runtime.getRuntime().availableProcessors();
+        if (size < THRESHOLD || workers == 1) {
+            results.add(task.run(0, size));
+            return results;
+        }
+
+        int chunkSize = Math.max(THRESHOLD / CHUNKS_PER_WORKER, (size + workers * CHUNKS_PER_WORKER - 1) / (workers * CHUNKS_PER_WORKER));
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (int start = 0; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(size, start + chunkSize);
+            futures.add(getExecutor().submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return task.run(from, to);
+                }
+            }));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return results;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setName("JLEditWorkerThread-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import junit.framework.Assert;
+import org.jledit.command.editor.BackspaceCommand;
+import org.jledit.command.editor.FindContext;
+import org.jledit.command.editor.FindNextCommand;
+import org.jledit.command.editor.MoveCursorDownCommand;
+import org.jledit.command.editor.MoveCursorUpCommand;
+import org.jledit.command.editor.NewLineCommand;
+import org.jledit.command.editor.ReplaceAllCommand;
+import org.jledit.command.editor.TypeCommand;
+import org.jledit.command.undo.RedoCommand;
+import org.jledit.command.undo.UndoCommand;
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.jledit.metrics.CommandMetrics;
+import org.jledit.metrics.EditorSession;
+import org.jledit.metrics.LatencyHistogram;
+import org.jledit.simple.SimpleConsoleEditor;
+import org.jledit.terminal.HeadlessTerminal;
+import org.jledit.terminal.VirtualScreen;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+/**
+ * Runs editors through long sequences of operations and checks that neither the heap nor the latency grows.
+ * These tests only run with the soak profile, the number of cycles is set by the jledit.soak.cycles property.
+ */
+public class EditorSoakTest {
+
+    private static final int CYCLES = Integer.getInteger("jledit.soak.cycles", 10000);
+    private static final int SEGMENTS = 10;
+    private static final long UNDO_MEMORY_BUDGET = 4L * 1024 * 1024;
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+
+    @Test
+    public void testEditingCycles() throws Exception {
+        File file = CorpusGenerator.generate(Corpus.LOG, 128 * 1024, 11);
+        try {
+            SimpleConsoleEditor editor = createEditor();
+            editor.getUndoContext().setMemoryBudget(UNDO_MEMORY_BUDGET);
+            editor.open(file.getAbsolutePath());
+            editor.activate();
+            Random random = new Random(11);
+
+            //The first segment warms up, the second is the reference for the heap and the latency.
+            int cyclesPerSegment = Math.max(1, CYCLES / SEGMENTS);
+            long baseline = 0;
+            LatencyHistogram reference = null;
+            LatencyHistogram latency = null;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                latency = new LatencyHistogram();
+                for (int i = 0; i < cyclesPerSegment; i++) {
+                    long start = System.nanoTime();
+                    cycle(editor, random, segment * cyclesPerSegment + i, file);
+                    latency.record(System.nanoTime() - start);
+                }
+                if (segment == 1) {
+                    baseline = usedHeap();
+                    reference = latency;
+                }
+            }
+            long growth = usedHeap() - baseline;
+            Assert.assertTrue("The heap grew by " + growth + " bytes.", growth < MAX_HEAP_GROWTH);
+            Assert.assertTrue(editor.getUndoContext().getMemoryUsage() <= UNDO_MEMORY_BUDGET);
+            assertStable(reference, latency);
+            for (CommandMetrics command : editor.getMetrics().getCommands()) {
+                Assert.assertEquals(command.getName() + " failed with " + command.getLastError(), 0, command.getErrors());
+            }
+            //The static search state only keeps the last search.
+            Assert.assertEquals(CorpusGenerator.NEEDLE, FindContext.getLastSearch());
+            FindContext.clear();
+            editor.stop();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEditorLifeCycles() throws Exception {
+        File file = CorpusGenerator.generate(Corpus.LOG, 16 * 1024, 11);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName query = new ObjectName(EditorSession.DOMAIN + ":type=EditorSession,*");
+        int registered = server.queryNames(query, null).size();
+        ConcreteEditorFactory factory = new ConcreteEditorFactory();
+        factory.setManagementEnabled(true);
+        try {
+            int editors = Math.max(10, CYCLES / 100);
+            long baseline = 0;
+            for (int i = 0; i < editors; i++) {
+                HeadlessTerminal terminal = new HeadlessTerminal(80, 24);
+                ConsoleEditor editor = factory.create("simple", terminal, null, new PrintStream(new VirtualScreen(80, 24)));
+                editor.open(file.getAbsolutePath());
+                editor.put("edit " + i);
+                editor.findAll(CorpusGenerator.NEEDLE);
+                editor.stop();
+                editor.close();
+                try {
+                    factory.create("unknown" + i, terminal, null, null);
+                    Assert.fail("Unknown flavors should not be resolved.");
+                } catch (EditorInitializationException e) {
+                    //expected
+                }
+                if (i == editors / 10) {
+                    baseline = usedHeap();
+                }
+            }
+            long growth = usedHeap() - baseline;
+            Assert.assertTrue("The heap grew by " + growth + " bytes.", growth < MAX_HEAP_GROWTH);
+            Assert.assertEquals(registered, server.queryNames(query, null).size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Edits, searches, undoes and saves, leaving the content as it was.
+     */
+    private static void cycle(AbstractConsoleEditor editor, Random random, int cycle, File file) throws Exception {
+        editor.onCommand(random.nextBoolean() ? new MoveCursorDownCommand(editor, random.nextInt(40)) : new MoveCursorUpCommand(editor, random.nextInt(40)));
+        editor.onCommand(new TypeCommand(editor, "word"));
+        editor.onCommand(new NewLineCommand(editor));
+        for (int i = 0; i < 5; i++) {
+            editor.onCommand(new BackspaceCommand(editor));
+        }
+        editor.onCommand(new UndoCommand(editor));
+        editor.onCommand(new RedoCommand());
+        editor.onCommand(new FindNextCommand(editor, CorpusGenerator.NEEDLE));
+        if (cycle % 100 == 0) {
+            editor.onCommand(new ReplaceAllCommand(editor, CorpusGenerator.NEEDLE, "pin"));
+            editor.onCommand(new ReplaceAllCommand(editor, "pin", CorpusGenerator.NEEDLE));
+        }
+        if (cycle % 1000 == 0) {
+            editor.save(file.getAbsolutePath());
+        }
+    }
+
+    private static void assertStable(LatencyHistogram reference, LatencyHistogram latency) {
+        long p50 = reference.getValueAtPercentile(50);
+        long p90 = reference.getValueAtPercentile(90);
+        Assert.assertTrue("The median latency grew from " + p50 + " to " + latency.getValueAtPercentile(50) + " ns.",
+                latency.getValueAtPercentile(50) <= 2 * p50 + 50000);
+        Assert.assertTrue("The p90 latency grew from " + p90 + " to " + latency.getValueAtPercentile(90) + " ns.",
+                latency.getValueAtPercentile(90) <= 3 * p90 + 100000);
+    }
+
+    private static SimpleConsoleEditor createEditor() throws Exception {
+        return new SimpleConsoleEditor(new HeadlessTerminal(80, 24), null, new PrintStream(new VirtualScreen(80, 24)));
+    }
+
+    /**
+     * Returns the used heap after collecting the garbage.
+     */
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
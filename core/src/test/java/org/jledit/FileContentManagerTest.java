@@ -0,0 +1,98 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit;
+
+import junit.framework.Assert;
+import org.jledit.collection.PersistentLineList;
+import org.jledit.utils.Files;
+import org.jledit.utils.internal.Charsets;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class FileContentManagerTest {
+
+    @Test
+    public void testIncrementalSave() throws Exception {
+        File file = File.createTempFile("jledit-content-test", ".txt");
+        try {
+            FileContentManager manager = new FileContentManager();
+            Files.writeToFile(file, "first\r\nsecond\nthird\nlast", Charsets.UTF_8);
+            FileContent content = manager.loadContent(file.getAbsolutePath(), Charsets.UTF_8);
+            Assert.assertEquals(4, content.getLines().size());
+            Assert.assertFalse(content.isTerminated());
+
+            //The lines around the change are copied as they are.
+            PersistentLineList lines = new PersistentLineList();
+            lines.restore(content.getLines());
+            lines.set(2, "3rd");
+            content = manager.saveContent(content, lines.snapshot(), Charsets.UTF_8, file.getAbsolutePath());
+            Assert.assertEquals("first\r\nsecond\n3rd\nlast", Files.toString(file, Charsets.UTF_8));
+
+            //A line appended after the last line terminates it with the most common terminator and takes its place.
+            lines.add("appended");
+            content = manager.saveContent(content, lines.snapshot(), Charsets.UTF_8, file.getAbsolutePath());
+            Assert.assertEquals("first\r\nsecond\n3rd\nlast\nappended", Files.toString(file, Charsets.UTF_8));
+            Assert.assertFalse(content.isTerminated());
+
+            //The positions of the lines are still valid after the previous saves.
+            lines.remove(1);
+            lines.add(1, "inserted");
+            content = manager.saveContent(content, lines.snapshot(), Charsets.UTF_8, file.getAbsolutePath());
+            Assert.assertEquals("first\r\ninserted\n3rd\nlast\nappended", Files.toString(file, Charsets.UTF_8));
+            Assert.assertEquals(lines, manager.loadContent(file.getAbsolutePath(), Charsets.UTF_8).getLines());
+
+            //A file modified by someone else is saved completely.
+            Files.writeToFile(file, "changed", Charsets.UTF_8);
+            file.setLastModified(file.lastModified() - 10000);
+            manager.saveContent(content, lines.snapshot(), Charsets.UTF_8, file.getAbsolutePath());
+            Assert.assertEquals("first\r\ninserted\n3rd\nlast\nappended", Files.toString(file, Charsets.UTF_8));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLineTerminatorsAndBom() throws Exception {
+        File file = File.createTempFile("jledit-content-test", ".txt");
+        try {
+            FileContentManager manager = new FileContentManager();
+            manager.setIncrementalSaveEnabled(false);
+            Files.writeToFile(file, "\uFEFFfirst\r\n\r\nthird\r\n", Charsets.UTF_8);
+            FileContent content = manager.loadContent(file.getAbsolutePath(), Charsets.UTF_8);
+            Assert.assertEquals(Arrays.asList("first", "", "third"), content.getLines());
+            Assert.assertEquals(3, content.getBom().length);
+
+            PersistentLineList lines = new PersistentLineList();
+            lines.restore(content.getLines());
+            lines.add("fourth");
+            manager.saveContent(content, lines.snapshot(), Charsets.UTF_8, file.getAbsolutePath());
+            Assert.assertEquals("\uFEFFfirst\r\n\r\nthird\r\nfourth\r\n", Files.toString(file, Charsets.UTF_8));
+
+            //Charsets that don't encode terminators as single bytes.
+            Charset utf16 = Charset.forName("UTF-16LE");
+            Files.writeToFile(file, "\uFEFFfirst\rsecond", utf16);
+            content = manager.loadContent(file.getAbsolutePath(), Charset.forName("UTF-16"));
+            Assert.assertEquals(Arrays.asList("first", "second"), content.getLines());
+            Assert.assertFalse(content.hasOffsets());
+            manager.saveContent(content, content.getLines(), Charset.forName("UTF-16"), file.getAbsolutePath());
+            Assert.assertEquals("\uFEFFfirst\rsecond", Files.toString(file, utf16));
+        } finally {
+            file.delete();
+        }
+    }
+}
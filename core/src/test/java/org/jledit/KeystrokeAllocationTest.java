@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit;
+
+import junit.framework.Assert;
+import org.jledit.corpus.Corpus;
+import org.jledit.corpus.CorpusGenerator;
+import org.jledit.simple.SimpleConsoleEditor;
+import org.jledit.terminal.HeadlessTerminal;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Checks the bytes allocated per keystroke on the thread that processes the input.
+ * Allocations on the keystroke path turn into GC pauses, that the user notices as typing stutter. The bounds are
+ * about a third of what the keys allocated with an Ansi object per escape sequence and a list per display line.
+ */
+public class KeystrokeAllocationTest {
+
+    private static final int WARMUP_KEYS = 20000;
+    private static final int KEYS = 2000;
+
+    private File file;
+    private HeadlessTerminal terminal;
+    private SimpleConsoleEditor editor;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(isAllocatedBytesSupported());
+        file = CorpusGenerator.generate(Corpus.LOG, 256 * 1024, 1);
+        terminal = new HeadlessTerminal(80, 24);
+        editor = new SimpleConsoleEditor(terminal, null, new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                //noop
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                //noop
+            }
+        }));
+        editor.open(file.getAbsolutePath());
+        editor.activate();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (editor != null) {
+            editor.stop();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTyping() throws Exception {
+        //Most log lines are wider than the terminal, so each key redraws the rest of the screen.
+        assertAllocated(8 * 1024, measure("x", "\b"));
+    }
+
+    @Test
+    public void testCursorMovement() throws Exception {
+        assertAllocated(2 * 1024, measure("\033[C", "\033[D"));
+    }
+
+    @Test
+    public void testScrolling() throws Exception {
+        //Scrolls half a screen past the bottom and back, so that most keys scroll.
+        String[] keys = new String[64];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < keys.length / 2 ? "\033[B" : "\033[A";
+        }
+        editor.move(editor.lines() / 2, 1);
+        assertAllocated(4 * 1024, measure(keys));
+    }
+
+    /**
+     * Processes the keys in turns and returns the average bytes allocated per key, after a warm up.
+     */
+    private long measure(String... keys) throws Exception {
+        process(keys, WARMUP_KEYS);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long start = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id);
+        process(keys, KEYS);
+        return (((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) - start) / KEYS;
+    }
+
+    private static void assertAllocated(long max, long allocated) {
+        Assert.assertTrue(allocated + " bytes allocated per key, expected at most " + max + ".", allocated <= max);
+    }
+
+    private void process(String[] keys, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            terminal.type(keys[i % keys.length]);
+            Assert.assertTrue(editor.processOperation());
+        }
+    }
+
+    private static boolean isAllocatedBytesSupported() {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            return threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.collection;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PersistentLineListTest {
+
+    @Test
+    public void testOperations() throws Exception {
+        PersistentLineList list = new PersistentLineList();
+        List<String> expected = new ArrayList<String>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int op = random.nextInt(4);
+            if (op < 2 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, "line" + i);
+                expected.add(index, "line" + i);
+            } else if (op == 2) {
+                int index = random.nextInt(expected.size());
+                Assert.assertEquals(expected.set(index, "set" + i), list.set(index, "set" + i));
+            } else {
+                int index = random.nextInt(expected.size());
+                Assert.assertEquals(expected.remove(index), list.remove(index));
+            }
+        }
+        Assert.assertEquals(expected, list);
+        list.subList(10, 100).clear();
+        expected.subList(10, 100).clear();
+        Assert.assertEquals(expected, list);
+        long length = 0;
+        for (String line : expected) {
+            length += line.length();
+        }
+        Assert.assertEquals(length, list.length());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        PersistentLineList list = new PersistentLineList();
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            lines.add("line" + i);
+        }
+        list.addAll(lines);
+        PersistentLineList snapshot = list.snapshot();
+        Assert.assertEquals(-1, list.firstDifference(snapshot));
+        Assert.assertEquals(0, list.getMemoryUsage(snapshot));
+
+        list.set(5000, "changed");
+        list.add(7000, "added");
+        Assert.assertEquals("line5000", snapshot.get(5000));
+        Assert.assertEquals(10000, snapshot.size());
+        Assert.assertEquals(10001, list.size());
+        Assert.assertEquals(5000, list.firstDifference(snapshot));
+        //Only the paths to the two changed leaves are copied.
+        Assert.assertTrue(list.getMemoryUsage(snapshot) < 10000);
+
+        list.restore(snapshot);
+        Assert.assertEquals(lines, list);
+        Assert.assertEquals(-1, list.firstDifference(snapshot));
+
+        try {
+            snapshot.add("line");
+            Assert.fail("Snapshots should be read only.");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testChangesAfterSnapshots() throws Exception {
+        PersistentLineList list = new PersistentLineList();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 3000; i++) {
+            expected.add("line" + i);
+        }
+        list.addAll(expected);
+        List<PersistentLineList> snapshots = new ArrayList<PersistentLineList>();
+        List<List<String>> snapshotContents = new ArrayList<List<String>>();
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            if (i % 100 == 0) {
+                snapshots.add(list.snapshot());
+                snapshotContents.add(new ArrayList<String>(expected));
+            }
+            int op = random.nextInt(6);
+            int index = random.nextInt(expected.size());
+            //Lines are mostly replaced, which updates the nodes created since the last snapshot in place.
+            if (op < 4) {
+                Assert.assertEquals(expected.set(index, "set" + i), list.set(index, "set" + i));
+            } else if (op == 4) {
+                list.add(index, "add" + i);
+                expected.add(index, "add" + i);
+            } else {
+                Assert.assertEquals(expected.remove(index), list.remove(index));
+            }
+        }
+        Assert.assertEquals(expected, list);
+        for (int s = 0; s < snapshots.size(); s++) {
+            PersistentLineList snapshot = snapshots.get(s);
+            List<String> content = snapshotContents.get(s);
+            Assert.assertEquals(content, snapshot);
+            Assert.assertEquals(firstDifference(expected, content), list.firstDifference(snapshot));
+            int limit = Math.min(expected.size(), content.size());
+            Assert.assertEquals(commonSuffix(expected, content, limit), list.commonSuffix(snapshot, limit));
+        }
+
+        list.restore(snapshots.get(3));
+        list.set(0, "restored");
+        Assert.assertEquals(snapshotContents.get(3).get(0), snapshots.get(3).get(0));
+        Assert.assertEquals(0, list.firstDifference(snapshots.get(3)));
+        Assert.assertEquals(snapshotContents.get(3).size() - 1, list.commonSuffix(snapshots.get(3), list.size()));
+    }
+
+    private static int firstDifference(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            if (!a.get(i).equals(b.get(i))) {
+                return i;
+            }
+        }
+        return a.size() == b.size() ? -1 : Math.min(a.size(), b.size());
+    }
+
+    private static int commonSuffix(List<String> a, List<String> b, int limit) {
+        int count = 0;
+        while (count < limit && a.get(a.size() - 1 - count).equals(b.get(b.size() - 1 - count))) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -16,6 +16,7 @@ package org.jledit.command.undo;
 
 import static junit.framework.Assert.*;
 
+import org.jledit.collection.CoordinatesStack;
 import org.jledit.collection.RollingStack;
 import org.junit.Test;
 
@@ -48,4 +49,46 @@ public class RollingStackTest {
         RollingStack stack = new RollingStack();
         assertNull(stack.pop());
     }
+
+    @Test
+    public void testGrowAndWrapAround() throws Exception {
+        RollingStack<Integer> stack = new RollingStack<Integer>(3000);
+        for (int i = 0; i < 5000; i++) {
+            stack.push(i);
+            if (i % 3 == 0) {
+                assertEquals(i, stack.pop().intValue());
+            }
+        }
+        assertEquals(3000, stack.size());
+        assertEquals(500, stack.removeOldest().intValue());
+        assertEquals(4999, stack.pop().intValue());
+        assertEquals(2998, stack.size());
+        stack.clear();
+        assertNull(stack.removeOldest());
+    }
+
+    @Test
+    public void testPushReturnsRemovedItem() throws Exception {
+        RollingStack<Integer> stack = new RollingStack<Integer>(2);
+        assertNull(stack.push(1));
+        assertNull(stack.push(2));
+        assertEquals(1, stack.push(3).intValue());
+        assertEquals(3, stack.pop().intValue());
+        assertEquals(2, stack.pop().intValue());
+    }
+
+    @Test
+    public void testCoordinatesStack() throws Exception {
+        CoordinatesStack stack = new CoordinatesStack(2);
+        stack.push(1, 2);
+        stack.push(3, 4);
+        stack.push(Integer.MAX_VALUE, 6);
+        long coordinates = stack.pop();
+        assertEquals(Integer.MAX_VALUE, CoordinatesStack.line(coordinates));
+        assertEquals(6, CoordinatesStack.column(coordinates));
+        coordinates = stack.pop();
+        assertEquals(3, CoordinatesStack.line(coordinates));
+        assertEquals(4, CoordinatesStack.column(coordinates));
+        assertEquals(CoordinatesStack.EMPTY, stack.pop());
+    }
 }
@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import static junit.framework.Assert.*;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class UndoContextTest {
+
+    @Test
+    public void testEvictionBySize() throws Exception {
+        UndoContext context = new UndoContext(Integer.MAX_VALUE, 1000);
+        for (int i = 0; i < 10; i++) {
+            context.undoPush(new SizedCommand(100));
+        }
+        assertEquals(1000, context.getMemoryUsage());
+
+        SizedCommand large = new SizedCommand(450);
+        context.undoPush(large);
+        assertEquals(1000 - 500 + 450, context.getMemoryUsage());
+        assertTrue(context.isDirty());
+
+        assertSame(large, context.undoPop());
+        assertEquals(500, context.getMemoryUsage());
+        context.redoPush(large);
+        assertEquals(950, context.getMemoryUsage());
+
+        //An entry larger than the budget is still kept, so that the last change can be undone.
+        SizedCommand huge = new SizedCommand(5000);
+        context.undoPush(huge);
+        assertEquals(5000, context.getMemoryUsage());
+        assertSame(huge, context.undoPop());
+        assertNull(context.undoPop());
+        assertEquals(0, context.getMemoryUsage());
+    }
+
+    @Test
+    public void testDefaultMemoryUsage() throws Exception {
+        UndoContext context = new UndoContext();
+        PlainCommand command = new PlainCommand();
+        context.undoPush(command);
+        assertEquals(UndoContext.DEFAULT_COMMAND_MEMORY_USAGE, context.getMemoryUsage());
+        context.redoPush(context.undoPop());
+        assertEquals(UndoContext.DEFAULT_COMMAND_MEMORY_USAGE, context.getMemoryUsage());
+        assertSame(command, context.redoPop());
+        assertEquals(0, context.getMemoryUsage());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        UndoContext context = new UndoContext();
+        context.setSpillThreshold(1000);
+        SpillableCommand small = new SpillableCommand("small");
+        SpillableCommand large = new SpillableCommand(new String(new char[10000]).replace('\0', 'x') + "\uD800");
+        context.undoPush(small);
+        context.undoPush(large);
+        assertFalse(small.text.isSpilled());
+        assertTrue(large.text.isSpilled());
+        assertEquals(10001, large.text.get().length());
+        assertTrue(large.text.get().endsWith("x\uD800"));
+        assertTrue(context.getMemoryUsage() < 1000);
+
+        context.clear();
+        assertEquals(0, context.getMemoryUsage());
+    }
+
+    @Test
+    public void testGrouping() throws Exception {
+        UndoContext context = new UndoContext();
+        for (int i = 0; i < 5; i++) {
+            context.undoPush(new MergingCommand(10));
+        }
+        assertEquals(50, context.getMemoryUsage());
+        MergingCommand group = (MergingCommand) context.undoPop();
+        assertEquals(5, group.merged);
+        assertNull(context.undoPop());
+
+        context.setGroupingTimeout(0);
+        context.undoPush(new MergingCommand(10));
+        context.undoPush(new MergingCommand(10));
+        assertEquals(20, context.getMemoryUsage());
+
+        //Undo breaks the group.
+        context.setGroupingTimeout(UndoContext.DEFAULT_GROUPING_TIMEOUT);
+        context.undoPop();
+        context.undoPush(new MergingCommand(10));
+        assertEquals(1, ((MergingCommand) context.undoPop()).merged);
+        assertEquals(1, ((MergingCommand) context.undoPop()).merged);
+    }
+
+    private static class PlainCommand implements UndoableCommand {
+
+        public void doExecute() {
+        }
+
+        public void undo() {
+        }
+
+        public void redo() {
+        }
+
+        public int getBeforeLine() {
+            return 0;
+        }
+
+        public int getBeforeColumn() {
+            return 0;
+        }
+
+        public int getAfterLine() {
+            return 0;
+        }
+
+        public int getAfterColumn() {
+            return 0;
+        }
+
+        public void execute() {
+        }
+    }
+
+    private static class SizedCommand extends PlainCommand implements MemoryEstimate {
+        private final long size;
+
+        private SizedCommand(long size) {
+            this.size = size;
+        }
+
+        public long getMemoryUsage() {
+            return size;
+        }
+    }
+
+    private static class SpillableCommand extends SizedCommand implements Spillable {
+        private final SpilledText text;
+
+        private SpillableCommand(String text) {
+            super(0);
+            this.text = new SpilledText(text);
+        }
+
+        @Override
+        public long getMemoryUsage() {
+            return text.getMemoryUsage();
+        }
+
+        public void spill() throws IOException {
+            text.spill();
+        }
+
+        public void discard() {
+            text.discard();
+        }
+    }
+
+    private static class MergingCommand extends SizedCommand implements MergeableCommand {
+        private long size;
+        private int merged = 1;
+
+        private MergingCommand(long size) {
+            super(0);
+            this.size = size;
+        }
+
+        @Override
+        public long getMemoryUsage() {
+            return size;
+        }
+
+        public boolean merge(UndoableCommand next) {
+            size += ((MemoryEstimate) next).getMemoryUsage();
+            merged++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.command.undo;
+
+import static junit.framework.Assert.*;
+
+import org.jledit.ConsoleEditor;
+import org.jledit.EditorSnapshot;
+import org.jledit.StringEditor;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+public class UndoJournalTest {
+
+    @Test
+    public void testRecordAndRemove() throws Exception {
+        UndoJournal journal = new UndoJournal();
+        journal.record(1, 2, "", "typed");
+        journal.record(3, 4, "deleted\n", "");
+        journal.record(5, 6, "old", "new");
+        assertEquals(3, journal.size());
+        assertEquals(3, journal.getLine(1));
+        assertEquals(4, journal.getColumn(1));
+        assertEquals("deleted\n", journal.getDeleted(1));
+        assertEquals("", journal.getInserted(1));
+        assertEquals("old", journal.getDeleted(2));
+        assertEquals("new", journal.getInserted(2));
+
+        journal.removeLast();
+        journal.removeOldest();
+        assertEquals(1, journal.size());
+        assertEquals(3, journal.getLine(0));
+        journal.record(7, 8, "", "again");
+        assertEquals("again", journal.getInserted(1));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        UndoJournal journal = new UndoJournal();
+        for (int i = 0; i < 10000; i++) {
+            journal.record(i, i, "", "entry" + i);
+            if (i % 2 == 1) {
+                journal.removeOldest();
+            }
+        }
+        assertEquals(5000, journal.size());
+        for (int i = 0; i < journal.size(); i++) {
+            assertEquals(5000 + i, journal.getLine(i));
+            assertEquals("entry" + (5000 + i), journal.getInserted(i));
+        }
+    }
+
+    @Test
+    public void testUndoFromJournal() throws Exception {
+        StringEditor buffer = new StringEditor("hello world");
+        ConsoleEditor editor = createEditor(buffer);
+        UndoContext context = new UndoContext();
+        context.setGroupingTimeout(0);
+
+        buffer.move(1, 6);
+        buffer.put(", dear");
+        context.undoPush(new InsertCommand(editor, 1, 6, ", dear"));
+        buffer.put("\nnew line");
+        context.undoPush(new InsertCommand(editor, 1, 12, "\nnew line"));
+        assertEquals("hello, dear\nnew line world\n", buffer.getContent());
+
+        UndoableCommand command = context.undoPop();
+        assertTrue(command instanceof InsertCommand);
+        command.undo();
+        command = context.undoPop();
+        assertTrue(command instanceof DeltaCommand);
+        command.undo();
+        assertEquals("hello world\n", buffer.getContent());
+        command.redo();
+        assertEquals("hello, dear world\n", buffer.getContent());
+        assertNull(context.undoPop());
+        assertEquals(0, context.getMemoryUsage());
+    }
+
+    @Test
+    public void testUndoFromSnapshots() throws Exception {
+        StringEditor buffer = new StringEditor("hello world");
+        ConsoleEditor editor = createEditor(buffer);
+        UndoContext context = new UndoContext();
+        context.setSnapshotEnabled(true);
+
+        EditorSnapshot before = buffer.snapshot();
+        buffer.move(1, 6);
+        buffer.put(",");
+        context.undoPush(new SnapshotCommand(editor, InsertCommand.class, before, buffer.snapshot()));
+        before = buffer.snapshot();
+        buffer.put(" dear");
+        //Consecutive small edits are merged.
+        context.undoPush(new SnapshotCommand(editor, InsertCommand.class, before, buffer.snapshot()));
+        before = buffer.snapshot();
+        buffer.replaceRange(1, 1, 1, 6, "bye");
+        context.undoPush(new SnapshotCommand(editor, UndoableCommand.class, before, buffer.snapshot()));
+        assertEquals("bye, dear world\n", buffer.getContent());
+
+        UndoableCommand command = context.undoPop();
+        command.undo();
+        assertEquals("hello, dear world\n", buffer.getContent());
+        command = context.undoPop();
+        command.undo();
+        assertEquals("hello world\n", buffer.getContent());
+        assertEquals(1, buffer.getLine());
+        assertEquals(1, buffer.getColumn());
+        command.redo();
+        assertEquals("hello, dear world\n", buffer.getContent());
+        assertNull(context.undoPop());
+    }
+
+    /**
+     * Creates a {@link ConsoleEditor} that forwards the text operations to a {@link StringEditor}.
+     */
+    private static ConsoleEditor createEditor(final StringEditor buffer) {
+        return (ConsoleEditor) Proxy.newProxyInstance(ConsoleEditor.class.getClassLoader(), new Class[]{ConsoleEditor.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("isReadOnly")) {
+                    return false;
+                }
+                try {
+                    return StringEditor.class.getMethod(method.getName(), method.getParameterTypes()).invoke(buffer, args);
+                } catch (NoSuchMethodException e) {
+                    return null;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private static class InsertCommand implements JournaledCommand, MemoryEstimate {
+        private final ConsoleEditor editor;
+        private final int line;
+        private final int column;
+        private final String str;
+
+        private InsertCommand(ConsoleEditor editor, int line, int column, String str) {
+            this.editor = editor;
+            this.line = line;
+            this.column = column;
+            this.str = str;
+        }
+
+        public boolean record(UndoJournal journal) {
+            journal.record(line, column, "", str);
+            return true;
+        }
+
+        public ConsoleEditor getEditor() {
+            return editor;
+        }
+
+        public void doExecute() {
+        }
+
+        public void undo() {
+            new DeltaCommand(editor, line, column, "", str).undo();
+        }
+
+        public void redo() {
+        }
+
+        public int getBeforeLine() {
+            return line;
+        }
+
+        public int getBeforeColumn() {
+            return column;
+        }
+
+        public int getAfterLine() {
+            return line;
+        }
+
+        public int getAfterColumn() {
+            return column;
+        }
+
+        public long getMemoryUsage() {
+            return 100;
+        }
+
+        public void execute() {
+        }
+    }
+}
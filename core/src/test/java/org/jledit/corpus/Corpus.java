@@ -0,0 +1,195 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.corpus;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * The kinds of content generated by the {@link CorpusGenerator}.
+ */
+public enum Corpus {
+
+    /**
+     * Very many lines between 0 and 40 characters, e.g. configuration files or word lists.
+     */
+    SHORT_LINES("UTF-8", "\n", Vocabulary.ENGLISH) {
+        @Override
+        void appendLine(StringBuilder line, Random random, long number, long limit) {
+            appendWords(line, random, random.nextInt(41));
+        }
+    },
+    /**
+     * Few enormous lines of minified JSON, each one about 16 MB.
+     */
+    MINIFIED_JSON("UTF-8", "\n", Vocabulary.ENGLISH) {
+        @Override
+        void appendLine(StringBuilder line, Random random, long number, long limit) {
+            long length = Math.min(limit, JSON_LINE_LENGTH);
+            line.append('[');
+            for (int id = 0; line.length() < length; id++) {
+                if (id > 0) {
+                    line.append(',');
+                }
+                line.append("{\"id\":").append(number * 1000000 + id).append(",\"name\":\"");
+                appendWord(line, random);
+                line.append(' ');
+                appendWord(line, random);
+                line.append("\",\"tags\":[\"");
+                appendWord(line, random);
+                line.append("\",\"");
+                appendWord(line, random);
+                line.append("\"],\"active\":").append(random.nextBoolean())
+                        .append(",\"score\":").append(random.nextInt(100000) / 1000.0).append('}');
+            }
+            line.append(']');
+        }
+    },
+    /**
+     * Lines between 20 and 120 characters ending with CR LF, e.g. source code written on Windows.
+     */
+    CRLF("UTF-8", "\r\n", Vocabulary.ENGLISH),
+    /**
+     * Log lines that repeat a few levels, threads, loggers and messages.
+     */
+    LOG("UTF-8", "\n", Vocabulary.ENGLISH) {
+        @Override
+        void appendLine(StringBuilder line, Random random, long number, long limit) {
+            line.append(LOG_START + number * 17 + random.nextInt(17)).append(' ')
+                    .append(Vocabulary.LEVELS[random.nextInt(Vocabulary.LEVELS.length)]).append(" [worker-")
+                    .append(random.nextInt(8)).append("] ")
+                    .append(Vocabulary.LOGGERS[random.nextInt(Vocabulary.LOGGERS.length)]).append(" - ")
+                    .append(Vocabulary.MESSAGES[random.nextInt(Vocabulary.MESSAGES.length)])
+                    .append(random.nextInt(1000)).append(" ms");
+            if (random.nextInt(100) == 0) {
+                line.append(' ').append(CorpusGenerator.NEEDLE);
+            }
+        }
+    },
+    /**
+     * Multilingual text. Characters outside of the basic multilingual plane are left out, as the detector doesn't
+     * recognize their four byte sequences and falls back to the default charset.
+     */
+    UTF_8("UTF-8", "\n", Vocabulary.MULTILINGUAL),
+    /**
+     * Western European text with accented letters.
+     */
+    WINDOWS_1252("windows-1252", "\n", Vocabulary.WESTERN),
+    /**
+     * Russian text.
+     */
+    WINDOWS_1251("windows-1251", "\n", Vocabulary.RUSSIAN),
+    /**
+     * Japanese text.
+     */
+    SHIFT_JIS("Shift_JIS", "\n", Vocabulary.JAPANESE);
+
+    static final long JSON_LINE_LENGTH = 16L * 1024 * 1024;
+    private static final long LOG_START = 1577836800000L;
+
+    private final Charset charset;
+    private final String lineSeparator;
+    private final String[] words;
+
+    private Corpus(String charset, String lineSeparator, String[] words) {
+        this.charset = Charset.forName(charset);
+        this.lineSeparator = lineSeparator;
+        this.words = words;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * Appends the content of a line, without the line separator.
+     * The needle is put in about one in 100 lines.
+     *
+     * @param line   The builder to append to.
+     * @param random The random generator.
+     * @param number The line number, starting from 1.
+     * @param limit  The number of bytes that remain to be generated.
+     */
+    void appendLine(StringBuilder line, Random random, long number, long limit) {
+        if (random.nextInt(100) == 0) {
+            line.append(CorpusGenerator.NEEDLE).append(' ');
+        }
+        appendWords(line, random, 20 + random.nextInt(101));
+    }
+
+    void appendWords(StringBuilder line, Random random, int length) {
+        int start = line.length();
+        while (line.length() - start < length) {
+            if (line.length() > start) {
+                line.append(' ');
+            }
+            appendWord(line, random);
+        }
+    }
+
+    void appendWord(StringBuilder line, Random random) {
+        line.append(words[random.nextInt(words.length)]);
+    }
+
+    /**
+     * The words of the generated text. Non ASCII characters are escaped, so that the sources stay ASCII.
+     * None of the words contains the needle.
+     */
+    private static final class Vocabulary {
+
+        static final String[] ENGLISH = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "editor",
+                "line", "console", "terminal", "buffer", "cursor", "save", "undo", "search", "a", "of", "with"};
+
+        static final String[] WESTERN = {"le", "la", "et", "caf\u00e9", "d\u00e9j\u00e0", "\u00e9t\u00e9",
+                "fen\u00eatre", "cr\u00e8me", "br\u00fbl\u00e9e", "gar\u00e7on", "na\u00efve", "co\u00fbt", "der",
+                "und", "\u00fcber", "Stra\u00dfe", "M\u00e4dchen", "sch\u00f6n", "Gr\u00f6\u00dfe", "el", "y",
+                "a\u00f1o", "se\u00f1or", "ma\u00f1ana", "canci\u00f3n", "\u20ac", "\u00bfqu\u00e9?"};
+
+        static final String[] RUSSIAN = {"\u0438", "\u0432", "\u043d\u0435", "\u043d\u0430",
+                "\u0440\u0435\u0434\u0430\u043a\u0442\u043e\u0440", "\u0441\u0442\u0440\u043e\u043a\u0430",
+                "\u0444\u0430\u0439\u043b", "\u0442\u0435\u043a\u0441\u0442", "\u043f\u043e\u0438\u0441\u043a",
+                "\u043a\u0443\u0440\u0441\u043e\u0440", "\u043e\u0442\u043c\u0435\u043d\u0430",
+                "\u044d\u0442\u043e", "\u0447\u0442\u043e", "\u043a\u0430\u043a",
+                "\u0431\u044b\u0441\u0442\u0440\u0430\u044f", "\u0441\u043e\u0431\u0430\u043a\u0430",
+                "\u043b\u0438\u0441\u0430", "\u0441\u043e\u0445\u0440\u0430\u043d\u0438\u0442\u044c"};
+
+        static final String[] JAPANESE = {"\u7de8\u96c6", "\u30d5\u30a1\u30a4\u30eb", "\u691c\u7d22",
+                "\u4fdd\u5b58", "\u884c", "\u6587\u5b57", "\u306e", "\u3092", "\u306b", "\u306f", "\u304c",
+                "\u3067\u3059", "\u3057\u307e\u3059", "\u30ab\u30fc\u30bd\u30eb", "\u5143\u306b\u623b\u3059",
+                "\u3002", "\u3001"};
+
+        static final String[] MULTILINGUAL = {"the", "editor", "caf\u00e9", "\u00fcber", "a\u00f1o",
+                "\u03ba\u03b5\u03af\u03bc\u03b5\u03bd\u03bf", "\u0442\u0435\u043a\u0441\u0442",
+                "\u7f16\u8f91\u5668", "\u30d5\u30a1\u30a4\u30eb", "\ud55c\uad6d\uc5b4",
+                "\u05e2\u05d1\u05e8\u05d9\u05ea", "\u20ac"};
+
+        static final String[] LEVELS = {"INFO ", "INFO ", "INFO ", "DEBUG", "DEBUG", "WARN ", "ERROR"};
+
+        static final String[] LOGGERS = {"org.jledit.StringEditor", "org.jledit.AbstractConsoleEditor",
+                "org.jledit.FileContentManager", "org.jledit.command.undo.UndoContext"};
+
+        static final String[] MESSAGES = {"Opened file in ", "Saved file in ", "Redrew screen in ",
+                "Searched content in ", "Flushed terminal in ", "Undid command in "};
+
+        private Vocabulary() {
+            //Utility Class
+        }
+    }
+}
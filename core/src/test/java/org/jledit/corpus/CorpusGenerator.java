@@ -0,0 +1,120 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.corpus;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Generates the content of performance tests and benchmarks.
+ * The content only depends on the corpus, the size and the seed, so that large files can be generated again instead of
+ * being checked in. Lines are encoded one by one and streamed, so the size is only limited by the disk.
+ */
+public final class CorpusGenerator {
+
+    /**
+     * A word that appears in about one in 100 lines, except in the JSON corpus.
+     */
+    public static final String NEEDLE = "needle";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private CorpusGenerator() {
+        //Utility Class
+    }
+
+    /**
+     * Generates a temporary file.
+     *
+     * @param corpus The kind of content.
+     * @param size   The size of the file in bytes.
+     * @param seed   The seed of the random generator.
+     * @return
+     * @throws IOException
+     */
+    public static File generate(Corpus corpus, long size, long seed) throws IOException {
+        File file = File.createTempFile("jledit-corpus-" + corpus.name().toLowerCase(), ".txt");
+        generate(corpus, size, seed, file);
+        return file;
+    }
+
+    /**
+     * Generates a file, replacing its content.
+     *
+     * @param corpus The kind of content.
+     * @param size   The size of the file in bytes.
+     * @param seed   The seed of the random generator.
+     * @param file   The file to write to.
+     * @return The number of bytes written.
+     * @throws IOException
+     */
+    public static long generate(Corpus corpus, long size, long seed, File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        try {
+            return write(corpus, size, seed, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the content to a stream, without closing it.
+     * Whole lines are written, so the last line may end up to one line after the size.
+     *
+     * @param corpus The kind of content.
+     * @param size   The minimum number of bytes to write.
+     * @param seed   The seed of the random generator.
+     * @param out    The stream to write to.
+     * @return The number of bytes written.
+     * @throws IOException
+     */
+    public static long write(Corpus corpus, long size, long seed, OutputStream out) throws IOException {
+        Random random = new Random(seed);
+        byte[] separator = corpus.getLineSeparator().getBytes(corpus.getCharset());
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        for (long number = 1; written < size; number++) {
+            line.setLength(0);
+            corpus.appendLine(line, random, number, size - written - separator.length);
+            byte[] bytes = line.toString().getBytes(corpus.getCharset());
+            out.write(bytes);
+            out.write(separator);
+            written += bytes.length + separator.length;
+        }
+        return written;
+    }
+
+    /**
+     * Generates a file from the command line, e.g. for a run of the benchmarks on a given corpus.
+     *
+     * @param args The corpus, the size in MB, the file and optionally the seed.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CorpusGenerator <corpus> <size in MB> <file> [seed]");
+            return;
+        }
+        Corpus corpus = Corpus.valueOf(args[0]);
+        long size = Long.parseLong(args[1]) * 1024L * 1024L;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        generate(corpus, size, seed, new File(args[2]));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.corpus;
+
+import junit.framework.Assert;
+import org.jledit.utils.internal.Charsets;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+public class CorpusGeneratorTest {
+
+    @Test
+    public void testDeterministic() throws Exception {
+        for (Corpus corpus : Corpus.values()) {
+            byte[] first = generate(corpus, 64 * 1024, 1);
+            Assert.assertTrue(corpus.name(), first.length >= 64 * 1024);
+            Assert.assertTrue(corpus.name(), Arrays.equals(first, generate(corpus, 64 * 1024, 1)));
+            Assert.assertFalse(corpus.name(), Arrays.equals(first, generate(corpus, 64 * 1024, 2)));
+        }
+    }
+
+    @Test
+    public void testLines() throws Exception {
+        String[] lines = toString(Corpus.SHORT_LINES, 64 * 1024).split("\n");
+        Assert.assertTrue(lines.length > 2000);
+        for (String line : lines) {
+            Assert.assertTrue(line.length() <= 40 + 9);
+        }
+
+        lines = toString(Corpus.MINIFIED_JSON, 3 * Corpus.JSON_LINE_LENGTH).split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[0].startsWith("[{\"id\":"));
+        Assert.assertTrue(lines[0].endsWith("}]"));
+
+        String content = toString(Corpus.CRLF, 64 * 1024);
+        Assert.assertTrue(content.endsWith("\r\n"));
+        Assert.assertEquals(content.split("\n").length, content.split("\r\n").length);
+
+        content = toString(Corpus.LOG, 1024 * 1024);
+        Assert.assertTrue(content.startsWith("15778368"));
+        Assert.assertTrue(content.contains(CorpusGenerator.NEEDLE));
+        Assert.assertTrue(content.contains(" [worker-"));
+    }
+
+    @Test
+    public void testDetectCharsets() throws Exception {
+        for (Corpus corpus : Arrays.asList(Corpus.UTF_8, Corpus.WINDOWS_1252, Corpus.WINDOWS_1251, Corpus.SHIFT_JIS)) {
+            File file = CorpusGenerator.generate(corpus, 64 * 1024, 1);
+            try {
+                Assert.assertEquals(corpus.getCharset(), Charsets.detect(file));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    private static byte[] generate(Corpus corpus, long size, long seed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(CorpusGenerator.write(corpus, size, seed, out), out.size());
+        return out.toByteArray();
+    }
+
+    private static String toString(Corpus corpus, long size) throws Exception {
+        return new String(generate(corpus, size, 1), corpus.getCharset());
+    }
+}
@@ -17,12 +17,22 @@ package org.jledit.editor;
 
 import junit.framework.Assert;
 import org.jledit.Editor;
+import org.jledit.EditorSnapshot;
+import org.jledit.FileContent;
+import org.jledit.FileContentManager;
+import org.jledit.LinePatch;
 import org.jledit.StringEditor;
+import org.jledit.collection.PersistentLineList;
+import org.jledit.recovery.EditJournal;
+import org.jledit.utils.Files;
 import org.jledit.utils.Resources;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 
 
 public class StringEditorTest {
@@ -88,7 +98,163 @@ public class StringEditorTest {
         Assert.assertEquals("This is a simple text file, with a couple of lines used for testing.", line);
     }
 
+    @Test
+    public void testReplaceAll() throws IOException {
+        Editor<String> editor = createEditor();
+        String original = editor.getContent();
+        editor.move(3, 5);
+        LinePatch undo = editor.replaceAll("line", "row");
+        Assert.assertFalse(undo.isEmpty());
+        Assert.assertFalse(editor.getContent().contains("line"));
+        Assert.assertEquals("This is a simple text file, with a couple of rows used for testing.", editor.getContent(3));
+        Assert.assertEquals(3, editor.getLine());
+
+        LinePatch redo = editor.applyPatch(undo);
+        Assert.assertEquals(original, editor.getContent());
+        editor.applyPatch(redo);
+        Assert.assertFalse(editor.getContent().contains("line"));
+        Assert.assertTrue(editor.replaceAll("no such text", "x").isEmpty());
+    }
+
+    @Test
+    public void testRanges() throws IOException {
+        Editor<String> editor = new StringEditor("first line\nsecond line\nthird line");
+        Assert.assertEquals("line\nsecond line\nthird", editor.getRange(1, 7, 3, 6));
+        Assert.assertEquals("line\nsecond line\nthird", editor.getRange(3, 6, 1, 7));
+
+        Assert.assertEquals("line\nsecond line\nthird", editor.deleteRange(1, 7, 3, 6));
+        Assert.assertEquals("first  line\n", editor.getContent());
+        Assert.assertEquals(1, editor.getLine());
+        Assert.assertEquals(7, editor.getColumn());
+
+        Assert.assertEquals(" ", editor.replaceRange(1, 6, 1, 7, "\nnew\nlast"));
+        Assert.assertEquals("first\nnew\nlast line\n", editor.getContent());
+        Assert.assertEquals(3, editor.getLine());
+        Assert.assertEquals(5, editor.getColumn());
+
+        editor.move(2, 4);
+        editor.put("er\nline");
+        Assert.assertEquals("first\nnewer\nline\nlast line\n", editor.getContent());
+        Assert.assertEquals(3, editor.getLine());
+        Assert.assertEquals(5, editor.getColumn());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        StringEditor editor = new StringEditor("first line\nsecond line\nthird line");
+        editor.findAll("line");
+        EditorSnapshot snapshot = editor.snapshot();
+        editor.replaceRange(2, 1, 3, 1, "");
+        editor.put("new ");
+        Assert.assertEquals("first line\nnew third line\n", editor.getContent());
+        Assert.assertEquals(2, snapshot.firstDifference(editor.snapshot()));
+
+        editor.restore(snapshot);
+        Assert.assertEquals("first line\nsecond line\nthird line\n", editor.getContent());
+        Assert.assertEquals(1, editor.getLine());
+        Assert.assertEquals(1, editor.getColumn());
+        Assert.assertEquals(3, editor.getMatches().size());
+        Assert.assertEquals(2, editor.getMatches().getLine(1));
+        Assert.assertEquals(8, editor.getMatches().getColumn(1));
+        Assert.assertEquals(3, editor.getMatches().getLine(2));
+    }
+
+    @Test
+    public void testSaveAsync() throws Exception {
+        File file = File.createTempFile("jledit-save-test", ".txt");
+        try {
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch resume = new CountDownLatch(1);
+            StringEditor editor = new StringEditor();
+            editor.setContentManager(new BlockingContentManager(writing, resume));
+            editor.put("saved line");
+            editor.setDirty(true);
+            Future<?> future = editor.saveAsync(file.getAbsolutePath(), null);
+            writing.await();
+            //Edits made during the save are not saved and keep the editor dirty.
+            editor.put(" and more");
+            resume.countDown();
+            future.get();
+            Assert.assertEquals("saved line\n", Files.toString(file, Charset.forName("UTF-8")));
+            Assert.assertTrue(editor.isDirty());
+
+            editor.saveAsync(null, null).get();
+            Assert.assertEquals("saved line and more\n", Files.toString(file, Charset.forName("UTF-8")));
+            Assert.assertFalse(editor.isDirty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForSave() throws Exception {
+        File file = File.createTempFile("jledit-save-test", ".txt");
+        File journal = EditJournal.fileOf(file);
+        try {
+            Files.writeToFile(file, "line\n", Charset.forName("UTF-8"));
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch resume = new CountDownLatch(1);
+            final StringEditor editor = new StringEditor();
+            editor.setContentManager(new BlockingContentManager(writing, resume));
+            editor.setJournalEnabled(true);
+            editor.open(file.getAbsolutePath());
+            editor.put("saved ");
+            editor.saveAsync(null, null);
+            writing.await();
+
+            Thread closer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        editor.close();
+                    } catch (IOException e) {
+                        //noop
+                    }
+                }
+            });
+            closer.start();
+            closer.join(200);
+            //The journal is kept until the save completes.
+            Assert.assertTrue(closer.isAlive());
+            Assert.assertTrue(journal.exists());
+
+            resume.countDown();
+            closer.join(5000);
+            Assert.assertFalse(closer.isAlive());
+            Assert.assertFalse(journal.exists());
+            Assert.assertEquals("saved line\n", Files.toString(file, Charset.forName("UTF-8")));
+        } finally {
+            journal.delete();
+            file.delete();
+        }
+    }
+
     public StringEditor createEditor() throws IOException {
         return new StringEditor(Resources.toString(getClass().getResource("/testfile.txt"), Charset.forName("UTF-8")));
     }
+
+    /**
+     * Blocks the saves until they are resumed.
+     */
+    private static class BlockingContentManager extends FileContentManager {
+
+        private final CountDownLatch writing;
+        private final CountDownLatch resume;
+
+        private BlockingContentManager(CountDownLatch writing, CountDownLatch resume) {
+            this.writing = writing;
+            this.resume = resume;
+        }
+
+        @Override
+        public FileContent saveContent(FileContent base, PersistentLineList lines, Charset charset, String location) throws IOException {
+            writing.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted.");
+            }
+            return super.saveContent(base, lines, charset, location);
+        }
+    }
 }
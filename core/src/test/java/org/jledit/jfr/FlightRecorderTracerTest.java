@@ -0,0 +1,82 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.Assert;
+import org.jledit.StringEditor;
+import org.jledit.metrics.Tracing;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+public class FlightRecorderTracerTest {
+
+    @Test
+    public void testEvents() throws Exception {
+        Assert.assertTrue(Tracing.getTracer() instanceof FlightRecorderTracer);
+        File file = File.createTempFile("jledit-jfr-test", ".txt");
+        File dump = File.createTempFile("jledit-jfr-test", ".jfr");
+        Recording recording = new Recording();
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write("one\ntwo\nthree\n".getBytes("UTF-8"));
+            fos.close();
+
+            recording.enable(LoadEvent.class);
+            recording.enable(SearchEvent.class);
+            recording.enable(SaveEvent.class);
+            recording.start();
+            StringEditor editor = new StringEditor();
+            editor.open(file.getAbsolutePath());
+            editor.findAll("o");
+            editor.findNext("three");
+            editor.put("1");
+            editor.save(file.getAbsolutePath());
+            recording.stop();
+            recording.dump(dump.toPath());
+
+            List<RecordedEvent> recorded = RecordingFile.readAllEvents(dump.toPath());
+            RecordedEvent load = find(recorded, "org.jledit.Load");
+            Assert.assertEquals(file.getAbsolutePath(), load.getString("file"));
+            Assert.assertEquals(3, load.getLong("lines"));
+            Assert.assertEquals(14, load.getLong("bytesRead"));
+            RecordedEvent search = find(recorded, "org.jledit.Search");
+            Assert.assertEquals("o", search.getString("pattern"));
+            Assert.assertEquals(2, search.getLong("matches"));
+            RecordedEvent save = find(recorded, "org.jledit.Save");
+            Assert.assertEquals(15, save.getLong("fileSize"));
+        } finally {
+            recording.close();
+            file.delete();
+            dump.delete();
+        }
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        Assert.fail("No " + name + " event was recorded.");
+        return null;
+    }
+}
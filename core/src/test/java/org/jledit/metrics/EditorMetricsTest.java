@@ -0,0 +1,102 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+import junit.framework.Assert;
+import org.jledit.command.editor.NewLineCommand;
+import org.jledit.command.editor.TypeCommand;
+import org.jledit.session.SessionRecorder;
+import org.jledit.session.SessionRecording;
+import org.jledit.session.SessionReplay;
+import org.junit.Test;
+
+import java.io.File;
+
+public class EditorMetricsTest {
+
+    @Test
+    public void testHistogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500500000L, histogram.getTotal());
+        Assert.assertEquals(1000000, histogram.getMax());
+        assertWithinPrecision(500000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testBuckets() throws Exception {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(index == previous || index == previous + 1);
+            Assert.assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            previous = index;
+        }
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE)));
+    }
+
+    @Test
+    public void testCommandMetrics() throws Exception {
+        File file = File.createTempFile("jledit-metrics-test", SessionRecorder.SUFFIX);
+        SessionReplay replay;
+        try {
+            SessionRecorder recorder = new SessionRecorder(file, 40, 12);
+            for (String key : new String[]{"a", "b", "\r"}) {
+                byte[] bytes = key.getBytes("UTF-8");
+                recorder.record(bytes, 0, bytes.length);
+                Thread.sleep(2);
+            }
+            recorder.close();
+            replay = new SessionReplay(SessionRecording.read(file));
+            replay.getEditor().setLatencyOverlayEnabled(true);
+            replay.replay(false);
+        } finally {
+            file.delete();
+        }
+
+        EditorMetrics metrics = replay.getEditor().getMetrics();
+        CommandMetrics type = metrics.getCommand(TypeCommand.class);
+        Assert.assertEquals(2, type.getExecutionTime().getCount());
+        Assert.assertEquals(2, type.getFlushTime().getCount());
+        Assert.assertEquals(0, type.getErrors());
+        Assert.assertSame(type, metrics.getCommand("TypeCommand"));
+        Assert.assertEquals(1, metrics.getCommand(NewLineCommand.class).getExecutionTime().getCount());
+        Assert.assertTrue(metrics.getFlushTime().getCount() >= 3);
+        Assert.assertEquals(0, metrics.getErrors());
+
+        //Each key is displayed by the flush of its command.
+        Assert.assertEquals(3, metrics.getDisplayLatency().getCount());
+        Assert.assertTrue(metrics.getDisplayLatency().getMax() >= type.getFlushTime().getMax());
+        Assert.assertTrue(replay.getScreen().getRow(1).contains("p50:"));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
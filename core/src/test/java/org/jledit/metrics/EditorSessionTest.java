@@ -0,0 +1,61 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.metrics;
+
+import junit.framework.Assert;
+import org.jledit.AbstractConsoleEditor;
+import org.jledit.ConcreteEditorFactory;
+import org.jledit.command.editor.TypeCommand;
+import org.jledit.terminal.HeadlessTerminal;
+import org.jledit.terminal.VirtualScreen;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+public class EditorSessionTest {
+
+    @Test
+    public void testRegistration() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName query = new ObjectName(EditorSession.DOMAIN + ":type=EditorSession,*");
+        Set<ObjectName> registered = server.queryNames(query, null);
+
+        ConcreteEditorFactory factory = new ConcreteEditorFactory();
+        factory.setManagementEnabled(true);
+        HeadlessTerminal terminal = new HeadlessTerminal(40, 12);
+        AbstractConsoleEditor editor = (AbstractConsoleEditor) factory.create("simple", terminal, null, new PrintStream(new VirtualScreen(40, 12)));
+        Set<ObjectName> names = server.queryNames(query, null);
+        names.removeAll(registered);
+        Assert.assertEquals(1, names.size());
+        ObjectName name = names.iterator().next();
+
+        editor.put("hello\nworld");
+        editor.getUndoContext().undoPush(new TypeCommand(editor, "!"));
+        Assert.assertEquals(2, server.getAttribute(name, "Lines"));
+        Assert.assertEquals(11L, server.getAttribute(name, "Length"));
+        Assert.assertEquals(1, server.getAttribute(name, "UndoDepth"));
+        Assert.assertTrue((Long) server.getAttribute(name, "MemoryUsage") > 0);
+        Assert.assertEquals(0L, server.getAttribute(name, "Errors"));
+
+        editor.stop();
+        Assert.assertFalse(server.isRegistered(name));
+        Assert.assertEquals(registered, server.queryNames(query, null));
+    }
+}
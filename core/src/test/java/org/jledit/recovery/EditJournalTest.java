@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jledit.recovery;
+
+import junit.framework.Assert;
+import org.jledit.StringEditor;
+import org.jledit.utils.Files;
+import org.jledit.utils.internal.Charsets;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class EditJournalTest {
+
+    @Test
+    public void testRecover() throws Exception {
+        File base = createBase();
+        File journalFile = EditJournal.fileOf(base);
+        try {
+            EditJournal journal = new EditJournal(journalFile, base, 0, true);
+            journal.lineChanged(1, "first line changed");
+            journal.lineInserted(2, "inserted line");
+            journal.linesReplaced(3, 2, Arrays.asList("replaced"));
+            journal.lineEdited(4, 1, 6, "last");
+            journal.close();
+            Assert.assertTrue(EditJournal.isRecoverable(journalFile, base));
+
+            StringEditor editor = new StringEditor();
+            editor.setJournalEnabled(true);
+            editor.open(base.getAbsolutePath());
+            Assert.assertTrue(editor.hasRecoverableJournal());
+            Assert.assertTrue(editor.recoverJournal());
+            Assert.assertEquals("first line changed\ninserted line\nreplaced\nlast line\n", editor.getContent());
+            Assert.assertTrue(editor.isDirty());
+            Assert.assertFalse(editor.hasRecoverableJournal());
+
+            //The recovered changes are journaled again, so a second crash doesn't lose them.
+            Assert.assertTrue(journalFile.exists());
+            editor.close();
+            Assert.assertFalse(journalFile.exists());
+        } finally {
+            journalFile.delete();
+            base.delete();
+        }
+    }
+
+    @Test
+    public void testRecoverEdits() throws Exception {
+        File base = createBase();
+        File journalFile = EditJournal.fileOf(base);
+        try {
+            StringEditor editor = new StringEditor();
+            editor.setJournalEnabled(true);
+            editor.open(base.getAbsolutePath());
+            editor.move(2, 7);
+            editor.put("-typed");
+            editor.backspace();
+            editor.delete();
+            editor.newLine();
+            editor.move(4, 1);
+            editor.backspace();
+            String expected = editor.getContent();
+            //Typing, deleting and splitting lines journal the edited ranges.
+            byte[] journaled = awaitChanges(journalFile, 7);
+            editor.close();
+
+            RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+            file.write(journaled);
+            file.close();
+            editor = new StringEditor();
+            editor.setJournalEnabled(true);
+            editor.open(base.getAbsolutePath());
+            Assert.assertTrue(editor.recoverJournal());
+            Assert.assertEquals(expected, editor.getContent());
+            editor.close();
+        } finally {
+            journalFile.delete();
+            base.delete();
+        }
+    }
+
+    /**
+     * Waits until the journal contains the specified number of changes and returns its content.
+     */
+    private static byte[] awaitChanges(File journalFile, int changes) throws Exception {
+        final int[] edits = new int[1];
+        LineChangeHandler counter = new LineChangeHandler() {
+            public void lineChanged(int line, String content) {
+                Assert.fail();
+            }
+
+            public void lineEdited(int line, int column, int length, String inserted) {
+                edits[0]++;
+            }
+
+            public void lineInserted(int line, String content) {
+            }
+
+            public void lineRemoved(int line) {
+            }
+
+            public void linesReplaced(int line, int count, List<String> contents) {
+                Assert.fail();
+            }
+        };
+        long deadline = System.currentTimeMillis() + 5000;
+        while (EditJournal.replay(journalFile, counter) < changes && System.currentTimeMillis() < deadline) {
+            edits[0] = 0;
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(5, edits[0]);
+        RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+        try {
+            byte[] content = new byte[(int) file.length()];
+            file.readFully(content);
+            return content;
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        File base = createBase();
+        File journalFile = EditJournal.fileOf(base);
+        try {
+            EditJournal journal = new EditJournal(journalFile, base, 0, false);
+            journal.lineChanged(1, "changed");
+            journal.lineRemoved(2);
+            journal.close();
+            RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+            file.setLength(file.length() - 2);
+            file.close();
+
+            final StringBuilder changes = new StringBuilder();
+            Assert.assertEquals(1, EditJournal.replay(journalFile, new LineChangeHandler() {
+                public void lineChanged(int line, String content) {
+                    changes.append(line).append(':').append(content);
+                }
+
+                public void lineEdited(int line, int column, int length, String inserted) {
+                    Assert.fail();
+                }
+
+                public void lineInserted(int line, String content) {
+                    Assert.fail();
+                }
+
+                public void lineRemoved(int line) {
+                    Assert.fail();
+                }
+
+                public void linesReplaced(int line, int count, List<String> contents) {
+                    Assert.fail();
+                }
+            }));
+            Assert.assertEquals("1:changed", changes.toString());
+
+            //A journal of a file that was modified afterwards is not recovered.
+            Files.writeToFile(base, "modified\n", Charsets.UTF_8);
+            base.setLastModified(journalFile.lastModified() + 1000);
+            Assert.assertFalse(EditJournal.isRecoverable(journalFile, base));
+        } finally {
+            journalFile.delete();
+            base.delete();
+        }
+    }
+
+    private static File createBase() throws Exception {
+        File base = File.createTempFile("jledit-journal-test", ".txt");
+        Files.writeToFile(base, "first line\nsecond line\nthird line\nfourth line\n", Charsets.UTF_8);
+        return base;
+    }
+}
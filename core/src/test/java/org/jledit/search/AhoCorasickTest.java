@@ -0,0 +1,54 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void testFind() throws Exception {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "hers", ""));
+        Assert.assertEquals(4, automaton.getPatternCount());
+
+        int[] matches = automaton.find("ushers and he");
+        //"she" at 1 wins over "he" at 2, "hers" overlaps it and is skipped.
+        Assert.assertEquals(6, matches.length);
+        Assert.assertEquals(1, matches[0]);
+        Assert.assertEquals(3, matches[1]);
+        Assert.assertEquals(1, matches[2]);
+        Assert.assertEquals(11, matches[3]);
+        Assert.assertEquals(2, matches[4]);
+        Assert.assertEquals(0, matches[5]);
+
+        Assert.assertEquals(0, automaton.find("nothing to see").length);
+    }
+
+    @Test
+    public void testLongestMatch() throws Exception {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("ab", "abcd", "bc"));
+        int[] matches = automaton.find("xabcdab");
+        Assert.assertEquals(6, matches.length);
+        Assert.assertEquals(1, matches[0]);
+        Assert.assertEquals(4, matches[1]);
+        Assert.assertEquals(1, matches[2]);
+        Assert.assertEquals(5, matches[3]);
+        Assert.assertEquals(2, matches[4]);
+        Assert.assertEquals(0, matches[5]);
+    }
+}
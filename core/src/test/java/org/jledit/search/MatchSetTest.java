@@ -0,0 +1,88 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import junit.framework.Assert;
+import org.jledit.StringEditor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MatchSetTest {
+
+    @Test
+    public void testNavigation() throws Exception {
+        MatchSet matches = MatchSet.find("ab", Arrays.asList("ab ab", "", "xxab"), null);
+        Assert.assertEquals(3, matches.size());
+        Assert.assertEquals(0, matches.indexOf(1, 1));
+        Assert.assertEquals(-1, matches.indexOf(1, 2));
+
+        int next = matches.next(1, 1);
+        Assert.assertEquals(1, matches.getLine(next));
+        Assert.assertEquals(4, matches.getColumn(next));
+        next = matches.next(1, 4);
+        Assert.assertEquals(3, matches.getLine(next));
+        Assert.assertEquals(3, matches.getColumn(next));
+        Assert.assertEquals(-1, matches.next(3, 3));
+
+        Assert.assertEquals(1, matches.previous(3, 3));
+        Assert.assertEquals(-1, matches.previous(1, 1));
+    }
+
+    @Test
+    public void testParallelFind() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 200000; i++) {
+            lines.add(i % 1000 == 0 ? "a needle here" : "only hay");
+        }
+        MatchSet matches = MatchSet.find("needle", lines, null);
+        Assert.assertEquals(200, matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            Assert.assertEquals(i * 1000 + 1, matches.getLine(i));
+            Assert.assertEquals(3, matches.getColumn(i));
+        }
+    }
+
+    @Test
+    public void testMatchesFollowEdits() throws Exception {
+        StringEditor editor = new StringEditor("foo\nbar foo\nbaz\nfoo");
+        Assert.assertEquals(3, editor.findAll("foo"));
+
+        editor.move(1, 1);
+        editor.newLine();
+        MatchSet matches = editor.getMatches();
+        Assert.assertEquals(3, matches.size());
+        Assert.assertEquals(2, matches.getLine(0));
+        Assert.assertEquals(3, matches.getLine(1));
+        Assert.assertEquals(5, matches.getLine(2));
+
+        editor.move(4, 1);
+        editor.put("foo");
+        Assert.assertEquals(4, matches.size());
+
+        editor.move(3, 1);
+        editor.findNext("foo");
+        Assert.assertEquals(3, editor.getLine());
+        Assert.assertEquals(5, editor.getColumn());
+        editor.findNext("foo");
+        Assert.assertEquals(4, editor.getLine());
+        Assert.assertEquals(1, editor.getColumn());
+        editor.findPrevious("foo");
+        Assert.assertEquals(3, editor.getLine());
+        Assert.assertEquals(5, editor.getColumn());
+    }
+}
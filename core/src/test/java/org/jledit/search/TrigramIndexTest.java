@@ -0,0 +1,145 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.search;
+
+import junit.framework.Assert;
+import org.jledit.LinePatch;
+import org.jledit.StringEditor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void testCandidates() throws Exception {
+        String[] lines = createLines(1000);
+        lines[10] = "ERROR request 42";
+        lines[700] = "ERROR request 43";
+        TrigramIndex index = new TrigramIndex();
+        index.rebuild(lines);
+        Assert.assertTrue(index.awaitReady(10000));
+
+        int[] candidates = index.candidates("ERROR");
+        Assert.assertEquals(4, candidates.length);
+        Assert.assertTrue(candidates[0] <= 11 && 11 <= candidates[1]);
+        Assert.assertTrue(candidates[2] <= 701 && 701 <= candidates[3]);
+        Assert.assertEquals(0, index.candidates("WARNING").length);
+        Assert.assertNull(index.candidates("ER"));
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        TrigramIndex index = new TrigramIndex();
+        index.rebuild(createLines(1000));
+        Assert.assertTrue(index.awaitReady(10000));
+
+        index.lineChanged(500, "WARN disk almost full");
+        int[] candidates = index.candidates("WARN");
+        Assert.assertEquals(2, candidates.length);
+        Assert.assertTrue(candidates[0] <= 500 && 500 <= candidates[1]);
+
+        //Remove a whole block before the match and check that the candidate moves up.
+        for (int i = 0; i < TrigramIndex.BLOCK_SIZE; i++) {
+            index.lineRemoved(1);
+        }
+        candidates = index.candidates("WARN");
+        Assert.assertTrue(candidates[0] <= 500 - TrigramIndex.BLOCK_SIZE && 500 - TrigramIndex.BLOCK_SIZE <= candidates[1]);
+
+        index.lineInserted(1, "WARN at the top");
+        candidates = index.candidates("WARN");
+        Assert.assertEquals(1, candidates[0]);
+    }
+
+    @Test
+    public void testIndexedFind() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (String line : createLines(2000)) {
+            content.append(line).append("\n");
+        }
+        StringEditor editor = new StringEditor(content.toString());
+        editor.setSearchIndexEnabled(true);
+        Assert.assertTrue(editor.getSearchIndex().awaitReady(10000));
+
+        editor.move(1500, 1);
+        editor.put("needle");
+        editor.move(1, 1);
+        editor.findNext("needle");
+        Assert.assertEquals(1500, editor.getLine());
+        Assert.assertEquals(1, editor.getColumn());
+
+        editor.move(1000, 1);
+        editor.newLine();
+        editor.move(1, 1);
+        editor.findNext("needle");
+        Assert.assertEquals(1501, editor.getLine());
+
+        editor.move(2001, 1);
+        editor.findPrevious("needle");
+        Assert.assertEquals(1501, editor.getLine());
+    }
+
+    @Test
+    public void testFindWithFragmentedCandidates() throws Exception {
+        String[] lines = createLines(20 * TrigramIndex.BLOCK_SIZE);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < lines.length; i++) {
+            if ((i / TrigramIndex.BLOCK_SIZE) % 3 == 0 && i % 7 == 0) {
+                lines[i] += " ERROR";
+                expected.add(i + 1);
+            }
+        }
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append("\n");
+        }
+        StringEditor editor = new StringEditor(content.toString());
+        editor.setSearchIndexEnabled(true);
+        Assert.assertTrue(editor.getSearchIndex().awaitReady(10000));
+        Assert.assertTrue(editor.getSearchIndex().candidates("ERROR").length > 2);
+
+        editor.move(1, 1);
+        for (int line : expected) {
+            editor.findNext("ERROR");
+            Assert.assertEquals(line, editor.getLine());
+        }
+        editor.findNext("ERROR");
+        Assert.assertEquals((int) expected.get(expected.size() - 1), editor.getLine());
+
+        editor.move(editor.lines(), 1);
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            editor.findPrevious("ERROR");
+            Assert.assertEquals((int) expected.get(i), editor.getLine());
+        }
+        editor.findPrevious("ERROR");
+        Assert.assertEquals((int) expected.get(0), editor.getLine());
+
+        LinePatch undo = editor.replaceAll("ERROR", "WARN");
+        Assert.assertEquals(expected.size(), undo.size());
+        for (int i = 0; i < undo.size(); i++) {
+            Assert.assertEquals((int) expected.get(i), undo.getLine(i));
+        }
+        Assert.assertFalse(editor.getContent().contains("ERROR"));
+    }
+
+    private static String[] createLines(int count) {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = "INFO line number " + i + " of the log";
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.session;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+
+public class SessionReplayTest {
+
+    @Test
+    public void testRecording() throws Exception {
+        File file = File.createTempFile("jledit-session-test", SessionRecorder.SUFFIX);
+        try {
+            SessionRecorder recorder = new SessionRecorder(file, 80, 24);
+            InputStream in = recorder.wrap(new ByteArrayInputStream("ab\033[A".getBytes("UTF-8")));
+            in.read();
+            in.read();
+            Thread.sleep(5);
+            //The bytes of an escape sequence are read together.
+            in.read(new byte[3]);
+            recorder.close();
+
+            SessionRecording recording = SessionRecording.read(file);
+            Assert.assertEquals(80, recording.getWidth());
+            Assert.assertEquals(24, recording.getHeight());
+            Assert.assertEquals(2, recording.size());
+            Assert.assertEquals("ab", new String(recording.getKeys(0), "UTF-8"));
+            Assert.assertEquals("\033[A", new String(recording.getKeys(1), "UTF-8"));
+            Assert.assertTrue(recording.getTime(1) - recording.getTime(0) >= 5000);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        File file = File.createTempFile("jledit-session-test", SessionRecorder.SUFFIX);
+        try {
+            SessionRecorder recorder = new SessionRecorder(file, 40, 12);
+            for (String key : new String[]{"h", "i", "\r", "!"}) {
+                byte[] bytes = key.getBytes("UTF-8");
+                recorder.record(bytes, 0, bytes.length);
+                Thread.sleep(2);
+            }
+            recorder.close();
+            SessionRecording recording = SessionRecording.read(file);
+
+            SessionReplay replay = new SessionReplay(recording);
+            ReplayResult result = replay.replay(false);
+            Assert.assertEquals(4, result.getRecords());
+            Assert.assertEquals(4, result.getBytes());
+            Assert.assertEquals("hi\n!\n", replay.getEditor().getContent());
+            Assert.assertEquals("hi", replay.getScreen().getRow(2));
+            Assert.assertEquals("!", replay.getScreen().getRow(3));
+
+            //In real time the replay takes at least as long as the recording.
+            replay = new SessionReplay(recording);
+            result = replay.replay(true);
+            Assert.assertEquals("hi\n!\n", replay.getEditor().getContent());
+            Assert.assertTrue(result.getElapsedNanos() >= recording.getTime(3) * 1000);
+        } finally {
+            file.delete();
+        }
+    }
+}
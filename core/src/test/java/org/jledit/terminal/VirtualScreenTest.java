@@ -0,0 +1,73 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.terminal;
+
+import junit.framework.Assert;
+import org.jledit.simple.SimpleConsoleEditor;
+import org.junit.Test;
+
+import java.io.PrintStream;
+
+public class VirtualScreenTest {
+
+    @Test
+    public void testInterpreter() throws Exception {
+        VirtualScreen screen = new VirtualScreen(10, 4);
+        PrintStream out = new PrintStream(screen, true, "UTF-8");
+        out.print("first\nsecond\u00e9");
+        Assert.assertEquals("first", screen.getRow(1));
+        Assert.assertEquals("second\u00e9", screen.getRow(2));
+        Assert.assertEquals(2, screen.getCursorRow());
+        Assert.assertEquals(8, screen.getCursorColumn());
+
+        out.print("\33[1;3H\33[1;44;31mX\33[0m\33[K");
+        Assert.assertEquals("fiX", screen.getRow(1));
+        Assert.assertTrue(screen.isBold(1, 3));
+        Assert.assertEquals(4, screen.getBackground(1, 3));
+        Assert.assertEquals(1, screen.getForeground(1, 3));
+        Assert.assertEquals(VirtualScreen.DEFAULT_COLOR, screen.getForeground(1, 2));
+
+        //Scrolling only affects the scrolling region.
+        out.print("\33[2;3r\33[3;1Hthird\33[1S");
+        Assert.assertEquals("fiX", screen.getRow(1));
+        Assert.assertEquals("third", screen.getRow(2));
+        Assert.assertEquals("", screen.getRow(3));
+        Assert.assertEquals(7, screen.getEscapeSequences());
+    }
+
+    @Test
+    public void testEditorOnHeadlessTerminal() throws Exception {
+        HeadlessTerminal terminal = new HeadlessTerminal(40, 12);
+        VirtualScreen screen = new VirtualScreen(40, 12);
+        SimpleConsoleEditor editor = new SimpleConsoleEditor(terminal, null, new PrintStream(screen, false, "UTF-8"));
+        editor.activate();
+        Assert.assertTrue(screen.getRow(1).startsWith("JLEdit"));
+
+        terminal.type("hello");
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(editor.processOperation());
+        }
+        terminal.type("\r!");
+        editor.processOperation();
+        editor.processOperation();
+        editor.flush();
+        Assert.assertEquals("hello", screen.getRow(2));
+        Assert.assertEquals("!", screen.getRow(3));
+        Assert.assertTrue(screen.getRow(1).endsWith("L:2 C:2"));
+        Assert.assertEquals(3, screen.getCursorRow());
+        Assert.assertEquals(2, screen.getCursorColumn());
+        Assert.assertEquals(0, terminal.getPendingKeys());
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jledit.utils;
+
+import junit.framework.Assert;
+import org.jledit.utils.internal.ChannelEncoder;
+import org.jledit.utils.internal.Charsets;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class FilesTest {
+
+    @Test
+    public void testWriteToFileAtomically() throws Exception {
+        File directory = File.createTempFile("jledit-files-test", "");
+        directory.delete();
+        directory.mkdirs();
+        File file = new File(directory, "content.txt");
+        try {
+            Files.writeToFileAtomically(file, "first\n", Charsets.UTF_8);
+            Assert.assertEquals("first\n", Files.toString(file, Charsets.UTF_8));
+
+            file.setExecutable(true);
+            StringBuilder content = new StringBuilder();
+            //Larger than the write buffer and with characters that take more than one byte.
+            while (content.length() < 3 * ChannelEncoder.DEFAULT_BUFFER_SIZE) {
+                content.append("line \u00e9\u20ac\n");
+            }
+            Files.writeToFileAtomically(file, content, Charsets.UTF_8);
+            Assert.assertEquals(content.toString(), Files.toString(file, Charsets.UTF_8));
+            Assert.assertTrue(file.canExecute());
+            //No temporary files are left behind.
+            Assert.assertEquals(1, directory.list().length);
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testWriteToFileAtomicallyFailure() throws Exception {
+        File directory = File.createTempFile("jledit-files-test", "");
+        directory.delete();
+        directory.mkdirs();
+        //A directory that is not empty can't be replaced by a file.
+        File target = new File(directory, "content.txt");
+        File child = new File(target, "child.txt");
+        target.mkdirs();
+        Files.writeToFile(child, "child\n", Charsets.UTF_8);
+        File temp = null;
+        try {
+            try {
+                Files.writeToFileAtomically(target, "new\n", Charsets.UTF_8);
+                Assert.fail("The directory should not be replaced.");
+            } catch (IOException e) {
+                //The new content is kept and reported.
+                for (File file : directory.listFiles()) {
+                    if (file.getName().endsWith(Files.TEMP_FILE_SUFFIX)) {
+                        temp = file;
+                    }
+                }
+                Assert.assertNotNull(temp);
+                Assert.assertTrue(e.getMessage().contains(temp.getPath()));
+                Assert.assertEquals("new\n", Files.toString(temp, Charsets.UTF_8));
+            }
+            Assert.assertEquals("child\n", Files.toString(child, Charsets.UTF_8));
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+            child.delete();
+            target.delete();
+            directory.delete();
+        }
+    }
+}